@@ -74,6 +74,8 @@ public class ConfigurationException extends Exception {
 	public static final int IMMUTABLE_BUILDER_NOT_FOUND = 46;
 	public static final int IMMUTABLE_BUILDER_NEEDS_AN_EMPTY_CONSTRUCTOR = 47;
 	public static final int IMMUTABLE_BUILDER_NEEDS_A_COPY_CONSTRUCTOR = 48;
+	public static final int LARGE_OBJECT_REQUIRES_SINGLE_PRIMARY_KEY = 49;
+	public static final int ID_GENERATOR_NOT_APPLICABLE = 50;
 
 	private final static String getErrorMessage(int errorCode) {
 		switch (errorCode) {
@@ -173,6 +175,10 @@ public class ConfigurationException extends Exception {
 			return "[%s.Builder] The Builder class needs an empty constructor but doesn't have one!";
 		case IMMUTABLE_BUILDER_NEEDS_A_COPY_CONSTRUCTOR:
 			return "[%s.Builder] The Builder class needs a copy constructor but doesn't have one!";
+		case LARGE_OBJECT_REQUIRES_SINGLE_PRIMARY_KEY:
+			return "The large object column %s.%s requires a single primary key";
+		case ID_GENERATOR_NOT_APPLICABLE:
+			return "The id generator of %s.%s is not applicable to the key type";
 		default:
 			return "Unknown Error";
 		}
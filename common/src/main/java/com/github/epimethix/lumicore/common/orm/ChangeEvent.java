@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import com.github.epimethix.lumicore.common.orm.model.Entity;
+
+/**
+ * A committed change of one record (or of an unknown set of records if the id
+ * is null) published by a repository through the {@link ChangeEventBus}.
+ * 
+ * @author epimethix
+ *
+ */
+public final class ChangeEvent {
+
+	public static enum Operation {
+		INSERT, UPDATE, DELETE
+	}
+
+	private final Class<? extends Entity<?>> entityClass;
+	private final Object id;
+	private final Operation operation;
+	private final List<String> changedColumns;
+
+	/**
+	 * @param entityClass    the entity class of the changed record
+	 * @param id             the id of the changed record or null if an unknown set
+	 *                       of records was changed
+	 * @param operation      the operation
+	 * @param changedColumns the changed columns
+	 */
+	public ChangeEvent(Class<? extends Entity<?>> entityClass, Object id, Operation operation,
+			String... changedColumns) {
+		this(entityClass, id, operation, Arrays.asList(changedColumns));
+	}
+
+	private ChangeEvent(Class<? extends Entity<?>> entityClass, Object id, Operation operation,
+			List<String> changedColumns) {
+		this.entityClass = Objects.requireNonNull(entityClass);
+		this.id = id;
+		this.operation = Objects.requireNonNull(operation);
+		this.changedColumns = Collections.unmodifiableList(new ArrayList<>(changedColumns));
+	}
+
+	public Class<? extends Entity<?>> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * @return the id of the changed record or null if the change affected an
+	 *         unknown set of records (bulk update/delete or coalesced overflow)
+	 */
+	public Object getId() {
+		return id;
+	}
+
+	/**
+	 * @return true if the change affected an unknown set of records and
+	 *         consumers should reload the entity
+	 */
+	public boolean isBulk() {
+		return Objects.isNull(id);
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public List<String> getChangedColumns() {
+		return changedColumns;
+	}
+
+	/**
+	 * Coalesces this event with a later event of the same record.
+	 * 
+	 * @param later the later event
+	 * @return the coalesced event
+	 */
+	ChangeEvent coalesce(ChangeEvent later) {
+		Operation op;
+		if (later.operation == Operation.DELETE) {
+			op = Operation.DELETE;
+		} else if (operation == Operation.INSERT) {
+			op = Operation.INSERT;
+		} else if (operation == Operation.DELETE) {
+			op = later.operation == Operation.INSERT ? Operation.UPDATE : later.operation;
+		} else {
+			op = Operation.UPDATE;
+		}
+		Set<String> columns = new LinkedHashSet<>(changedColumns);
+		columns.addAll(later.changedColumns);
+		return new ChangeEvent(entityClass, id, op, new ArrayList<>(columns));
+	}
+
+	/**
+	 * Converts this event to a bulk event of the same entity.
+	 * 
+	 * @return the bulk event
+	 */
+	ChangeEvent toBulk() {
+		return isBulk() ? this : new ChangeEvent(entityClass, null, operation, changedColumns);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ChangeEvent [%s %s id=%s columns=%s]", operation, entityClass.getSimpleName(), id,
+				changedColumns);
+	}
+}
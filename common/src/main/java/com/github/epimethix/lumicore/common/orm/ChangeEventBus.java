@@ -0,0 +1,236 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.github.epimethix.lumicore.common.orm.model.Entity;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+
+/**
+ * Fan-out bus for {@link ChangeEvent}s.
+ * <p>
+ * Every subscriber has its own bounded queue in which pending events of the
+ * same record are coalesced. If a queue is full further records are coalesced
+ * into one bulk event per entity class. Events are delivered in batches on the
+ * bus dispatch thread, so consumers that have to run on a specific thread (for
+ * example the Swing event dispatch thread) must hand the events over
+ * themselves.
+ * <p>
+ * Events published while a transaction is open are deferred until
+ * {@link #commit()} or dropped by {@link #rollback()}. Transactions managed by
+ * the repositories and units of work end the deferral themselves, dialects
+ * which can observe transaction outcomes (SQLite) do so for transactions
+ * managed by the application. Otherwise the application must call
+ * {@link #commit()} or {@link #rollback()} after ending its transaction.
+ * 
+ * @author epimethix
+ *
+ */
+public final class ChangeEventBus {
+
+	/**
+	 * A subscription to the bus, close it to unsubscribe.
+	 */
+	public static interface Subscription extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	private final class Subscriber implements Subscription {
+		private final Class<? extends Entity<?>> filter;
+		private final int capacity;
+		private final Consumer<List<ChangeEvent>> consumer;
+		private final ConcurrentLinkedQueue<List<Object>> keys = new ConcurrentLinkedQueue<>();
+		private final ConcurrentHashMap<List<Object>, ChangeEvent> pending = new ConcurrentHashMap<>();
+		private final AtomicInteger size = new AtomicInteger();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		private Subscriber(Class<? extends Entity<?>> filter, int capacity, Consumer<List<ChangeEvent>> consumer) {
+			this.filter = filter;
+			this.capacity = capacity;
+			this.consumer = consumer;
+		}
+
+		private void offer(ChangeEvent e) {
+			if (Objects.nonNull(filter) && filter != e.getEntityClass()) {
+				return;
+			}
+			List<Object> key = Arrays.asList(e.getEntityClass(), e.getId());
+			if (!pending.containsKey(key) && size.get() >= capacity) {
+				e = e.toBulk();
+				key = Arrays.asList(e.getEntityClass(), null);
+			}
+			final ChangeEvent event = e;
+			final List<Object> k = key;
+			pending.compute(k, (x, previous) -> {
+				if (Objects.isNull(previous)) {
+					size.incrementAndGet();
+					keys.add(k);
+					return event;
+				}
+				return previous.coalesce(event);
+			});
+			schedule();
+		}
+
+		private void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				dispatcher().execute(this::drain);
+			}
+		}
+
+		private void drain() {
+			List<ChangeEvent> batch = new ArrayList<>();
+			List<Object> key;
+			while (Objects.nonNull(key = keys.poll())) {
+				ChangeEvent e = pending.remove(key);
+				size.decrementAndGet();
+				if (Objects.nonNull(e)) {
+					batch.add(e);
+				}
+			}
+			try {
+				if (!batch.isEmpty()) {
+					consumer.accept(batch);
+				}
+			} catch (RuntimeException ex) {
+				LOGGER.error(ex);
+			} finally {
+				scheduled.set(false);
+				if (!keys.isEmpty()) {
+					schedule();
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			subscribers.remove(this);
+		}
+	}
+
+	private final static Logger LOGGER = Log.getLogger(Log.CHANNEL_ORM);
+
+	private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	private final ConcurrentLinkedQueue<ChangeEvent> deferred = new ConcurrentLinkedQueue<>();
+
+	private volatile ExecutorService dispatcher;
+
+	private ExecutorService dispatcher() {
+		ExecutorService d = dispatcher;
+		if (Objects.isNull(d)) {
+			synchronized (this) {
+				if (Objects.isNull(d = dispatcher)) {
+					d = dispatcher = Executors.newSingleThreadExecutor(r -> {
+						Thread t = new Thread(r, "lumicore-change-events");
+						t.setDaemon(true);
+						return t;
+					});
+				}
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * Synonym for {@code subscribe(null, 1024, consumer)}.
+	 */
+	public Subscription subscribe(Consumer<List<ChangeEvent>> consumer) {
+		return subscribe(null, 1024, consumer);
+	}
+
+	/**
+	 * Subscribes to change events.
+	 * 
+	 * @param entityClass the entity class to receive events of or null to receive
+	 *                    all events
+	 * @param capacity    the number of distinct records that can be pending before
+	 *                    events are coalesced into bulk events
+	 * @param consumer    the consumer receiving the event batches
+	 * @return the subscription
+	 */
+	public Subscription subscribe(Class<? extends Entity<?>> entityClass, int capacity,
+			Consumer<List<ChangeEvent>> consumer) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		Subscriber s = new Subscriber(entityClass, capacity, Objects.requireNonNull(consumer));
+		subscribers.add(s);
+		return s;
+	}
+
+	public boolean hasSubscribers() {
+		return !subscribers.isEmpty();
+	}
+
+	/**
+	 * Publishes a committed change. Deferred changes are not affected, their
+	 * transaction may still be rolled back.
+	 * 
+	 * @param e the change event
+	 */
+	public void publish(ChangeEvent e) {
+		fanOut(e);
+	}
+
+	/**
+	 * Defers a change until the open transaction is committed.
+	 * 
+	 * @param e the change event
+	 */
+	public void defer(ChangeEvent e) {
+		if (hasSubscribers()) {
+			deferred.add(e);
+		}
+	}
+
+	/**
+	 * Publishes the deferred changes.
+	 */
+	public void commit() {
+		ChangeEvent e;
+		while (Objects.nonNull(e = deferred.poll())) {
+			fanOut(e);
+		}
+	}
+
+	/**
+	 * Drops the deferred changes.
+	 */
+	public void rollback() {
+		deferred.clear();
+	}
+
+	private void fanOut(ChangeEvent e) {
+		for (Subscriber s : subscribers) {
+			s.offer(e);
+		}
+	}
+}
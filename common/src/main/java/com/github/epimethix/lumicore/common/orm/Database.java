@@ -15,11 +15,13 @@
  */
 package com.github.epimethix.lumicore.common.orm;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.sqlite.SQLiteConfig;
 
@@ -95,6 +97,15 @@ public interface Database {
 	 */
 	Connection getConnection() throws SQLException;
 
+	/**
+	 * Tests if a transaction is open on the current connection. Unlike
+	 * {@link #getConnection()} this never opens a connection.
+	 * 
+	 * @return true if a connection is open and not in auto-commit mode
+	 * @throws SQLException
+	 */
+	boolean isTransactionOpen() throws SQLException;
+
 	/**
 	 * Close the current connection
 	 * 
@@ -197,6 +208,28 @@ public interface Database {
 		return UUID.randomUUID().toString();
 	}
 
+	/**
+	 * generates a time ordered UUID for primary keys declared
+	 * {@code @PrimaryKey(generator = PrimaryKey.GENERATOR_UUID_V7)}.
+	 * 
+	 * @return a UUID version 7 string
+	 * @see UUIDv7
+	 */
+	default String nextTimeOrderedUUID() {
+		return UUIDv7.nextString();
+	}
+
+	/**
+	 * generates a time ordered 64 bit id for primary keys declared
+	 * {@code @PrimaryKey(generator = PrimaryKey.GENERATOR_SNOWFLAKE)}.
+	 * 
+	 * @return the next id of the default Snowflake generator
+	 * @see Snowflake#getDefault()
+	 */
+	default long nextSnowflakeId() {
+		return Snowflake.getDefault().nextId();
+	}
+
 	/**
 	 * get the table info for the specified table
 	 * 
@@ -297,6 +330,34 @@ public interface Database {
 
 	SchemaSynchronizity checkSchemaSynchronizity() throws SQLException;
 
+	/**
+	 * Checks the synchronizity of the schema against an already loaded list of
+	 * existing table names.
+	 * 
+	 * @param existingTables the non-system tables existing in the database
+	 * 
+	 * @return the tables to check, deploy and delete
+	 */
+	SchemaSynchronizity checkSchemaSynchronizity(List<String> existingTables);
+
+	/**
+	 * Gets the structure fingerprint that was stored for the specified entity the
+	 * last time its table was verified to be in sync.
+	 * 
+	 * @param entityName the entity name
+	 * 
+	 * @return the fingerprint or null if there is none
+	 */
+	String getMetaEntityStructureFingerprint(String entityName);
+
+	/**
+	 * Stores the structure fingerprint of the specified entity.
+	 * 
+	 * @param entityName  the entity name
+	 * @param fingerprint the fingerprint of the verified structure
+	 */
+	void setMetaEntityStructureFingerprint(String entityName, String fingerprint);
+
 	List<Repository<?, ?>> getRepositories();
 
 	void upgradeEntity(Repository<?, ?> repository) throws SQLException;
@@ -326,4 +387,57 @@ public interface Database {
 	long getInteger(String sqlGetApplicationId);
 
 	Class<? extends Entity<?>> getEntityImplementationClass(Class<? extends Entity<?>> e);
+
+	/**
+	 * Gets the bus the repositories of this database publish their committed
+	 * changes to.
+	 * 
+	 * @return the change event bus
+	 */
+	ChangeEventBus getChangeEventBus();
+
+	/**
+	 * Gets the select result cache of this database.
+	 * 
+	 * @return the query cache or null if query result caching is disabled
+	 */
+	QueryCache getQueryCache();
+
+	/**
+	 * Begins a unit of work on the current thread.
+	 * 
+	 * @return the unit of work
+	 * @throws SQLException
+	 * @see UnitOfWork
+	 */
+	UnitOfWork beginUnitOfWork() throws SQLException;
+
+	/**
+	 * The default number of pages to copy per online backup step.
+	 */
+	public static final int DEFAULT_BACKUP_PAGES_PER_STEP = 100;
+
+	/**
+	 * Synonym for
+	 * {@code backupTo(destination, DEFAULT_BACKUP_PAGES_PER_STEP, listener)}.
+	 * 
+	 * @see #backupTo(File, int, ProgressListener)
+	 */
+	default CompletableFuture<File> backupTo(File destination, ProgressListener listener) {
+		return backupTo(destination, DEFAULT_BACKUP_PAGES_PER_STEP, listener);
+	}
+
+	/**
+	 * Creates an online backup of the live database on a background thread.
+	 * <p>
+	 * The backup uses its own connection and copies the database step by step so
+	 * that writers can continue between the steps.
+	 * 
+	 * @param destination  the backup file
+	 * @param pagesPerStep the number of pages to copy per step
+	 * @param listener     the progress listener or null
+	 * 
+	 * @return the future completing with the destination file
+	 */
+	CompletableFuture<File> backupTo(File destination, int pagesPerStep, ProgressListener listener);
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A BLOB value that is read and written as a stream.
+ * <p>
+ * Fields of this type are not read with their record. A loaded record holds a
+ * stored handle that only knows the length of the content and reads it from
+ * the database when a stream is opened. New content is created from a byte
+ * array, a file or a stream source and written through
+ * {@code PreparedStatement.setBinaryStream}.
+ * <p>
+ * Stored handles are equal if they refer to the same column of the same
+ * record, so an unchanged handle is not written again on update.
+ * <p>
+ * Inline content is read by the driver in one piece when a stream is opened,
+ * content of fields annotated {@code @Chunked} is read and written chunk by
+ * chunk. Large object fields require an entity with a single primary key.
+ *
+ * @author epimethix
+ *
+ */
+public final class LargeObject {
+
+	/**
+	 * Opens a new stream of the content, each call must start over.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		InputStream open() throws IOException;
+	}
+
+	private final Source source;
+	private final long length;
+	private final Object key;
+
+	private LargeObject(Source source, long length, Object key) {
+		if (length < 0) {
+			throw new IllegalArgumentException("length must not be negative");
+		}
+		this.source = Objects.requireNonNull(source);
+		this.length = length;
+		this.key = key;
+	}
+
+	/**
+	 * Creates content from a byte array, the array is copied.
+	 *
+	 * @param content the content
+	 * @return the new large object
+	 */
+	public static LargeObject of(byte[] content) {
+		byte[] copy = content.clone();
+		return new LargeObject(() -> new ByteArrayInputStream(copy), copy.length, null);
+	}
+
+	/**
+	 * Creates content read from a file when it is written.
+	 *
+	 * @param file the file
+	 * @return the new large object
+	 * @throws IOException if the file size cannot be read
+	 */
+	public static LargeObject of(Path file) throws IOException {
+		return new LargeObject(() -> Files.newInputStream(file), Files.size(file), null);
+	}
+
+	/**
+	 * Creates content from a stream source.
+	 *
+	 * @param source the source opening a new stream of exactly length bytes
+	 * @param length the content length in bytes
+	 * @return the new large object
+	 */
+	public static LargeObject of(Source source, long length) {
+		return new LargeObject(source, length, null);
+	}
+
+	/**
+	 * Creates a handle of stored content, used by repositories when loading
+	 * records.
+	 *
+	 * @param key    the identity of the stored column, for example table, column
+	 *               and id
+	 * @param source the source reading the stored content
+	 * @param length the stored content length in bytes
+	 * @return the stored handle
+	 */
+	public static LargeObject stored(Object key, Source source, long length) {
+		return new LargeObject(source, length, Objects.requireNonNull(key));
+	}
+
+	/**
+	 * Opens a new stream of the content, the caller must close it.
+	 *
+	 * @return the content stream
+	 * @throws IOException
+	 */
+	public InputStream openStream() throws IOException {
+		return source.open();
+	}
+
+	/**
+	 * Opens a new channel of the content, the caller must close it.
+	 *
+	 * @return the content channel
+	 * @throws IOException
+	 */
+	public ReadableByteChannel openChannel() throws IOException {
+		return Channels.newChannel(source.open());
+	}
+
+	/**
+	 * Reads the whole content into memory.
+	 *
+	 * @return the content
+	 * @throws IOException if reading fails or the content is too large for an
+	 *                     array
+	 */
+	public byte[] readAllBytes() throws IOException {
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IOException(String.format("%d bytes do not fit into an array", length));
+		}
+		try (InputStream in = source.open()) {
+			return in.readAllBytes();
+		}
+	}
+
+	/**
+	 * @return the content length in bytes
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * @return true if this is a handle of content loaded from the database
+	 */
+	public boolean isStored() {
+		return Objects.nonNull(key);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.isNull(key) ? System.identityHashCode(this) : key.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof LargeObject) {
+			LargeObject other = (LargeObject) obj;
+			return Objects.nonNull(key) && key.equals(other.key) && length == other.length;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LargeObject [length=%d, stored=%b]", length, isStored());
+	}
+}
@@ -70,6 +70,16 @@ public interface ManyToManyRepository<E extends ManyToManyEntity<A, B>, A extend
 
 	E saveDirect(Entity<?> o) throws SQLException;
 
+	/**
+	 * Saves the given link entities. New links are inserted using one batched
+	 * statement within a single transaction.
+	 * 
+	 * @param os the link entities to save
+	 * 
+	 * @throws SQLException
+	 */
+	void saveDirect(List<? extends Entity<?>> os) throws SQLException;
+
 	Class<?> getClassA();
 
 	Class<?> getTypeA();
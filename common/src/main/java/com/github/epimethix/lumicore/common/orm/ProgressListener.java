@@ -0,0 +1,34 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+/**
+ * Receives the progress of long running database operations like online
+ * backups.
+ * 
+ * @author epimethix
+ *
+ */
+@FunctionalInterface
+public interface ProgressListener {
+	/**
+	 * Called after each step.
+	 * 
+	 * @param remaining the number of units (for example pages) still to process
+	 * @param total     the total number of units
+	 */
+	void progress(int remaining, int total);
+}
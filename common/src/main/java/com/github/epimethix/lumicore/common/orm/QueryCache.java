@@ -0,0 +1,249 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bounded LRU cache of select results.
+ * <p>
+ * Entries are keyed by the query (typically the query string and the criterium
+ * values) and carry the names of the tables the query reads. A write to one of
+ * these tables invalidates the entry. Results are shared by all callers so they
+ * must not be mutable, repositories cache the row values and initialize fresh
+ * entities on every hit. The weight of an entry is supplied by the
+ * caller (for example the number of result cells), the least recently used
+ * entries are evicted once the total weight exceeds the maximum weight.
+ * <p>
+ * Results computed while an invalidation happened are not stored, see
+ * {@link #generation()}.
+ *
+ * @author epimethix
+ *
+ */
+public final class QueryCache {
+
+	/**
+	 * A snapshot of the cache statistics.
+	 */
+	public static final class Statistics {
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final long invalidations;
+		private final int entries;
+		private final long weight;
+
+		private Statistics(long hits, long misses, long evictions, long invalidations, int entries, long weight) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.invalidations = invalidations;
+			this.entries = entries;
+			this.weight = weight;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * @return the number of entries evicted to stay below the maximum weight
+		 */
+		public long getEvictions() {
+			return evictions;
+		}
+
+		/**
+		 * @return the number of entries removed because of writes
+		 */
+		public long getInvalidations() {
+			return invalidations;
+		}
+
+		public int getEntries() {
+			return entries;
+		}
+
+		public long getWeight() {
+			return weight;
+		}
+
+		public double getHitRate() {
+			long requests = hits + misses;
+			return requests == 0 ? 0.0 : (double) hits / requests;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"QueryCache [hits=%d, misses=%d, hitRate=%.2f, evictions=%d, invalidations=%d, entries=%d, weight=%d]",
+					hits, misses, getHitRate(), evictions, invalidations, entries, weight);
+		}
+	}
+
+	private static final class Entry {
+		private final Object result;
+		private final Set<String> tables;
+		private final long weight;
+
+		private Entry(Object result, Set<String> tables, long weight) {
+			this.result = result;
+			this.tables = tables;
+			this.weight = weight;
+		}
+	}
+
+	private final long maxWeight;
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight;
+	private long generation;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * @param maxWeight the maximum total weight of the cached results
+	 */
+	public QueryCache(long maxWeight) {
+		if (maxWeight < 1) {
+			throw new IllegalArgumentException("maxWeight must be positive");
+		}
+		this.maxWeight = maxWeight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Gets the invalidation generation. Capture it before running a query and
+	 * pass it to {@link #put(Object, Object, Set, long, long)}.
+	 *
+	 * @return the current generation
+	 */
+	public synchronized long generation() {
+		return generation;
+	}
+
+	/**
+	 * Gets a cached result.
+	 *
+	 * @param key the query key
+	 * @return the cached result or null if there is no entry
+	 */
+	public synchronized <T> T get(Object key) {
+		Entry e = entries.get(key);
+		if (Objects.isNull(e)) {
+			misses++;
+			return null;
+		}
+		hits++;
+		@SuppressWarnings("unchecked")
+		T result = (T) e.result;
+		return result;
+	}
+
+	/**
+	 * Stores a result unless an invalidation happened since the specified
+	 * generation or the result alone exceeds the maximum weight.
+	 *
+	 * @param key        the query key
+	 * @param result     the immutable query result
+	 * @param tables     the names of the tables the query reads
+	 * @param weight     the weight of the result
+	 * @param generation the generation captured before the query was run
+	 */
+	public synchronized void put(Object key, Object result, Set<String> tables, long weight, long generation) {
+		if (generation != this.generation || weight > maxWeight) {
+			return;
+		}
+		Entry previous = entries.put(key, new Entry(result,
+				Collections.unmodifiableSet(new HashSet<>(tables)), weight));
+		if (Objects.nonNull(previous)) {
+			this.weight -= previous.weight;
+		}
+		this.weight += weight;
+		Iterator<Entry> i = entries.values().iterator();
+		while (this.weight > maxWeight && i.hasNext()) {
+			Entry eldest = i.next();
+			i.remove();
+			this.weight -= eldest.weight;
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes all entries reading the specified table.
+	 *
+	 * @param table the name of the written table
+	 */
+	public synchronized void invalidate(String table) {
+		invalidate(Collections.singleton(table));
+	}
+
+	/**
+	 * Removes all entries reading one of the specified tables.
+	 *
+	 * @param tables the names of the written tables
+	 */
+	public synchronized void invalidate(Collection<String> tables) {
+		generation++;
+		Iterator<Map.Entry<Object, Entry>> i = entries.entrySet().iterator();
+		while (i.hasNext()) {
+			Entry e = i.next().getValue();
+			if (!Collections.disjoint(e.tables, tables)) {
+				i.remove();
+				weight -= e.weight;
+				invalidations++;
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries, used after writes the affected tables of which are
+	 * unknown.
+	 */
+	public synchronized void clear() {
+		generation++;
+		invalidations += entries.size();
+		entries.clear();
+		weight = 0L;
+	}
+
+	public synchronized Statistics getStatistics() {
+		return new Statistics(hits, misses, evictions, invalidations, entries.size(), weight);
+	}
+
+	public synchronized void resetStatistics() {
+		hits = 0L;
+		misses = 0L;
+		evictions = 0L;
+		invalidations = 0L;
+	}
+}
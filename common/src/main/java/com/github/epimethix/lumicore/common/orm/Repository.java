@@ -15,7 +15,9 @@
  */
 package com.github.epimethix.lumicore.common.orm;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -25,6 +27,9 @@ import java.util.function.Function;
 import com.github.epimethix.lumicore.common.orm.model.Entity;
 import com.github.epimethix.lumicore.common.orm.model.Log;
 import com.github.epimethix.lumicore.common.orm.model.TreeEntity;
+import com.github.epimethix.lumicore.common.orm.query.AggregateBuilder;
+import com.github.epimethix.lumicore.common.orm.query.AggregateRow;
+import com.github.epimethix.lumicore.common.orm.query.Query.CreateQuery;
 import com.github.epimethix.lumicore.common.orm.query.Query.CriteriaBuilder;
 import com.github.epimethix.lumicore.common.orm.query.Query.DeleteBuilder;
 import com.github.epimethix.lumicore.common.orm.query.Query.DeleteQuery;
@@ -130,6 +135,13 @@ public interface Repository<E extends Entity<ID>, ID> {
 	@Deprecated
 	String getCreateStatement();
 
+	/**
+	 * Gets the entities create table query
+	 * 
+	 * @return the entities create table query
+	 */
+	CreateQuery getCreateQuery();
+
 	/**
 	 * the {@link Repository#postCreateAction()} method is called after the entities
 	 * table is initially deployed.
@@ -308,8 +320,41 @@ public interface Repository<E extends Entity<ID>, ID> {
 
 	List<E> selectAll(List<ID> ids) throws SQLException;
 
+	/**
+	 * Selects the records with the specified ids.
+	 * <p>
+	 * Short id lists are selected using one IN (...) criterium, medium lists in
+	 * chunks and large lists are joined through a temporary table.
+	 * 
+	 * @param ids        the ids to select
+	 * @param inputOrder true to return the records in the order of ids
+	 * @return the found records
+	 * @throws SQLException
+	 */
+	List<E> selectAll(List<ID> ids, boolean inputOrder) throws SQLException;
+
 	List<E> selectByFK(String foreignKeyField, Object one) throws SQLException;
 
+	/**
+	 * Gets a builder of the default select that loads the specified fields
+	 * annotated &#64;LazyLoad eagerly.
+	 * 
+	 * @param eagerFields the lazy fields to load
+	 * @return the select builder
+	 */
+	SelectBuilder getDefaultSelectBuilder(String... eagerFields);
+
+	/**
+	 * Fetches the fields annotated &#64;LazyLoad of the specified record. The
+	 * lazy fields of all records that were selected together with it and are not
+	 * fetched yet are fetched in the same query, lazy fields that were changed
+	 * since the record was loaded are kept.
+	 * 
+	 * @param e the loaded record
+	 * @throws SQLException
+	 */
+	void fetchLazy(E e) throws SQLException;
+
 	/*
 	 * U
 	 */
@@ -338,6 +383,17 @@ public interface Repository<E extends Entity<ID>, ID> {
 
 	long count(String field) throws SQLException;
 
+	/**
+	 * Gets a fast row count for pagers. Tables with &#64;Table(countRows = true)
+	 * answer exactly from the maintained counter, otherwise the estimate of the
+	 * last ANALYZE is used. Falls back to {@link #count()} if neither is
+	 * available. Like {@link #count()} soft deleted rows are included.
+	 * 
+	 * @return the exact or approximate number of rows
+	 * @throws SQLException
+	 */
+	long estimateCount() throws SQLException;
+
 	long countDistinct(String field) throws SQLException;
 
 	long min(String field) throws SQLException;
@@ -350,6 +406,32 @@ public interface Repository<E extends Entity<ID>, ID> {
 
 	double average(String field) throws SQLException;
 
+	/**
+	 * Computes any combination of aggregates in one statement.
+	 * <p>
+	 * Example: {@code aggregate(a -> a.count(Entity.ID).sum("amount").max("date"))}
+	 * 
+	 * @param b the aggregate definition
+	 * @return one row per group or a single row if not grouped
+	 * @throws SQLException
+	 */
+	List<AggregateRow> aggregate(Function<AggregateBuilder, AggregateBuilder> b) throws SQLException;
+
+	/**
+	 * Computes ungrouped aggregates in one statement.
+	 * 
+	 * @param b the aggregate definition
+	 * @return the single result row
+	 * @throws SQLException
+	 */
+	default AggregateRow aggregateOne(Function<AggregateBuilder, AggregateBuilder> b) throws SQLException {
+		List<AggregateRow> rows = aggregate(b);
+		if (rows.size() != 1) {
+			throw new SQLException(String.format("expected one aggregate row but got %d", rows.size()));
+		}
+		return rows.get(0);
+	}
+
 	/*
 	 * * * OLD CRUD
 	 */
@@ -405,6 +487,51 @@ public interface Repository<E extends Entity<ID>, ID> {
 //	@Deprecated
 	Optional<E> deleteById(ID id) throws SQLException;
 
+	/*
+	 * * * Bulk Export / Import
+	 */
+
+	/**
+	 * Synonym for {@code exportTo(path, true)}.
+	 * 
+	 * @see #exportTo(Path, boolean)
+	 */
+	default long exportTo(Path path) throws SQLException, IOException {
+		return exportTo(path, true);
+	}
+
+	/**
+	 * Exports all rows of this repositories table to a chunked columnar binary
+	 * file.
+	 * <p>
+	 * The raw column values are exported, no transforms are applied and soft
+	 * deleted rows are included.
+	 * 
+	 * @param path     the file to write
+	 * @param compress true to deflate the chunks
+	 * 
+	 * @return the number of exported rows
+	 * 
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	long exportTo(Path path, boolean compress) throws SQLException, IOException;
+
+	/**
+	 * Imports the rows of a file written by {@link #exportTo(Path, boolean)}
+	 * using batched inserts within one transaction.
+	 * <p>
+	 * The columns of the file must match the columns of this repositories table.
+	 * 
+	 * @param path the file to read
+	 * 
+	 * @return the number of imported rows
+	 * 
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	long importFrom(Path path) throws SQLException, IOException;
+
 	/*
 	 * * * Raw Query
 	 */
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.epimethix.lumicore.properties.LumicoreProperties;
+
+/**
+ * Generator of time ordered 64 bit ids (Snowflake layout).
+ * <p>
+ * An id consists of 41 bits milliseconds since {@link #EPOCH}, a 10 bit node
+ * id and a 12 bit sequence number. Instances sharing a database must use
+ * distinct node ids (see {@link LumicoreProperties#ORM_NODE_ID}) so their ids
+ * never collide. Up to 4096 ids are generated per millisecond and node, beyond
+ * that the ids borrow from the following millisecond.
+ * <p>
+ * Generation is lock-free, the state is advanced by compare and set.
+ *
+ * @author epimethix
+ *
+ */
+public final class Snowflake {
+	/**
+	 * 2023-01-01T00:00:00Z, the ids last until 2092
+	 */
+	public static final long EPOCH = 1672531200000L;
+
+	public static final int NODE_BITS = 10;
+	public static final int SEQUENCE_BITS = 12;
+	public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+	private static final class DefaultHolder {
+		private static final Snowflake DEFAULT = new Snowflake(LumicoreProperties.ORM_NODE_ID);
+	}
+
+	/**
+	 * Gets the generator of the node configured by
+	 * {@link LumicoreProperties#ORM_NODE_ID}.
+	 * 
+	 * @return the shared default generator
+	 */
+	public static Snowflake getDefault() {
+		return DefaultHolder.DEFAULT;
+	}
+
+	private final long node;
+	/**
+	 * (ms since epoch << 12) | sequence of the last generated id
+	 */
+	private final AtomicLong state = new AtomicLong();
+
+	/**
+	 * @param nodeId the node id between 0 and {@value #MAX_NODE_ID}
+	 */
+	public Snowflake(int nodeId) {
+		if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+			throw new IllegalArgumentException(
+					String.format("The node id must be between 0 and %d: %d", MAX_NODE_ID, nodeId));
+		}
+		this.node = (long) nodeId << SEQUENCE_BITS;
+	}
+
+	/**
+	 * Generates the next id.
+	 * 
+	 * @return a new id, greater than all ids generated before by this instance
+	 */
+	public long nextId() {
+		while (true) {
+			long previous = state.get();
+			long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+			/*
+			 * if the clock did not advance (or went back) the sequence is incremented, an
+			 * overflow carries into the timestamp
+			 */
+			long next = now > previous ? now : previous + 1;
+			if (state.compareAndSet(previous, next)) {
+				return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node
+						| (next & ((1L << SEQUENCE_BITS) - 1));
+			}
+		}
+	}
+
+	public int getNodeId() {
+		return (int) (node >>> SEQUENCE_BITS);
+	}
+
+	/**
+	 * @param id an id generated by a Snowflake
+	 * @return the unix time in milliseconds of its generation
+	 */
+	public static long timestampOf(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+	}
+
+	/**
+	 * @param id an id generated by a Snowflake
+	 * @return the node id of its generator
+	 */
+	public static int nodeOf(long id) {
+		return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time ordered UUIDs (version 7, RFC 9562).
+ * <p>
+ * The 48 most significant bits hold the unix time in milliseconds followed by
+ * a 12 bit counter (in place of {@code rand_a}) that keeps the UUIDs generated
+ * within the same millisecond monotonic, the remaining 62 bits are random. New
+ * keys are therefore appended to the end of a B-tree index instead of landing
+ * at random positions. The string form sorts like the binary form.
+ * <p>
+ * Generation is lock-free, the state is advanced by compare and set.
+ *
+ * @author epimethix
+ *
+ */
+public final class UUIDv7 {
+
+	/**
+	 * (unix time ms << 12) | counter of the last generated UUID
+	 */
+	private static final AtomicLong STATE = new AtomicLong();
+
+	/**
+	 * Generates the next time ordered UUID.
+	 * 
+	 * @return a new UUID version 7
+	 */
+	public static UUID next() {
+		long state = nextState();
+		long msb = (state >>> 12) << 16 | 0x7000L | (state & 0xFFFL);
+		long lsb = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+		return new UUID(msb, lsb);
+	}
+
+	/**
+	 * @return the next UUID in its canonical string form
+	 */
+	public static String nextString() {
+		return next().toString();
+	}
+
+	/**
+	 * @return the next UUID in its 16 byte big endian form, suitable for BLOB
+	 *         columns
+	 */
+	public static byte[] nextBytes() {
+		return toBytes(next());
+	}
+
+	/**
+	 * Converts a UUID to its 16 byte big endian form.
+	 * 
+	 * @param uuid the UUID
+	 * @return the bytes
+	 */
+	public static byte[] toBytes(UUID uuid) {
+		byte[] bytes = new byte[16];
+		long msb = uuid.getMostSignificantBits();
+		long lsb = uuid.getLeastSignificantBits();
+		for (int i = 0; i < 8; i++) {
+			bytes[i] = (byte) (msb >>> (56 - 8 * i));
+			bytes[8 + i] = (byte) (lsb >>> (56 - 8 * i));
+		}
+		return bytes;
+	}
+
+	/**
+	 * Converts the 16 byte big endian form back to a UUID.
+	 * 
+	 * @param bytes the bytes
+	 * @return the UUID
+	 */
+	public static UUID fromBytes(byte[] bytes) {
+		if (bytes.length != 16) {
+			throw new IllegalArgumentException("a UUID has 16 bytes");
+		}
+		long msb = 0L;
+		long lsb = 0L;
+		for (int i = 0; i < 8; i++) {
+			msb = msb << 8 | (bytes[i] & 0xFF);
+			lsb = lsb << 8 | (bytes[8 + i] & 0xFF);
+		}
+		return new UUID(msb, lsb);
+	}
+
+	/**
+	 * Gets the creation time of a version 7 UUID.
+	 * 
+	 * @param uuid the UUID
+	 * @return the unix time in milliseconds
+	 */
+	public static long timestampOf(UUID uuid) {
+		if (uuid.version() != 7) {
+			throw new IllegalArgumentException("not a version 7 UUID: " + uuid);
+		}
+		return uuid.getMostSignificantBits() >>> 16;
+	}
+
+	private static long nextState() {
+		while (true) {
+			long previous = STATE.get();
+			long now = System.currentTimeMillis() << 12;
+			/*
+			 * if the clock did not advance (or went back) the counter is incremented, an
+			 * overflow carries into the timestamp
+			 */
+			long next = now > previous ? now : previous + 1;
+			if (STATE.compareAndSet(previous, next)) {
+				return next;
+			}
+		}
+	}
+
+	private UUIDv7() {}
+}
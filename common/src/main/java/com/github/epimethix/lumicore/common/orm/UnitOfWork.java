@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+import com.github.epimethix.lumicore.common.orm.model.Entity;
+
+/**
+ * A business operation spanning one transaction.
+ * <p>
+ * While the unit of work is open on the current thread every record loaded
+ * from its database (by id, by eager joins or by lazy proxies) is
+ * materialized as one instance per id. Saved and deleted entities are
+ * collected and written on {@link #flush()} or {@link #commit()}: inserts and
+ * updates in foreign key dependency order, deletes in reverse order, using
+ * batched statements where possible. Loaded entities that were modified are
+ * written even if they were not passed to {@link #save(Entity)}.
+ * <p>
+ * Closing a unit of work that was not committed rolls it back.
+ * <p>
+ * The transaction is opened on the shared connection of the database, so
+ * writes of other threads while the unit of work is open become part of it and
+ * are committed or rolled back with it. Confine writes to the thread owning the
+ * unit of work until it is closed.
+ * 
+ * <pre>
+ * try (UnitOfWork uow = db.beginUnitOfWork()) {
+ * 	Person p = uow.find(Person.class, 1L).get();
+ * 	p.setName("x");
+ * 	uow.save(new Address(p));
+ * 	uow.commit();
+ * }
+ * </pre>
+ * 
+ * @author epimethix
+ *
+ */
+public interface UnitOfWork extends AutoCloseable {
+
+	/**
+	 * Gets an entity from the identity map or loads it.
+	 * 
+	 * @param entityClass the entity class
+	 * @param id          the id
+	 * @return the entity or empty if it does not exist or was deleted in this
+	 *         unit of work
+	 * @throws SQLException
+	 */
+	<E extends Entity<ID>, ID> Optional<E> find(Class<E> entityClass, ID id) throws SQLException;
+
+	/**
+	 * Schedules a new or modified entity to be written on flush.
+	 * 
+	 * @param entity the entity
+	 * @return the entity
+	 */
+	<E extends Entity<?>> E save(E entity);
+
+	/**
+	 * Schedules an entity to be deleted on flush.
+	 * 
+	 * @param entity the entity
+	 */
+	void delete(Entity<?> entity);
+
+	/**
+	 * Writes the pending changes without committing the transaction.
+	 * 
+	 * @throws SQLException
+	 */
+	void flush() throws SQLException;
+
+	/**
+	 * Flushes the pending changes and commits the transaction.
+	 * 
+	 * @throws SQLException
+	 */
+	void commit() throws SQLException;
+
+	/**
+	 * Rolls back the transaction and discards the identity map.
+	 * 
+	 * @throws SQLException
+	 */
+	void rollback() throws SQLException;
+
+	/**
+	 * Rolls back if the unit of work was not committed and ends it.
+	 */
+	@Override
+	void close() throws SQLException;
+}
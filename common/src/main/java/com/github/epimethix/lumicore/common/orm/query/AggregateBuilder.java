@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm.query;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.github.epimethix.lumicore.common.orm.query.Query.CriteriaBuilder;
+import com.github.epimethix.lumicore.common.orm.query.Query.SelectBuilder;
+import com.github.epimethix.lumicore.common.orm.query.Query.SelectQuery;
+
+/**
+ * Builds one statement computing any combination of aggregates of a
+ * repositories table, optionally grouped by fields.
+ * <p>
+ * Every aggregate is labeled "function_field" (for example "sum_amount" or
+ * "count_distinct_category") unless a label is given. Group fields are labeled
+ * with their field name.
+ * 
+ * @author epimethix
+ *
+ */
+public interface AggregateBuilder {
+
+	default AggregateBuilder count(String field) {
+		return count(field, "count_" + field);
+	}
+
+	AggregateBuilder count(String field, String label);
+
+	default AggregateBuilder countDistinct(String field) {
+		return countDistinct(field, "count_distinct_" + field);
+	}
+
+	AggregateBuilder countDistinct(String field, String label);
+
+	default AggregateBuilder min(String field) {
+		return min(field, "min_" + field);
+	}
+
+	AggregateBuilder min(String field, String label);
+
+	default AggregateBuilder max(String field) {
+		return max(field, "max_" + field);
+	}
+
+	AggregateBuilder max(String field, String label);
+
+	default AggregateBuilder sum(String field) {
+		return sum(field, "sum_" + field);
+	}
+
+	AggregateBuilder sum(String field, String label);
+
+	default AggregateBuilder average(String field) {
+		return average(field, "avg_" + field);
+	}
+
+	AggregateBuilder average(String field, String label);
+
+	/**
+	 * Groups the aggregates by the specified fields, the fields are part of the
+	 * result rows.
+	 * 
+	 * @param field  the first group field
+	 * @param fields further group fields
+	 * @return this AggregateBuilder
+	 */
+	AggregateBuilder groupBy(String field, String... fields);
+
+	/**
+	 * Restricts the aggregated records.
+	 * 
+	 * @param criteria the criteria definition
+	 * @return this AggregateBuilder
+	 */
+	AggregateBuilder where(Consumer<CriteriaBuilder<SelectBuilder, SelectQuery>> criteria);
+
+	/**
+	 * @return the labels of the result columns in select order
+	 */
+	List<String> getLabels();
+
+	SelectQuery build();
+}
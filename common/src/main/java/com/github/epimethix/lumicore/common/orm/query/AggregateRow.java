@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One result row of an aggregate query.
+ * 
+ * @author epimethix
+ *
+ * @see AggregateBuilder
+ */
+public final class AggregateRow {
+
+	private final Map<String, Object> values;
+
+	public AggregateRow(List<String> labels, Object[] values) {
+		Map<String, Object> m = new LinkedHashMap<>();
+		for (int i = 0; i < labels.size(); i++) {
+			m.put(labels.get(i), values[i]);
+		}
+		this.values = Collections.unmodifiableMap(m);
+	}
+
+	/**
+	 * @param label the aggregate or group field label
+	 * @return the raw value or null
+	 * @throws IllegalArgumentException if the label is unknown
+	 */
+	public Object get(String label) {
+		if (!values.containsKey(label)) {
+			throw new IllegalArgumentException(String.format("unknown aggregate label '%s'", label));
+		}
+		return values.get(label);
+	}
+
+	/**
+	 * @param label the aggregate label
+	 * @return the value as long, 0 if null
+	 */
+	public long getLong(String label) {
+		Object o = get(label);
+		return Objects.isNull(o) ? 0L : ((Number) o).longValue();
+	}
+
+	/**
+	 * @param label the aggregate label
+	 * @return the value as double, 0 if null
+	 */
+	public double getDouble(String label) {
+		Object o = get(label);
+		return Objects.isNull(o) ? 0d : ((Number) o).doubleValue();
+	}
+
+	public String getString(String label) {
+		Object o = get(label);
+		return Objects.isNull(o) ? null : o.toString();
+	}
+
+	/**
+	 * @return all values by label in select order
+	 */
+	public Map<String, Object> asMap() {
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
@@ -19,7 +19,7 @@ import java.util.List;
 
 public interface Criterium {
 	public enum Type {
-		EQUALS, MATCHES, GREATER_THAN, GREATER_THAN_EQUALS, LESS_THAN, LESS_THAN_EQUALS, BETWEEN, IN,
+		EQUALS, MATCHES, GREATER_THAN, GREATER_THAN_EQUALS, LESS_THAN, LESS_THAN_EQUALS, BETWEEN, IN, IN_TABLE, FULL_TEXT,
 		
 		AND, OR, NOT, OPEN_BRACKET, CLOSE_BRACKET, 
 		
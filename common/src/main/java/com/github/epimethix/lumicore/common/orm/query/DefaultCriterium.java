@@ -28,6 +28,11 @@ public class DefaultCriterium implements Criterium {
 	private final String field;
 	private final List<Object> values;
 	private char escape;
+	/**
+	 * the column reference for {@link Type#IN_TABLE} or the compiled
+	 * {@link Type#FULL_TEXT} criterium
+	 */
+	private final String source;
 
 	public DefaultCriterium(Type type) {
 		this(type, null, null, Collections.emptyList());
@@ -55,6 +60,46 @@ public class DefaultCriterium implements Criterium {
 		this.field = field;
 		this.values = values;
 		this.escape = escape;
+		this.source = null;
+	}
+
+	private DefaultCriterium(Type type, String tableAlias, String field, List<Object> values, String source) {
+		this.type = type;
+		this.tableAlias = tableAlias;
+		this.field = field;
+		this.values = values;
+		this.source = source;
+	}
+
+	/**
+	 * Creates an {@link Type#IN_TABLE} criterium.
+	 * 
+	 * @param tableAlias the alias of the table the field belongs to
+	 * @param field      the field to test
+	 * @param schemaName the schema of the table that holds the values
+	 * @param tableName  the table that holds the values
+	 * @param column     the column that holds the values
+	 * @return the criterium "field IN (SELECT column FROM schema.table)"
+	 */
+	public static DefaultCriterium inTable(String tableAlias, String field, String schemaName, String tableName,
+			String column) {
+		return new DefaultCriterium(Type.IN_TABLE, tableAlias, field, Collections.emptyList(),
+				String.format("SELECT `%s` FROM `%s`.`%s`", column, schemaName, tableName));
+	}
+
+	/**
+	 * Creates a {@link Type#FULL_TEXT} criterium.
+	 * 
+	 * @param tableAlias the alias of the table the field belongs to
+	 * @param field      the searched field
+	 * @param criterium  the compiled criterium with one placeholder for the
+	 *                   match expression
+	 * @param match      the full-text match expression
+	 * @return the full-text criterium
+	 */
+	public static DefaultCriterium fullText(String tableAlias, String field, String criterium, String match) {
+		return new DefaultCriterium(Type.FULL_TEXT, tableAlias, field, new ArrayList<>(Arrays.asList(match)),
+				criterium);
 	}
 
 	@Override
@@ -117,6 +162,10 @@ public class DefaultCriterium implements Criterium {
 				return String.format("%s.`%s` IN (?%s)", tableAlias, field, ", ?".repeat(values.size() - 1));
 			else if (values.size() == 1)
 				return String.format("%s.`%s` IN (?)", tableAlias, field);
+		case IN_TABLE:
+			return String.format("%s.`%s` IN (%s) ", tableAlias, field, source);
+		case FULL_TEXT:
+			return source;
 		default:
 			System.err.printf("getting criterium for %s of type %s with values %s failed%n", field, type.name(),
 					Objects.nonNull(values) ? values.toString() : "null");
@@ -126,7 +175,7 @@ public class DefaultCriterium implements Criterium {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(field, type, values);
+		return Objects.hash(field, type, values, source);
 	}
 
 	@Override
@@ -138,6 +187,7 @@ public class DefaultCriterium implements Criterium {
 		if (getClass() != obj.getClass())
 			return false;
 		DefaultCriterium other = (DefaultCriterium) obj;
-		return Objects.equals(field, other.field) && type == other.type && Objects.equals(values, other.values);
+		return Objects.equals(field, other.field) && type == other.type && Objects.equals(values, other.values)
+				&& Objects.equals(source, other.source);
 	}
 }
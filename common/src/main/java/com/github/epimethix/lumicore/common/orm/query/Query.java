@@ -178,6 +178,14 @@ public interface Query<Q extends Query<Q>> {
 		SelectQuery withCriteriumValues(Object... values);
 
 		SelectQuery atPage(long page);
+
+		/**
+		 * Tests if the result of this query may be served from and stored in the
+		 * query result cache.
+		 * 
+		 * @return false if {@link SelectBuilder#noCache()} was called
+		 */
+		boolean isCacheable();
 	}
 
 	/**
@@ -203,6 +211,14 @@ public interface Query<Q extends Query<Q>> {
 
 		SelectBuilder distinct();
 
+		/**
+		 * Bypasses the query result cache for this query, for example when the
+		 * selected records are going to be modified.
+		 * 
+		 * @return this builder
+		 */
+		SelectBuilder noCache();
+
 		/**
 		 * Synonym for {@link #select(String, Class, String...)} with "main" as schema
 		 * name
@@ -215,6 +231,16 @@ public interface Query<Q extends Query<Q>> {
 
 		SelectBuilder select(String alias, String... fields);
 
+		/**
+		 * Selects the length in bytes of a BLOB column instead of its content.
+		 */
+		SelectBuilder selectLength(String schemaName, Class<? extends Entity<?>> e, String field);
+
+		/**
+		 * Selects NULL in place of a column that is not loaded.
+		 */
+		SelectBuilder selectNull();
+
 		JoinBuilder join(String localSchemaName, Class<? extends Entity<?>> localTable, String otherSchemaName,
 				Class<? extends Entity<?>> otherTable, String[] generatedAlias, JoinOperator... joinOperators);
 
@@ -268,6 +294,12 @@ public interface Query<Q extends Query<Q>> {
 
 		SelectBuilder selectCount(String schemaName, Class<? extends Entity<?>> e, String field);
 
+		default SelectBuilder selectCountDistinct(Repository<?, ?> r, String field) {
+			return selectCountDistinct(r.getSchemaName(), r.getEntityClass(), field);
+		}
+
+		SelectBuilder selectCountDistinct(String schemaName, Class<? extends Entity<?>> e, String field);
+
 		default SelectBuilder selectSum(Repository<?, ?> r, String field) {
 			return selectSum(r.getSchemaName(), r.getEntityClass(), field);
 		}
@@ -388,6 +420,18 @@ public interface Query<Q extends Query<Q>> {
 
 		CriteriaBuilder<T, Q> in(String field, List<Object> values);
 
+		/**
+		 * Tests field against the values of a column of another table, for example
+		 * a temporary table holding a large list of ids.
+		 * 
+		 * @param field      the field to test
+		 * @param schemaName the schema of the table holding the values
+		 * @param tableName  the table holding the values
+		 * @param column     the column holding the values
+		 * @return this CriteriaBuilder
+		 */
+		CriteriaBuilder<T, Q> inTable(String field, String schemaName, String tableName, String column);
+
 		CriteriaBuilder<T, Q> between(String field, Number start, Number end);
 
 		CriteriaBuilder<T, Q> isNull(String field);
@@ -414,6 +458,19 @@ public interface Query<Q extends Query<Q>> {
 
 		CriteriaBuilder<T, Q> matches(String field, String value, char escape);
 
+		/**
+		 * Searches the full-text index of a field annotated with {@code @FullText}.
+		 * <p>
+		 * Select queries join the full-text index and are ordered by relevance
+		 * (bm25) unless another order is specified, other queries test the rowid
+		 * against the index.
+		 * 
+		 * @param field the full-text indexed field
+		 * @param query the FTS5 query, for example {@code "invoice AND march*"}
+		 * @return this CriteriaBuilder
+		 */
+		CriteriaBuilder<T, Q> fullText(String field, String query);
+
 		CriteriaBuilder<T, Q> lessThan(String field, Number value);
 
 		CriteriaBuilder<T, Q> lessThanEquals(String field, Number value);
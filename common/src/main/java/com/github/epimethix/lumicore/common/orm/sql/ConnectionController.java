@@ -31,8 +31,28 @@ public interface ConnectionController {
 
 	void close() throws SQLException;
 
+	/**
+	 * Releases all resources when the application exits.
+	 * 
+	 * @throws SQLException
+	 */
+	default void shutdown() throws SQLException {
+		close();
+	}
+
 	Connection getConnection() throws SQLException;
 
+	/**
+	 * Tests if a transaction is open on the current connection without opening a
+	 * connection.
+	 * 
+	 * @return true if a connection is open and not in auto-commit mode
+	 * @throws SQLException
+	 */
+	default boolean isTransactionOpen() throws SQLException {
+		return !getConnection().getAutoCommit();
+	}
+
 	String getPath();
 
 	void checkClose(boolean closeConnection) throws SQLException;
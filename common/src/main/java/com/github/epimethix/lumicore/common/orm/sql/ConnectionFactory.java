@@ -56,6 +56,17 @@ public class ConnectionFactory {
 		return DriverManager.getConnection(connectionURL, properties);
 	}
 
+	/**
+	 * Creates a connection to another url using the credentials of this factory.
+	 * 
+	 * @param connectionURL the url to connect to
+	 * @return the new connection
+	 * @throws SQLException
+	 */
+	public Connection createConnection(String connectionURL) throws SQLException {
+		return DriverManager.getConnection(connectionURL, properties);
+	}
+
 	public void testConnection() throws SQLException {
 		Connection c = createConnection();
 		if (Objects.isNull(c)) {
@@ -78,6 +89,16 @@ public class ConnectionFactory {
 		properties.put("password", password);
 	}
 
+	/**
+	 * Sets a connection property used by connections created hereafter.
+	 * 
+	 * @param key   the property name
+	 * @param value the property value
+	 */
+	public void setProperty(String key, String value) {
+		properties.put(key, value);
+	}
+
 	public void setUser(String user) {
 		if (Objects.nonNull(user)) {
 			properties.put("user", user);
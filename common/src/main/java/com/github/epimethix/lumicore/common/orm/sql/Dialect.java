@@ -15,11 +15,15 @@
  */
 package com.github.epimethix.lumicore.common.orm.sql;
 
+import java.io.File;
 import java.lang.reflect.Field;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.List;
+import java.util.Set;
 
 import com.github.epimethix.lumicore.common.ConfigurationException;
+import com.github.epimethix.lumicore.common.orm.ProgressListener;
 import com.github.epimethix.lumicore.common.orm.query.QueryBuilderFactory;
 import com.github.epimethix.lumicore.common.orm.sqlite.Definition;
 
@@ -48,4 +52,72 @@ public interface Dialect extends QueryBuilderFactory, TypeMap, ConnectionControl
 	 * Set the PRAGMA application id
 	 */
 	void setApplicationId(int applicationId);
+
+	/**
+	 * Copies the live database to the destination file using the online backup
+	 * facility of the database. This method blocks until the backup is done.
+	 * 
+	 * @param destination  the backup file
+	 * @param pagesPerStep the number of pages to copy per step
+	 * @param listener     the progress listener or null
+	 * @throws SQLException if the backup fails or is not supported by the dialect
+	 */
+	default void backupTo(File destination, int pagesPerStep, ProgressListener listener) throws SQLException {
+		throw new SQLFeatureNotSupportedException(
+				String.format("%s does not support online backups", getClass().getSimpleName()));
+	}
+
+	/**
+	 * Runs one bounded step of a maintenance job.
+	 * 
+	 * @param job   the maintenance job
+	 * @param pages the maximum number of pages to process, only used by
+	 *              {@link MaintenanceJob#INCREMENTAL_VACUUM}
+	 * @return the effect of the step (pages freed or checkpointed) or -1 if the
+	 *         effect is not measurable
+	 * @throws SQLException if the job fails or is not supported by the dialect
+	 */
+	default long runMaintenance(MaintenanceJob job, int pages) throws SQLException {
+		throw new SQLFeatureNotSupportedException(
+				String.format("%s does not support %s", getClass().getSimpleName(), job));
+	}
+
+	/**
+	 * Gets the row count of a table maintained by counting triggers.
+	 * 
+	 * @param tableName the table name
+	 * @return the row count or -1 if the rows of the table are not counted
+	 * @throws SQLException if the query fails or is not supported by the dialect
+	 */
+	default long getCountedRows(String tableName) throws SQLException {
+		throw new SQLFeatureNotSupportedException(
+				String.format("%s does not support row counters", getClass().getSimpleName()));
+	}
+
+	/**
+	 * Estimates the row count of a table from the statistics of the query planner
+	 * without scanning the table.
+	 * 
+	 * @param tableName the table name
+	 * @return the estimated row count or -1 if there are no statistics
+	 * @throws SQLException if the query fails or is not supported by the dialect
+	 */
+	default long estimateRowCount(String tableName) throws SQLException {
+		throw new SQLFeatureNotSupportedException(
+				String.format("%s does not support row count estimates", getClass().getSimpleName()));
+	}
+
+	/**
+	 * Gets the tables that writes to the specified table may change as a side
+	 * effect, for example through cascading foreign keys.
+	 * 
+	 * @param tableName the table name
+	 * @return the names of the dependent tables or null if they are unknown (for
+	 *         example because the table has triggers)
+	 * @throws SQLException if the query fails or is not supported by the dialect
+	 */
+	default Set<String> getDependentTables(String tableName) throws SQLException {
+		throw new SQLFeatureNotSupportedException(
+				String.format("%s does not support dependent tables", getClass().getSimpleName()));
+	}
 }
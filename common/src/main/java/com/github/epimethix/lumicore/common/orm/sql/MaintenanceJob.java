@@ -0,0 +1,42 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.common.orm.sql;
+
+/**
+ * Database maintenance jobs run by {@link Dialect#runMaintenance(MaintenanceJob, int)}.
+ * 
+ * @author epimethix
+ *
+ */
+public enum MaintenanceJob {
+	/**
+	 * Lets the database refresh the planner statistics it considers stale.
+	 */
+	OPTIMIZE,
+	/**
+	 * Recomputes all planner statistics.
+	 */
+	ANALYZE,
+	/**
+	 * Returns free pages to the file system in bounded chunks.
+	 */
+	INCREMENTAL_VACUUM,
+	/**
+	 * Copies the write ahead log into the database without blocking readers or
+	 * writers.
+	 */
+	WAL_CHECKPOINT
+}
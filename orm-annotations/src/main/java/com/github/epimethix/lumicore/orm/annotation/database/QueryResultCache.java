@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.annotation.database;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Cache the results of repository selects until a table they read is written.
+ * <p>
+ * The cache is keyed by the query string and the criterium values and bounded
+ * by {@link #maxWeight()}, the weight of a result is its number of cells (rows
+ * times columns). Cached records are shared between callers, so they must be
+ * treated as read-only; use {@code SelectBuilder.noCache()} for queries whose
+ * records are modified.
+ * <p>
+ * Apply to an implementation class of {@code AbstractDatabase}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryResultCache {
+	/**
+	 * Default value: {@value #MAX_WEIGHT_DEFAULT}
+	 */
+	public static final long MAX_WEIGHT_DEFAULT = 1_000_000L;
+
+	/**
+	 * The maximum number of cached result cells.
+	 * 
+	 * @return {@value #MAX_WEIGHT_DEFAULT} by default
+	 */
+	long maxWeight() default MAX_WEIGHT_DEFAULT;
+}
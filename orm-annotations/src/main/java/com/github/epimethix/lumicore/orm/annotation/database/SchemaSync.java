@@ -53,6 +53,14 @@ public @interface SchemaSync {
 	 * Default value: {@value #REDEFINE_ENTITY_DEFAULT}
 	 */
 	public static final boolean REDEFINE_ENTITY_DEFAULT = true;
+	/**
+	 * Default value: {@value #REDEFINE_ONLINE_DEFAULT}
+	 */
+	public static final boolean REDEFINE_ONLINE_DEFAULT = false;
+	/**
+	 * Default value: {@value #REDEFINE_CHUNK_SIZE_DEFAULT}
+	 */
+	public static final int REDEFINE_CHUNK_SIZE_DEFAULT = 10000;
 
 	/**
 	 * @return {@value #DEPLOY_NEW_TABLES_DEFAULT} by default
@@ -85,4 +93,19 @@ public @interface SchemaSync {
 	 * @return {@value #REDEFINE_ENTITY_DEFAULT} by default
 	 */
 	boolean redefineEntity() default REDEFINE_ENTITY_DEFAULT;
+
+	/**
+	 * Redefine tables online: the rows are copied in chunks while triggers replay
+	 * concurrent changes, the table is swapped in a short final transaction and an
+	 * interrupted redefinition resumes on the next start.
+	 * 
+	 * @return {@value #REDEFINE_ONLINE_DEFAULT} by default
+	 */
+	boolean redefineOnline() default REDEFINE_ONLINE_DEFAULT;
+
+	/**
+	 * @return the rows to copy per transaction when redefining online,
+	 *         {@value #REDEFINE_CHUNK_SIZE_DEFAULT} by default
+	 */
+	int redefineChunkSize() default REDEFINE_CHUNK_SIZE_DEFAULT;
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.annotation.database;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Run the database against an in-memory working copy of the database file.
+ * <p>
+ * The file is loaded into memory on startup. Changes are written back to the
+ * file once the working copy has been unchanged for {@link #flushDelaySeconds()}
+ * but not later than {@link #maxDataLossSeconds()} after the first unflushed
+ * change. The working copy is always written back on shutdown.
+ * <p>
+ * Apply to an implementation class of {@code AbstractDatabase}. Only supported
+ * by the SQLite dialect.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WorkingCopy {
+	/**
+	 * Default value: {@value #FLUSH_DELAY_SECONDS_DEFAULT}
+	 */
+	public static final int FLUSH_DELAY_SECONDS_DEFAULT = 5;
+	/**
+	 * Default value: {@value #MAX_DATA_LOSS_SECONDS_DEFAULT}
+	 */
+	public static final int MAX_DATA_LOSS_SECONDS_DEFAULT = 60;
+
+	/**
+	 * The time without further changes after which the changes are written back.
+	 * 
+	 * @return {@value #FLUSH_DELAY_SECONDS_DEFAULT} by default
+	 */
+	int flushDelaySeconds() default FLUSH_DELAY_SECONDS_DEFAULT;
+
+	/**
+	 * The maximum age of unflushed changes, this is the window of changes that
+	 * may be lost on a crash.
+	 * 
+	 * @return {@value #MAX_DATA_LOSS_SECONDS_DEFAULT} by default
+	 */
+	int maxDataLossSeconds() default MAX_DATA_LOSS_SECONDS_DEFAULT;
+}
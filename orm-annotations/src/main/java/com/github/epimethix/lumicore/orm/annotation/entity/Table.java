@@ -61,6 +61,14 @@ public @interface Table {
 	 * Default value: {@value #WITHOUT_ROWID_DEFAULT}
 	 */
 	public static final boolean WITHOUT_ROWID_DEFAULT = false;
+	/**
+	 * Default value: {@value #TRACK_CHANGES_DEFAULT}
+	 */
+	public static final boolean TRACK_CHANGES_DEFAULT = false;
+	/**
+	 * Default value: {@value #COUNT_ROWS_DEFAULT}
+	 */
+	public static final boolean COUNT_ROWS_DEFAULT = false;
 	
 	public static final boolean STRICT_DEFAULT = false;
 
@@ -100,6 +108,25 @@ public @interface Table {
 	
 	boolean strict() default STRICT_DEFAULT;
 
+	/**
+	 * Enable change tracking: the column values of loaded entities are kept as
+	 * snapshot so that save/update of a loaded entity can compute the changed
+	 * columns without reading the record again. Detached entities are still
+	 * compared against the stored record.
+	 * 
+	 * @return {@value #TRACK_CHANGES_DEFAULT} by default
+	 */
+	boolean trackChanges() default TRACK_CHANGES_DEFAULT;
+
+	/**
+	 * Maintain the exact row count of the table in a counter table updated by
+	 * insert and delete triggers so that {@code Repository.estimateCount()} does
+	 * not need to scan the table.
+	 * 
+	 * @return {@value #COUNT_ROWS_DEFAULT} by default
+	 */
+	boolean countRows() default COUNT_ROWS_DEFAULT;
+
 	/**
 	 * define strategy for ORM picking up fields from the entity class.
 	 * 
@@ -46,4 +46,15 @@ public @interface TableSync {
 	 * @return {@value SchemaSync#REDEFINE_ENTITY_DEFAULT} by default
 	 */
 	boolean redefineEntity() default SchemaSync.REDEFINE_ENTITY_DEFAULT;
+
+	/**
+	 * @return {@value SchemaSync#REDEFINE_ONLINE_DEFAULT} by default
+	 * @see SchemaSync#redefineOnline()
+	 */
+	boolean redefineOnline() default SchemaSync.REDEFINE_ONLINE_DEFAULT;
+
+	/**
+	 * @return {@value SchemaSync#REDEFINE_CHUNK_SIZE_DEFAULT} by default
+	 */
+	int redefineChunkSize() default SchemaSync.REDEFINE_CHUNK_SIZE_DEFAULT;
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.annotation.field;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores a {@code LargeObject} field in chunks in a side table to keep the
+ * rows of the main table small.
+ * <p>
+ * The chunks are stored in {@code <table>_<column>_chunks} which is deleted in
+ * cascade with the record, the main table column only holds the content
+ * length. The content is read and written chunk by chunk.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Chunked {
+	public static final int SIZE_DEFAULT = 64 * 1024;
+
+	/**
+	 * @return the chunk size in bytes
+	 */
+	int size() default SIZE_DEFAULT;
+}
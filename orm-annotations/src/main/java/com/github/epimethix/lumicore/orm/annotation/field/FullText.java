@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.annotation.field;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indexes a text field in the full-text index of its table.
+ * <p>
+ * All annotated fields of an entity share one FTS5 table named
+ * {@code <table>_fts} which is kept in sync by triggers. Search using
+ * {@code CriteriaBuilder.fullText(field, query)}.
+ * <p>
+ * Only supported by the SQLite dialect and not for tables without rowid.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FullText {}
@@ -21,7 +21,13 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * This annotation should be applicable to non-entity columns to lazy load by field; NIY
+ * Leaves a non-entity column of a mutable entity out of the default selects.
+ * <p>
+ * The field keeps its initial value when the record is loaded, use
+ * {@code Repository.fetchLazy(record)} to load it together with the other
+ * records of the same result or {@code Repository.getDefaultSelectBuilder(fields)}
+ * to load it eagerly. Unfetched lazy fields are not written on update unless
+ * they were changed.
  */
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -24,5 +24,28 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface PrimaryKey {
 	public static final boolean AUTO_GENERATED_DEFAULT = true;
+	/**
+	 * Random UUID strings for TEXT keys, the database assigns INTEGER keys.
+	 */
+	public static final int GENERATOR_DEFAULT = 0;
+	/**
+	 * Time ordered UUID (version 7) strings, TEXT keys only.
+	 */
+	public static final int GENERATOR_UUID_V7 = 1;
+	/**
+	 * Time ordered 64 bit ids with the node id of this instance, INTEGER (Long)
+	 * keys only.
+	 */
+	public static final int GENERATOR_SNOWFLAKE = 2;
+
 	boolean autoGenerated() default AUTO_GENERATED_DEFAULT;
+
+	/**
+	 * Selects how an auto generated key is generated. Time ordered keys are
+	 * appended to the end of the table and index B-trees instead of being inserted
+	 * at random positions.
+	 * 
+	 * @return one of the GENERATOR_* constants
+	 */
+	int generator() default GENERATOR_DEFAULT;
 }
@@ -26,4 +26,13 @@ import java.lang.annotation.Target;
  */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
-public @interface JsonType {}
+public @interface JsonType {
+	/**
+	 * Store the value as compressed (deflated) json BLOB instead of json TEXT.
+	 * <p>
+	 * Existing TEXT values are still read transparently.
+	 * 
+	 * @return true to store the value as BLOB
+	 */
+	boolean binary() default false;
+}
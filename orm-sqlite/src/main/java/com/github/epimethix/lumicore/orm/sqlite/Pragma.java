@@ -31,6 +31,8 @@ public final class Pragma {
 
 	private final static String PRAGMA_TABLE_INFO = "table_info";
 	private final static String PRAGMA_APPLICATION_ID = "application_id";
+	private final static String PRAGMA_FREELIST_COUNT = "freelist_count";
+	private final static String PRAGMA_INCREMENTAL_VACUUM = "incremental_vacuum";
 	public final static String PRAGMA_KEY = "key";
 	public final static String PRAGMA_REKEY = "rekey";
 
@@ -121,6 +123,19 @@ public final class Pragma {
 	 */
 	public static final String SQL_DISABLE_FOREIGN_KEYS = setIntegerPragma(PRAGMA_FOREIGN_KEYS, 0);
 
+	/**
+	 * SQL String / get PRAGMA "freelist_count"
+	 */
+	public static final String SQL_GET_FREELIST_COUNT = getPragma(PRAGMA_FREELIST_COUNT);
+	/**
+	 * SQL String / execute PRAGMA "optimize"
+	 */
+	public static final String SQL_OPTIMIZE = getPragma("optimize");
+	/**
+	 * SQL String / execute PRAGMA "wal_checkpoint(PASSIVE)"
+	 */
+	public static final String SQL_WAL_CHECKPOINT_PASSIVE = getPragma("wal_checkpoint(PASSIVE)");
+
 	public final static String SQL_ENABLE_LEGACY_ALTER_TABLE = setStringPragma(PRAGMA_LEGACY_ALTER_TABLE, "ON");
 	public final static String SQL_DISABLE_LEGACY_ALTER_TABLE = setStringPragma(PRAGMA_LEGACY_ALTER_TABLE, "OFF");
 
@@ -145,6 +160,18 @@ public final class Pragma {
 		return String.format(SET_INTEGER_PRAGMA_FORMAT, PRAGMA_USER_VERSION, version);
 	}
 
+	/**
+	 * get the SQL command to free up to the specified number of pages from the
+	 * freelist (requires auto_vacuum=INCREMENTAL)
+	 * 
+	 * @param pages the maximum number of pages to free
+	 * 
+	 * @return the SQL command to run an incremental vacuum
+	 */
+	public static final String incrementalVacuum(int pages) {
+		return String.format("PRAGMA %s(%d)", PRAGMA_INCREMENTAL_VACUUM, pages);
+	}
+
 	/**
 	 * get the SQL query command to query a tables "table_info"
 	 * <p>
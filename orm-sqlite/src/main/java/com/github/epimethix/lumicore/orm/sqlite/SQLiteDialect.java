@@ -15,25 +15,45 @@
  */
 package com.github.epimethix.lumicore.orm.sqlite;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sqlite.SQLiteCommitListener;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB.ProgressObserver;
 
 import com.github.epimethix.lumicore.common.ConfigurationException;
 import com.github.epimethix.lumicore.common.orm.Database;
 import com.github.epimethix.lumicore.common.orm.Database.SchemaSynchronizity;
 import com.github.epimethix.lumicore.common.orm.EntitySynchronizity;
+import com.github.epimethix.lumicore.common.orm.ProgressListener;
 import com.github.epimethix.lumicore.common.orm.Repository;
 import com.github.epimethix.lumicore.common.orm.model.Entity;
 import com.github.epimethix.lumicore.common.orm.sql.ConnectionFactory;
+import com.github.epimethix.lumicore.common.orm.sql.MaintenanceJob;
 import com.github.epimethix.lumicore.common.orm.sql.TableInfo;
 import com.github.epimethix.lumicore.common.orm.sqlite.Constraint;
 import com.github.epimethix.lumicore.common.orm.sqlite.Definition;
@@ -42,6 +62,7 @@ import com.github.epimethix.lumicore.logging.Log;
 import com.github.epimethix.lumicore.logging.Logger;
 import com.github.epimethix.lumicore.orm.ORM;
 import com.github.epimethix.lumicore.orm.annotation.database.SchemaSync;
+import com.github.epimethix.lumicore.orm.annotation.database.WorkingCopy;
 import com.github.epimethix.lumicore.orm.annotation.entity.TableSync;
 import com.github.epimethix.lumicore.orm.sql.SQLDialect;
 import com.github.epimethix.lumicore.properties.LumicoreProperties;
@@ -54,8 +75,111 @@ public final class SQLiteDialect extends SQLDialect {
 //
 //	private final ConnectionFactory connectionFactory;
 
+	/**
+	 * The in-memory working copy or null if the database file is used directly.
+	 * 
+	 * @see WorkingCopy
+	 */
+	private final SQLiteWorkingCopy workingCopy;
+
+	/**
+	 * The dependent tables by table name, valid for the schema version
+	 * {@link #dependentTablesSchemaVersion}.
+	 * 
+	 * @see #getDependentTables(String)
+	 */
+	private final Map<String, Optional<Set<String>>> dependentTables = new HashMap<>();
+	private long dependentTablesSchemaVersion = -1L;
+
+	/**
+	 * The database of the connection the commit listener was added to.
+	 */
+	private org.sqlite.core.DB listenedDatabase;
+
 	public SQLiteDialect(Database db, ConnectionFactory connectionFactory) {
 		super(db, connectionFactory);
+		SQLiteWorkingCopy wc = null;
+		WorkingCopy policy = ORM.getWorkingCopyConfig(db.getClass());
+		if (Objects.nonNull(policy)) {
+			try {
+				wc = new SQLiteWorkingCopy(connectionFactory, policy);
+				/*
+				 * drop the file connection opened by the super constructor
+				 */
+				super.close();
+			} catch (SQLException e) {
+				LOGGER.error(e, "The working copy could not be created, using the database file directly");
+			}
+		}
+		this.workingCopy = wc;
+	}
+
+	/*
+	 * * * ConnectionController
+	 */
+
+	@Override
+	public Connection createConnection() throws SQLException {
+		if (Objects.nonNull(workingCopy)) {
+			return workingCopy.getConnection();
+		}
+		return super.createConnection();
+	}
+
+	/**
+	 * Ends the deferral of change events when the connection commits or rolls
+	 * back, also for transactions managed by the application.
+	 */
+	@Override
+	protected void connectionOpened(Connection c) throws SQLException {
+		org.sqlite.core.DB database = c.unwrap(SQLiteConnection.class).getDatabase();
+		if (database != listenedDatabase) {
+			database.addCommitListener(new SQLiteCommitListener() {
+				@Override
+				public void onCommit() {
+					DB.getChangeEventBus().commit();
+				}
+
+				@Override
+				public void onRollback() {
+					DB.getChangeEventBus().rollback();
+				}
+			});
+			listenedDatabase = database;
+		}
+	}
+
+	@Override
+	public boolean isDeployed() {
+		if (Objects.nonNull(workingCopy)) {
+			return workingCopy.isDeployed();
+		}
+		return super.isDeployed();
+	}
+
+	/**
+	 * Writes the in-memory working copy back to the database file. Does nothing if
+	 * the database is not run as {@link WorkingCopy}.
+	 * 
+	 * @return false if the write back was postponed because a transaction is open
+	 * @throws SQLException
+	 */
+	public boolean flushWorkingCopy() throws SQLException {
+		if (Objects.nonNull(workingCopy)) {
+			return workingCopy.flush();
+		}
+		return true;
+	}
+
+	@Override
+	public void shutdown() throws SQLException {
+		try {
+			if (Objects.nonNull(workingCopy)) {
+				workingCopy.close();
+			}
+		} finally {
+			close();
+		}
 	}
 
 	protected final class Rename {
@@ -96,6 +220,8 @@ public final class SQLiteDialect extends SQLDialect {
 //			boolean globAutoDropColumns;
 //			boolean upgradeSchema;
 			boolean globAutoRedefineEntity;
+			boolean globRedefineOnline;
+			int globRedefineChunkSize;
 
 			SchemaSync asd = ORM.getDatabaseAutoSyncConfig(DB.getClass());
 
@@ -106,6 +232,8 @@ public final class SQLiteDialect extends SQLDialect {
 //				globAutoDropColumns = asd.dropColumns();
 //				upgradeSchema = asd.upgradeSchema();
 				globAutoRedefineEntity = asd.redefineEntity();
+				globRedefineOnline = asd.redefineOnline();
+				globRedefineChunkSize = asd.redefineChunkSize();
 			} else {
 				autoDeployNewTables = SchemaSync.DEPLOY_NEW_TABLES_DEFAULT;
 				globAutoDeployNewColumns = SchemaSync.DEPLOY_NEW_COLUMNS_DEFAULT;
@@ -113,12 +241,19 @@ public final class SQLiteDialect extends SQLDialect {
 //				globAutoDropColumns = AutoSyncDatabase.DROP_COLUMNS_DEFAULT;
 //				upgradeSchema = AutoSyncDatabase.UPGRADE_SCHEMA_DEFAULT;
 				globAutoRedefineEntity = SchemaSync.REDEFINE_ENTITY_DEFAULT;
+				globRedefineOnline = SchemaSync.REDEFINE_ONLINE_DEFAULT;
+				globRedefineChunkSize = SchemaSync.REDEFINE_CHUNK_SIZE_DEFAULT;
 			}
 			/**
 			 * check schema for new, existing and non existing (deletion candidates) table
 			 * names
 			 */
-			SchemaSynchronizity ss = DB.checkSchemaSynchronizity();
+			Map<String, SQLiteMaster> masterTables = sqliteMasterTables();
+			masterTables.keySet().removeIf(this::isFullTextTable);
+			masterTables.keySet().removeIf(this::isChunkTable);
+			masterTables.keySet().removeIf(this::isRowCountTable);
+			masterTables.keySet().removeIf(SQLiteOnlineRedefinition::isOnlineRedefinitionTable);
+			SchemaSynchronizity ss = DB.checkSchemaSynchronizity(new ArrayList<>(masterTables.keySet()));
 
 			long dbFileStructureVersion = DB.getMetaDatabaseStructureVersion();
 			long dbJavaStructureVersion = ORM.getDatabaseStructureVersion(DB.getClass());
@@ -139,24 +274,37 @@ public final class SQLiteDialect extends SQLDialect {
 //					boolean autodropColumns;
 //						boolean upgradeEntity;
 					boolean autoRedefineEntity;
+					boolean redefineOnline;
+					int redefineChunkSize;
 					TableSync ase = ORM.getEntityAutoSyncConfig(repository.getEntityClass());
 					if (Objects.nonNull(ase)) {
 						autoDeployNewColumns = ase.deployNewColumns();
 //						autodropColumns = ase.dropColumns();
 //							upgradeEntity = ase.upgradeEntity();
 						autoRedefineEntity = ase.redefineEntity();
+						redefineOnline = ase.redefineOnline();
+						redefineChunkSize = ase.redefineChunkSize();
 					} else {
 						autoDeployNewColumns = globAutoDeployNewColumns;
 //						autodropColumns = globAutoDropColumns;
 //							upgradeEntity = globUpgradeEntity;
 						autoRedefineEntity = globAutoRedefineEntity;
+						redefineOnline = globRedefineOnline;
+						redefineChunkSize = globRedefineChunkSize;
 					}
 					/**
 					 * Auto sync table
 					 */
-					Optional<SQLiteMaster> mOpt = sqliteMasterByName(repository.getEntityName());
-					if (mOpt.isPresent()) {
-						SQLiteMaster m = mOpt.get();
+					SQLiteMaster m = masterTables.get(repository.getEntityName());
+					if (Objects.nonNull(m)) {
+						/*
+						 * Skip the full check if the java definition and the schema did not change
+						 * since the last successful check
+						 */
+						String fingerprint = structureFingerprint(repository, m);
+						if (fingerprint.equals(DB.getMetaEntityStructureFingerprint(repository.getEntityName()))) {
+							continue;
+						}
 						boolean needsRedefinition = false;
 						{
 //							if (Objects.isNull(m)) {
@@ -166,6 +314,7 @@ public final class SQLiteDialect extends SQLDialect {
 							String javaDef = repository.getCreateStatement()
 									.substring(repository.getCreateStatement().indexOf("(")).trim();
 							if (masterDef.equals(javaDef)) {
+								DB.setMetaEntityStructureFingerprint(repository.getEntityName(), fingerprint);
 								// System.out.println("~~~ CONTINUE (" + ar.getEntityName() + ")");
 								// System.out.println("Master: " + masterDef);
 								// System.out.println("Java : " + javaDef);
@@ -198,7 +347,7 @@ public final class SQLiteDialect extends SQLDialect {
 							}
 						}
 						if (!needsRedefinition) {
-							System.err.println(m.getSql());
+							LOGGER.trace(m.getSql().replaceAll("[%]", "%%"));
 							List<Constraint> masterConstraints = Constraint.parseConstraints(m.getSql());
 							List<Constraint> definitionConstraints = Constraint
 									.parseConstraints(repository.getCreateStatement());
@@ -227,7 +376,9 @@ public final class SQLiteDialect extends SQLDialect {
 							}
 						}
 						if (!needsRedefinition) {
-							if (autoDeployNewColumns) {
+							if (es.getFieldsToCreate().isEmpty()) {
+								DB.setMetaEntityStructureFingerprint(repository.getEntityName(), fingerprint);
+							} else if (autoDeployNewColumns) {
 								for (String fCreate : es.getFieldsToCreate()) {
 									alterTableAddColumn(repository.getEntityName(),
 											(Definition) repository.getDefinition(fCreate));
@@ -236,7 +387,11 @@ public final class SQLiteDialect extends SQLDialect {
 							}
 						}
 						if (needsRedefinition && autoRedefineEntity) {
-							redefineEntity(repository, es);
+							if (redefineOnline) {
+								redefineEntityOnline(repository, es, null, redefineChunkSize, null);
+							} else {
+								redefineEntity(repository, es);
+							}
 						}
 					}
 				} else if (ss.tablesToCreate.contains(repository.getEntityName())) {
@@ -271,6 +426,352 @@ public final class SQLiteDialect extends SQLDialect {
 						DB.getDatabaseApplication().getRequiredApplicationVersion());
 			}
 		}
+		syncFullTextIndexes();
+		syncRowCounters();
+		markSchemaChanged();
+	}
+
+	/**
+	 * Marks the working copy dirty after schema changes so it is written back even
+	 * if no rows changed.
+	 */
+	private void markSchemaChanged() {
+		if (Objects.nonNull(workingCopy)) {
+			workingCopy.markDirty();
+		}
+	}
+
+	/*
+	 * * * Full-text indexes
+	 */
+
+	/**
+	 * The number of existing rows indexed per statement when a full-text index is
+	 * built.
+	 */
+	private static final int FULL_TEXT_CHUNK_SIZE = 1_000;
+
+	private static final String[] FULL_TEXT_TRIGGER_SUFFIXES = { "_ai", "_ad", "_au" };
+
+	/**
+	 * Tests whether the specified table is a full-text index table or one of its
+	 * shadow tables.
+	 * 
+	 * @param tableName the table name to test
+	 * @return true if the table belongs to the full-text index of a registered
+	 *         repository
+	 */
+	private final boolean isFullTextTable(String tableName) {
+		for (Repository<?, ?> repository : DB.getRepositories()) {
+			String ftsTable = ORM.getFullTextTableName(repository.getEntityName());
+			if (tableName.equals(ftsTable) || tableName.startsWith(ftsTable.concat("_"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tests whether the specified table is the chunk table of a chunked large
+	 * object column.
+	 * 
+	 * @param tableName the table name to test
+	 * @return true if the table belongs to a registered repository
+	 */
+	private final boolean isChunkTable(String tableName) {
+		for (Repository<?, ?> repository : DB.getRepositories()) {
+			for (String field : ORM.getChunkedFields(repository.getEntityClass())) {
+				if (tableName.equals(ORM.getChunkTableName(repository.getEntityName(), field))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates, rebuilds or drops the FTS5 index of every repository according to
+	 * its &#64;FullText fields.
+	 * <p>
+	 * The index is an external content FTS5 table kept in sync by triggers. It is
+	 * rebuilt if the indexed fields changed or a trigger is missing (for example
+	 * after the table was redefined). Existing rows are indexed in chunks of
+	 * {@value #FULL_TEXT_CHUNK_SIZE} rows.
+	 * 
+	 * @throws SQLException
+	 */
+	public final void syncFullTextIndexes() throws SQLException {
+		Map<String, SQLiteMaster> master = new TreeMap<>();
+		for (SQLiteMaster m : sqliteMaster()) {
+			master.put(m.getName(), m);
+		}
+		for (Repository<?, ?> repository : DB.getRepositories()) {
+			String tableName = repository.getEntityName();
+			String ftsTable = ORM.getFullTextTableName(tableName);
+			List<String> fields = ORM.getFullTextFields(repository.getEntityClass());
+			SQLiteMaster table = master.get(tableName);
+			SQLiteMaster fts = master.get(ftsTable);
+			if (fields.isEmpty()) {
+				if (Objects.nonNull(fts)) {
+					dropFullTextIndex(tableName);
+					LOGGER.info("Full-text index '%s' was dropped", ftsTable);
+				}
+				continue;
+			} else if (Objects.isNull(table)) {
+				continue;
+			} else if (table.getSql().trim().toUpperCase().endsWith(Voc.WITHOUT_ROWID)) {
+				LOGGER.warn("Full-text index for '%s' skipped, tables without rowid are not supported", tableName);
+				continue;
+			}
+			String create = sqlCreateFullTextTable(tableName, fields);
+			boolean upToDate = Objects.nonNull(fts) && create.equals(fts.getSql());
+			for (String suffix : FULL_TEXT_TRIGGER_SUFFIXES) {
+				upToDate &= master.containsKey(ftsTable.concat(suffix));
+			}
+			if (!upToDate) {
+				buildFullTextIndex(tableName, fields, create);
+			}
+		}
+	}
+
+	private final String sqlCreateFullTextTable(String tableName, List<String> fields) {
+		return String.format("CREATE VIRTUAL TABLE `%s` USING fts5(%s, content='%s')",
+				ORM.getFullTextTableName(tableName), columnList("", fields), tableName);
+	}
+
+	private static String columnList(String prefix, List<String> fields) {
+		StringBuilder b = new StringBuilder();
+		for (String field : fields) {
+			if (b.length() > 0) {
+				b.append(", ");
+			}
+			b.append(prefix).append("`").append(field).append("`");
+		}
+		return b.toString();
+	}
+
+	private final void dropFullTextIndex(String tableName) throws SQLException {
+		String ftsTable = ORM.getFullTextTableName(tableName);
+		for (String suffix : FULL_TEXT_TRIGGER_SUFFIXES) {
+			DB.executeUpdate(String.format("DROP TRIGGER IF EXISTS `%s%s`", ftsTable, suffix), false);
+		}
+		DB.executeUpdate(String.format("DROP TABLE IF EXISTS `%s`", ftsTable), false);
+	}
+
+	private final void buildFullTextIndex(String tableName, List<String> fields, String create)
+			throws SQLException {
+		String ftsTable = ORM.getFullTextTableName(tableName);
+		String columns = columnList("", fields);
+		String insertNew = String.format("INSERT INTO `%s` (rowid, %s) VALUES (new.rowid, %s);", ftsTable, columns,
+				columnList("new.", fields));
+		String deleteOld = String.format("INSERT INTO `%s` (`%s`, rowid, %s) VALUES ('delete', old.rowid, %s);",
+				ftsTable, ftsTable, columns, columnList("old.", fields));
+		dropFullTextIndex(tableName);
+		DB.executeUpdate(create, false);
+		DB.executeUpdate(String.format("CREATE TRIGGER `%s_ai` AFTER INSERT ON `%s` BEGIN %s END", ftsTable,
+				tableName, insertNew), false);
+		DB.executeUpdate(String.format("CREATE TRIGGER `%s_ad` AFTER DELETE ON `%s` BEGIN %s END", ftsTable,
+				tableName, deleteOld), false);
+		DB.executeUpdate(String.format("CREATE TRIGGER `%s_au` AFTER UPDATE ON `%s` BEGIN %s %s END", ftsTable,
+				tableName, deleteOld, insertNew), false);
+		/*
+		 * index the existing rows in chunks, rows written meanwhile are indexed by the
+		 * triggers
+		 */
+		String sqlChunkEnd = String.format(
+				"SELECT max(rowid) FROM (SELECT rowid FROM `%s` WHERE rowid > ? AND rowid <= ? ORDER BY rowid LIMIT %d)",
+				tableName, FULL_TEXT_CHUNK_SIZE);
+		String sqlIndexChunk = String.format(
+				"INSERT INTO `%s` (rowid, %s) SELECT rowid, %s FROM `%s` WHERE rowid > ? AND rowid <= ?", ftsTable,
+				columns, columns, tableName);
+		Connection c = DB.getConnection();
+		long start = System.currentTimeMillis();
+		long indexed = 0L;
+		try (Statement st = c.createStatement();
+				ResultSet rsMax = st.executeQuery(String.format("SELECT max(rowid) FROM `%s`", tableName));
+				PreparedStatement psChunkEnd = c.prepareStatement(sqlChunkEnd);
+				PreparedStatement psIndexChunk = c.prepareStatement(sqlIndexChunk)) {
+			rsMax.next();
+			long maxRowid = rsMax.getLong(1);
+			if (!rsMax.wasNull()) {
+				long last = Long.MIN_VALUE;
+				while (last < maxRowid) {
+					psChunkEnd.setLong(1, last);
+					psChunkEnd.setLong(2, maxRowid);
+					long chunkEnd;
+					try (ResultSet rs = psChunkEnd.executeQuery()) {
+						rs.next();
+						chunkEnd = rs.getLong(1);
+						if (rs.wasNull()) {
+							break;
+						}
+					}
+					psIndexChunk.setLong(1, last);
+					psIndexChunk.setLong(2, chunkEnd);
+					indexed += psIndexChunk.executeUpdate();
+					last = chunkEnd;
+				}
+			}
+		} finally {
+			DB.checkClose(LumicoreProperties.CLOSE_CONNECTION_AFTER_OPERATION);
+		}
+		LOGGER.info("Full-text index '%s' was built, %d rows indexed in %d ms", ftsTable, indexed,
+				System.currentTimeMillis() - start);
+	}
+
+	/*
+	 * * * Row counters
+	 */
+
+	private static final String[] ROW_COUNT_TRIGGER_SUFFIXES = { "_count_ai", "_count_ad" };
+
+	/**
+	 * Tests whether the specified table is the row count table.
+	 */
+	private final boolean isRowCountTable(String tableName) {
+		return ORM.ROW_COUNT_TABLE.equals(tableName);
+	}
+
+	/**
+	 * Creates or drops the counting triggers of every repository according to
+	 * &#64;Table(countRows). The count is initialized when the triggers are
+	 * created, they are recreated if one is missing (for example after the table
+	 * was redefined).
+	 * 
+	 * @throws SQLException
+	 */
+	public final void syncRowCounters() throws SQLException {
+		Map<String, SQLiteMaster> master = new TreeMap<>();
+		for (SQLiteMaster m : sqliteMaster()) {
+			master.put(m.getName(), m);
+		}
+		for (Repository<?, ?> repository : DB.getRepositories()) {
+			String tableName = repository.getEntityName();
+			boolean upToDate = true;
+			boolean exists = false;
+			for (String suffix : ROW_COUNT_TRIGGER_SUFFIXES) {
+				boolean present = master.containsKey(tableName.concat(suffix));
+				upToDate &= present;
+				exists |= present;
+			}
+			if (!ORM.isRowCountEnabled(repository.getEntityClass())) {
+				if (exists) {
+					dropRowCounter(tableName);
+					LOGGER.info("Row counter of '%s' was dropped", tableName);
+				}
+			} else if (master.containsKey(tableName) && !upToDate) {
+				buildRowCounter(tableName);
+			}
+		}
+	}
+
+	private final void dropRowCounter(String tableName) throws SQLException {
+		for (String suffix : ROW_COUNT_TRIGGER_SUFFIXES) {
+			DB.executeUpdate(String.format("DROP TRIGGER IF EXISTS `%s%s`", tableName, suffix), false);
+		}
+		DB.executeUpdate(String.format("DELETE FROM `%s` WHERE `table_name` = '%s'", ORM.ROW_COUNT_TABLE, tableName),
+				false);
+	}
+
+	private final void buildRowCounter(String tableName) throws SQLException {
+		String update = String.format("UPDATE `%s` SET `row_count` = `row_count` %%s 1 WHERE `table_name` = '%s';",
+				ORM.ROW_COUNT_TABLE, tableName);
+		Connection c = DB.getConnection();
+		boolean autoCommit = c.getAutoCommit();
+		if (autoCommit) {
+			c.setAutoCommit(false);
+		}
+		try (Statement st = c.createStatement()) {
+			st.executeUpdate(String.format("CREATE TABLE IF NOT EXISTS `%s` (`table_name` TEXT PRIMARY KEY, "
+					+ "`row_count` INTEGER NOT NULL) WITHOUT ROWID", ORM.ROW_COUNT_TABLE));
+			for (String suffix : ROW_COUNT_TRIGGER_SUFFIXES) {
+				st.executeUpdate(String.format("DROP TRIGGER IF EXISTS `%s%s`", tableName, suffix));
+			}
+			st.executeUpdate(String.format("CREATE TRIGGER `%s_count_ai` AFTER INSERT ON `%s` BEGIN %s END",
+					tableName, tableName, String.format(update, "+")));
+			st.executeUpdate(String.format("CREATE TRIGGER `%s_count_ad` AFTER DELETE ON `%s` BEGIN %s END",
+					tableName, tableName, String.format(update, "-")));
+			/*
+			 * initialized in the same transaction so no write is missed
+			 */
+			st.executeUpdate(String.format(
+					"INSERT OR REPLACE INTO `%s` (`table_name`, `row_count`) SELECT '%s', count(*) FROM `%s`",
+					ORM.ROW_COUNT_TABLE, tableName, tableName));
+			if (autoCommit) {
+				c.commit();
+			}
+		} catch (SQLException e) {
+			if (autoCommit) {
+				c.rollback();
+			}
+			throw e;
+		} finally {
+			if (autoCommit) {
+				c.setAutoCommit(true);
+			}
+			DB.checkClose(LumicoreProperties.CLOSE_CONNECTION_AFTER_OPERATION);
+		}
+		LOGGER.info("Row counter of '%s' was built", tableName);
+	}
+
+	@Override
+	public long getCountedRows(String tableName) throws SQLException {
+		Connection c = getConnection();
+		try (Statement st = c.createStatement()) {
+			if (queryLong(st, String.format("SELECT count(*) FROM sqlite_master WHERE `name` = '%s'",
+					ORM.ROW_COUNT_TABLE)) == 0L) {
+				return -1L;
+			}
+		}
+		try (PreparedStatement ps = c.prepareStatement(String.format(
+				"SELECT `row_count` FROM `%s` WHERE `table_name` = ? AND EXISTS (SELECT 1 FROM sqlite_master "
+						+ "WHERE `type` = 'trigger' AND `name` = ?)",
+				ORM.ROW_COUNT_TABLE))) {
+			ps.setString(1, tableName);
+			ps.setString(2, tableName.concat(ROW_COUNT_TRIGGER_SUFFIXES[0]));
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : -1L;
+			}
+		}
+	}
+
+	/**
+	 * Estimates the row count from {@code sqlite_stat1} which is filled by
+	 * ANALYZE (see {@link MaintenanceJob#ANALYZE}). The count of the table itself
+	 * is used if present, otherwise the largest count of its indexes.
+	 */
+	@Override
+	public long estimateRowCount(String tableName) throws SQLException {
+		Connection c = getConnection();
+		try (Statement st = c.createStatement()) {
+			if (queryLong(st, "SELECT count(*) FROM sqlite_master WHERE `name` = 'sqlite_stat1'") == 0L) {
+				return -1L;
+			}
+		}
+		long estimate = -1L;
+		try (PreparedStatement ps = c.prepareStatement("SELECT `idx`, `stat` FROM sqlite_stat1 WHERE `tbl` = ?")) {
+			ps.setString(1, tableName);
+			try (ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					String stat = rs.getString(2);
+					if (Objects.isNull(stat) || stat.isEmpty()) {
+						continue;
+					}
+					int end = stat.indexOf(' ');
+					long rows;
+					try {
+						rows = Long.parseLong(end == -1 ? stat : stat.substring(0, end));
+					} catch (NumberFormatException e) {
+						continue;
+					}
+					if (Objects.isNull(rs.getString(1))) {
+						return rows;
+					}
+					estimate = Math.max(estimate, rows);
+				}
+			}
+		}
+		return estimate;
 	}
 
 	/**
@@ -352,27 +853,10 @@ public final class SQLiteDialect extends SQLDialect {
 				// 2) deploy new (current) table
 				DB.executeUpdate(repository.getCreateStatement(), false);
 				// 3) consider renamed fields
-				String[] newNames, oldNames;
-				String[] ftc = synchronizity.getFieldsToCheck().toArray(new String[0]);
-				if (Objects.nonNull(renames) && renames.size() > 0) {
-					newNames = new String[ftc.length + renames.size()];
-					oldNames = new String[newNames.length];
-					for (int i = 0; i < newNames.length; i++) {
-						if (i < ftc.length) {
-							newNames[i] = oldNames[i] = ftc[i];
-						} else {
-							// TODO Test/Debug renaming fields
-							Rename r = renames.get(i - ftc.length);
-							newNames[i] = r.newName;
-							oldNames[i] = r.oldName;
-						}
-					}
-				} else {
-					newNames = oldNames = ftc;
-				}
+				String[][] names = getCopiedColumns(synchronizity, renames);
 				// 4) copy data to new table
 				SQLiteBuilder b = new SQLiteBuilder();
-				String sql = b.insertInto(tableName, newNames).selectFrom(tableNameOld, oldNames).getSQL();
+				String sql = b.insertInto(tableName, names[0]).selectFrom(tableNameOld, names[1]).getSQL();
 				DB.executeUpdate(sql, false);
 				// 5) drop old table
 				dropTableWithoutWhiteListing(tableNameOld, false);
@@ -395,6 +879,64 @@ public final class SQLiteDialect extends SQLDialect {
 		}
 	}
 
+	/**
+	 * Gets the columns to copy when a table is redefined.
+	 * 
+	 * @return {new names, old names}
+	 */
+	private String[][] getCopiedColumns(EntitySynchronizity synchronizity, List<Rename> renames) {
+		String[] newNames, oldNames;
+		String[] ftc = synchronizity.getFieldsToCheck().toArray(new String[0]);
+		if (Objects.nonNull(renames) && renames.size() > 0) {
+			newNames = new String[ftc.length + renames.size()];
+			oldNames = new String[newNames.length];
+			for (int i = 0; i < newNames.length; i++) {
+				if (i < ftc.length) {
+					newNames[i] = oldNames[i] = ftc[i];
+				} else {
+					// TODO Test/Debug renaming fields
+					Rename r = renames.get(i - ftc.length);
+					newNames[i] = r.newName;
+					oldNames[i] = r.oldName;
+				}
+			}
+		} else {
+			newNames = oldNames = ftc;
+		}
+		return new String[][] { newNames, oldNames };
+	}
+
+	/**
+	 * Redefines a table while it stays in use, see
+	 * {@link SQLiteOnlineRedefinition}. An interrupted redefinition is resumed.
+	 * 
+	 * @param repository the repository of the table to redefine
+	 * @param chunkSize  the rows to copy per transaction
+	 * @param listener   the progress listener or null
+	 * @throws SQLException
+	 */
+	public void redefineEntityOnline(Repository<?, ?> repository, int chunkSize, ProgressListener listener)
+			throws SQLException {
+		try {
+			redefineEntityOnline(repository,
+					repository.checkEntitySynchronizity(tableInfo(repository.getEntityName())), null, chunkSize,
+					listener);
+		} finally {
+			markSchemaChanged();
+		}
+	}
+
+	protected void redefineEntityOnline(Repository<?, ?> repository, EntitySynchronizity synchronizity,
+			List<Rename> renames, int chunkSize, ProgressListener listener) throws SQLException {
+		String[][] names = getCopiedColumns(synchronizity, renames);
+		SQLiteOnlineRedefinition redefinition = new SQLiteOnlineRedefinition(this, DB, repository.getEntityName(),
+				repository.getCreateQuery().getQueryString(), names[0], names[1]);
+		if (!redefinition.run(chunkSize, listener)) {
+			LOGGER.info("Table '%s' cannot be copied in key order, redefining it offline", repository.getEntityName());
+			redefineEntity(repository, synchronizity, renames);
+		}
+	}
+
 	/**
 	 * <b>Warning!!!</b>
 	 * <p>
@@ -580,6 +1122,36 @@ public final class SQLiteDialect extends SQLDialect {
 		return l;
 	}
 
+	/**
+	 * Loads the {@link SQLiteMaster} entries of all non-system tables using one
+	 * query.
+	 * 
+	 * @return the master entries of all non-system tables by table name, ordered
+	 *         by name
+	 */
+	public final Map<String, SQLiteMaster> sqliteMasterTables() {
+		Map<String, SQLiteMaster> tables = new TreeMap<>();
+		for (SQLiteMaster m : sqliteMaster()) {
+			if ("table".equals(m.getType()) && !m.getName().startsWith("sqlite_")) {
+				tables.put(m.getName(), m);
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * Computes the fingerprint of the java definition and the schema definition of
+	 * an entity.
+	 * 
+	 * @param repository the repository of the entity
+	 * @param m          the master entry of the entities table
+	 * @return the structure fingerprint
+	 */
+	private final String structureFingerprint(Repository<?, ?> repository, SQLiteMaster m) {
+		return DigestUtils.sha1Hex(repository.getEntityStructureVersion() + "\n" + repository.getCreateQuery().getQueryString()
+				+ "\n" + m.getSql());
+	}
+
 	/**
 	 * Gets the {@link SQLiteMaster} entry of the specified table.
 	 * 
@@ -616,6 +1188,256 @@ public final class SQLiteDialect extends SQLDialect {
 		return SQLiteUtils.resolveType(mappedType);
 	}
 
+	/**
+	 * The pause between two online backup steps to let writers continue.
+	 */
+	static final long BACKUP_STEP_PAUSE_MILLIS = 10L;
+
+	/**
+	 * Copies the live database using the SQLite online backup API on a separate
+	 * connection.
+	 * <p>
+	 * The number of pages per step is passed on if the driver supports it (the
+	 * bundled driver copies a fixed number of pages per step). Between the steps
+	 * this thread pauses shortly so that writers can continue.
+	 * <p>
+	 * The driver holds the monitor of the source connection for the whole backup,
+	 * pauses included. The working copy is one shared connection, so it is written
+	 * back to the database file first and the file is backed up on a connection of
+	 * its own.
+	 */
+	@Override
+	public void backupTo(File destination, int pagesPerStep, ProgressListener listener) throws SQLException {
+		ProgressObserver observer = (remaining, pageCount) -> {
+			if (Objects.nonNull(listener)) {
+				listener.progress(remaining, pageCount);
+			}
+			if (remaining > 0) {
+				try {
+					Thread.sleep(BACKUP_STEP_PAUSE_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		String path = destination.getAbsolutePath();
+		if (Objects.nonNull(workingCopy)) {
+			writeBackWorkingCopy();
+		}
+		try (Connection c = Objects.isNull(workingCopy) ? createConnection() : super.createConnection()) {
+			int rc = backup(c, path, observer, pagesPerStep);
+			if (rc != 0) {
+				throw new SQLException(String.format("Backup to '%s' failed with result code %d", path, rc));
+			}
+		}
+	}
+
+	/**
+	 * The time to wait for an open transaction before a backup of the working copy
+	 * fails.
+	 */
+	private static final long WRITE_BACK_TIMEOUT_MILLIS = 30_000L;
+
+	private void writeBackWorkingCopy() throws SQLException {
+		long deadline = System.currentTimeMillis() + WRITE_BACK_TIMEOUT_MILLIS;
+		while (!workingCopy.flush()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new SQLException("The working copy could not be written back, a transaction is open");
+			}
+			try {
+				Thread.sleep(BACKUP_STEP_PAUSE_MILLIS * 10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting to write back the working copy", e);
+			}
+		}
+	}
+
+	/**
+	 * An action run while the database connection is closed.
+	 */
+	@FunctionalInterface
+	static interface SwitchOver {
+		void run() throws SQLException;
+	}
+
+	/**
+	 * Closes the cached connection and runs the action before any connection can
+	 * be opened again.
+	 * 
+	 * @param action the switch over action
+	 * @throws SQLException
+	 */
+	final void switchOver(SwitchOver action) throws SQLException {
+		synchronized (this) {
+			close();
+			action.run();
+		}
+	}
+
+	@Override
+	public long runMaintenance(MaintenanceJob job, int pages) throws SQLException {
+		Connection c = getConnection();
+		try (Statement st = c.createStatement()) {
+			switch (job) {
+			case OPTIMIZE:
+				LOGGER.trace(Pragma.SQL_OPTIMIZE);
+				st.execute(Pragma.SQL_OPTIMIZE);
+				return -1L;
+			case ANALYZE:
+				LOGGER.trace("ANALYZE");
+				st.execute("ANALYZE");
+				return -1L;
+			case INCREMENTAL_VACUUM:
+				long before = queryLong(st, Pragma.SQL_GET_FREELIST_COUNT);
+				String sql = Pragma.incrementalVacuum(pages);
+				LOGGER.trace(sql);
+				/*
+				 * the pragma frees one page per step and returns no rows, executeUpdate
+				 * steps it to completion
+				 */
+				st.executeUpdate(sql);
+				return before - queryLong(st, Pragma.SQL_GET_FREELIST_COUNT);
+			case WAL_CHECKPOINT:
+				LOGGER.trace(Pragma.SQL_WAL_CHECKPOINT_PASSIVE);
+				try (ResultSet rs = st.executeQuery(Pragma.SQL_WAL_CHECKPOINT_PASSIVE)) {
+					/*
+					 * busy, log frames, checkpointed frames (-1 if not in WAL mode)
+					 */
+					return rs.next() ? Math.max(0L, rs.getLong(3)) : 0L;
+				}
+			default:
+				return super.runMaintenance(job, pages);
+			}
+		}
+	}
+
+	/**
+	 * Gets the tables referencing the specified table (transitively) with an
+	 * {@code ON DELETE} or {@code ON UPDATE} action. The result is unknown if one
+	 * of these tables has triggers. Results are cached until the schema version
+	 * changes.
+	 */
+	@Override
+	public synchronized Set<String> getDependentTables(String tableName) throws SQLException {
+		Connection c = getConnection();
+		try (Statement st = c.createStatement()) {
+			long version = queryLong(st, "PRAGMA schema_version");
+			if (version != dependentTablesSchemaVersion) {
+				dependentTables.clear();
+				dependentTablesSchemaVersion = version;
+			}
+		}
+		Optional<Set<String>> dependents = dependentTables.get(tableName);
+		if (Objects.isNull(dependents)) {
+			dependents = Optional.ofNullable(findDependentTables(c, tableName));
+			dependentTables.put(tableName, dependents);
+		}
+		return dependents.orElse(null);
+	}
+
+	private static Set<String> findDependentTables(Connection c, String tableName) throws SQLException {
+		Set<String> dependents = new HashSet<>();
+		Deque<String> pending = new ArrayDeque<>();
+		pending.add(tableName);
+		try (PreparedStatement triggers = c.prepareStatement(
+				"SELECT count(*) FROM sqlite_master WHERE `type` = 'trigger' AND `tbl_name` = ? COLLATE NOCASE");
+				PreparedStatement references = c.prepareStatement("SELECT DISTINCT m.`name` FROM sqlite_master m, "
+						+ "pragma_foreign_key_list(m.`name`) f WHERE m.`type` = 'table' "
+						+ "AND f.`table` = ? COLLATE NOCASE AND (f.`on_delete` IN ('CASCADE', 'SET NULL', 'SET DEFAULT') "
+						+ "OR f.`on_update` IN ('CASCADE', 'SET NULL', 'SET DEFAULT'))")) {
+			while (!pending.isEmpty()) {
+				String table = pending.poll();
+				triggers.setString(1, table);
+				try (ResultSet rs = triggers.executeQuery()) {
+					if (rs.next() && rs.getLong(1) > 0L) {
+						return null;
+					}
+				}
+				references.setString(1, table);
+				try (ResultSet rs = references.executeQuery()) {
+					while (rs.next()) {
+						String dependent = rs.getString(1);
+						if (!dependent.equalsIgnoreCase(tableName) && dependents.add(dependent)) {
+							pending.add(dependent);
+						}
+					}
+				}
+			}
+		}
+		return Collections.unmodifiableSet(dependents);
+	}
+
+	private static long queryLong(Statement st, String sql) throws SQLException {
+		try (ResultSet rs = st.executeQuery(sql)) {
+			return rs.next() ? rs.getLong(1) : 0L;
+		}
+	}
+
+	/**
+	 * Re-encrypts the database with a new key in the background while it stays
+	 * in use.
+	 * 
+	 * @param cipher       the cipher to use
+	 * @param newKey       the new key
+	 * @param pagesPerStep the pages to copy per backup step
+	 * @param listener     the progress listener or null
+	 * @return the future completing when the new key is in use
+	 * 
+	 * @see SQLiteKeyRotation
+	 */
+	public CompletableFuture<Void> rotateKey(SQLiteKeyRotation.Cipher cipher, String newKey, int pagesPerStep,
+			ProgressListener listener) {
+		if (Objects.nonNull(workingCopy)) {
+			CompletableFuture<Void> failed = new CompletableFuture<>();
+			failed.completeExceptionally(
+					new SQLFeatureNotSupportedException("key rotation is not supported with a working copy"));
+			return failed;
+		}
+		SQLiteKeyRotation rotation = new SQLiteKeyRotation(this, CONNECTION_FACTORY);
+		return CompletableFuture.runAsync(() -> {
+			try {
+				rotation.rotate(cipher, newKey, pagesPerStep, listener);
+			} catch (SQLException e) {
+				LOGGER.error(e, "Key rotation failed");
+				throw new CompletionException(e);
+			}
+		}, r -> {
+			Thread t = new Thread(r, "lumicore-key-rotation");
+			t.setDaemon(true);
+			t.start();
+		});
+	}
+
+	/**
+	 * Runs the online backup of the connections database to the destination.
+	 * 
+	 * @param c            the source connection
+	 * @param destination  the destination file name or URI
+	 * @param observer     the step observer
+	 * @param pagesPerStep the pages per step if supported by the driver
+	 * @return the SQLite result code
+	 * @throws SQLException
+	 */
+	final int backup(Connection c, String destination, ProgressObserver observer, int pagesPerStep)
+			throws SQLException {
+		org.sqlite.core.DB db = c.unwrap(SQLiteConnection.class).getDatabase();
+		try {
+			Method backup = db.getClass().getMethod("backup", String.class, String.class, ProgressObserver.class,
+					int.class, int.class, int.class);
+			return (Integer) backup.invoke(db, DB.getSchemaName(), destination, observer, 100, 3, pagesPerStep);
+		} catch (NoSuchMethodException e) {
+			return db.backup(DB.getSchemaName(), destination, observer);
+		} catch (IllegalAccessException e) {
+			throw new SQLException(e);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof SQLException) {
+				throw (SQLException) e.getCause();
+			}
+			throw new SQLException(e.getCause());
+		}
+	}
+
 	@Override
 	public Definition getDefinition(Field f) {
 		return null;
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.sqlite;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Objects;
+
+import org.sqlite.core.DB.ProgressObserver;
+
+import com.github.epimethix.lumicore.common.orm.ProgressListener;
+import com.github.epimethix.lumicore.common.orm.sql.ConnectionFactory;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+
+/**
+ * Re-encrypts a SQLite Multiple Ciphers database with a new key while the
+ * database stays in use.
+ * <p>
+ * The database is copied to {@code <database>.rekey} using the online backup
+ * API in page steps. The destination is opened through a URI carrying the
+ * cipher and the new key so every page is written encrypted with the new key.
+ * The copy is verified (PRAGMA quick_check) while the database stays writable.
+ * Then writers are locked out (BEGIN IMMEDIATE on a separate connection), the
+ * database is copied once more if it was written to in the meantime, all
+ * connections to the file are closed and the copy is atomically moved over the
+ * database file. The connection is reopened with the new key. Readers are never
+ * blocked, writers only for the repeated copy and the switch over.
+ * <p>
+ * Requires the rollback journal mode because a WAL file of the old database
+ * would not match the new file.
+ * 
+ * @author epimethix
+ *
+ * @see SQLiteDialect#rotateKey(Cipher, String, int, ProgressListener)
+ */
+public final class SQLiteKeyRotation {
+
+	private final static Logger LOGGER = Log.getLogger("orm-sqlite");
+
+	/**
+	 * The ciphers of SQLite Multiple Ciphers.
+	 */
+	public enum Cipher {
+		CHACHA20("chacha20"), SQLCIPHER("sqlcipher"), AES128("aes128cbc"), AES256("aes256cbc"), RC4("rc4");
+
+		private final String name;
+
+		private Cipher(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return the cipher name as used in the "cipher" URI parameter
+		 */
+		public String getName() {
+			return name;
+		}
+	}
+
+	private final SQLiteDialect dialect;
+	private final ConnectionFactory connectionFactory;
+	private final File databaseFile;
+
+	SQLiteKeyRotation(SQLiteDialect dialect, ConnectionFactory connectionFactory) {
+		this.dialect = dialect;
+		this.connectionFactory = connectionFactory;
+		this.databaseFile = SQLiteUtils.getDatabaseFile(connectionFactory.getConnectionString());
+	}
+
+	/**
+	 * Re-encrypts the database and switches over to the new key.
+	 * 
+	 * @param cipher       the cipher to use
+	 * @param newKey       the new key
+	 * @param pagesPerStep the pages to copy per backup step
+	 * @param listener     the progress listener or null
+	 * @throws SQLException if the rotation failed, the database then remains
+	 *                      unchanged
+	 */
+	void rotate(Cipher cipher, String newKey, int pagesPerStep, ProgressListener listener) throws SQLException {
+		if (Objects.isNull(newKey) || newKey.isEmpty()) {
+			throw new IllegalArgumentException("the new key must not be empty");
+		}
+		File target = new File(databaseFile.getPath().concat(".rekey"));
+		String uri = String.format("file:%s?cipher=%s&key=%s", target.getAbsolutePath(), cipher.getName(),
+				URLEncoder.encode(newKey, StandardCharsets.UTF_8));
+		boolean switched = false;
+		try {
+			/*
+			 * the connections are closed by the switch over, so they are not opened as
+			 * resources of this block
+			 */
+			Connection source = dialect.createConnection();
+			Connection lock;
+			try {
+				lock = dialect.createConnection();
+			} catch (SQLException e) {
+				close(source);
+				throw e;
+			}
+			try {
+				checkJournalMode(source);
+				Files.deleteIfExists(target.toPath());
+				long start = System.currentTimeMillis();
+				long dataVersion = dataVersion(source);
+				ProgressObserver observer = (remaining, pageCount) -> {
+					if (Objects.nonNull(listener)) {
+						listener.progress(remaining, pageCount);
+					}
+					if (remaining > 0) {
+						try {
+							Thread.sleep(SQLiteDialect.BACKUP_STEP_PAUSE_MILLIS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				};
+				copy(source, uri, observer, pagesPerStep);
+				/*
+				 * the full check takes time proportional to the database size, run it
+				 * before writers are locked out
+				 */
+				verify(target, cipher, newKey, true);
+				lockWriters(lock);
+				boolean[] locked = { true };
+				try {
+					if (dataVersion(source) != dataVersion) {
+						/*
+						 * the database was written to during the copy, copy again while locked
+						 */
+						copy(source, uri, null, pagesPerStep);
+						verify(target, cipher, newKey, false);
+					}
+					dialect.switchOver(() -> {
+						/*
+						 * the file can not be replaced while it is open (Windows), the cached
+						 * connection is closed and no connection can be opened during the
+						 * switch over so writers stay locked out
+						 */
+						unlockWriters(lock);
+						locked[0] = false;
+						lock.close();
+						source.close();
+						try {
+							Files.move(target.toPath(), databaseFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+									StandardCopyOption.ATOMIC_MOVE);
+						} catch (IOException e) {
+							throw new SQLException(e);
+						}
+						connectionFactory.setPassword(newKey);
+						connectionFactory.setProperty("cipher", cipher.getName());
+					});
+					switched = true;
+					LOGGER.info("Key of '%s' was rotated (%s) in %d ms", databaseFile.getPath(), cipher.getName(),
+							System.currentTimeMillis() - start);
+				} finally {
+					if (locked[0] && !lock.isClosed()) {
+						unlockWriters(lock);
+					}
+				}
+			} finally {
+				close(lock);
+				close(source);
+			}
+		} catch (IOException e) {
+			throw new SQLException(e);
+		} finally {
+			if (!switched) {
+				try {
+					Files.deleteIfExists(target.toPath());
+				} catch (IOException e) {
+					LOGGER.warn("'%s' could not be removed: %s", target.getPath(), e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void close(Connection c) {
+		try {
+			c.close();
+		} catch (SQLException e) {
+			LOGGER.warn("Connection could not be closed: %s", e.getMessage());
+		}
+	}
+
+	private void copy(Connection source, String uri, ProgressObserver observer, int pagesPerStep)
+			throws SQLException {
+		int rc = dialect.backup(source, uri, observer, pagesPerStep);
+		if (rc != 0) {
+			throw new SQLException(
+					String.format("Re-encrypting '%s' failed with result code %d", databaseFile.getPath(), rc));
+		}
+	}
+
+	private static void checkJournalMode(Connection c) throws SQLException {
+		try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("PRAGMA journal_mode")) {
+			if (rs.next() && "wal".equalsIgnoreCase(rs.getString(1))) {
+				throw new SQLFeatureNotSupportedException("key rotation is not supported in WAL journal mode");
+			}
+		}
+	}
+
+	private static void lockWriters(Connection lock) throws SQLException {
+		try (Statement st = lock.createStatement()) {
+			st.execute("BEGIN IMMEDIATE");
+		}
+	}
+
+	private static void unlockWriters(Connection lock) throws SQLException {
+		try (Statement st = lock.createStatement()) {
+			st.execute("ROLLBACK");
+		}
+	}
+
+	/**
+	 * Gets the data version which changes when other connections commit.
+	 */
+	private static long dataVersion(Connection c) throws SQLException {
+		try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery("PRAGMA data_version")) {
+			return rs.next() ? rs.getLong(1) : -1L;
+		}
+	}
+
+	/**
+	 * Verifies the copy.
+	 * 
+	 * @param target the copy
+	 * @param cipher the cipher
+	 * @param newKey the new key
+	 * @param full   true to run PRAGMA quick_check, false to only test that the
+	 *               copy can be read with the new key
+	 * @throws SQLException if the verification failed
+	 */
+	private void verify(File target, Cipher cipher, String newKey, boolean full) throws SQLException {
+		ConnectionFactory cf = new ConnectionFactory(SQLiteUtils.connectToFile(target.toPath()), "", newKey);
+		cf.setProperty("cipher", cipher.getName());
+		try (Connection c = cf.createConnection();
+				Statement st = c.createStatement();
+				ResultSet rs = st.executeQuery(full ? "PRAGMA quick_check" : "SELECT count(*) FROM sqlite_master")) {
+			if (!rs.next() || (full && !"ok".equalsIgnoreCase(rs.getString(1)))) {
+				throw new SQLException(String.format("Verification of '%s' failed", target.getPath()));
+			}
+		}
+	}
+}
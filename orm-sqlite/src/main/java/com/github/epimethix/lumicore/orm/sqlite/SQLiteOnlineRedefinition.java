@@ -0,0 +1,392 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.sqlite;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.github.epimethix.lumicore.common.orm.Database;
+import com.github.epimethix.lumicore.common.orm.ProgressListener;
+import com.github.epimethix.lumicore.common.orm.sql.TableInfo;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+import com.github.epimethix.lumicore.properties.LumicoreProperties;
+
+/**
+ * Redefines a table while it stays in use.
+ * <p>
+ * The new definition is deployed as {@code <table>_online_new}, triggers on
+ * the table replay every insert, update and delete into the new table and the
+ * rows are copied in key order chunk by chunk, each chunk in its own short
+ * transaction. The position is persisted in {@value #PROGRESS_TABLE} with each
+ * chunk so an interrupted redefinition resumes where it stopped. Finally the
+ * table is dropped and the new table renamed in one short transaction.
+ * <p>
+ * Rowid tables are copied in rowid order, WITHOUT ROWID tables in the order of
+ * their single primary key column. The rows are identified by the primary key
+ * to replay changes, so the primary key columns must be kept.
+ * 
+ * @author epimethix
+ *
+ * @see SQLiteDialect#redefineEntityOnline(com.github.epimethix.lumicore.common.orm.Repository,
+ *      int, ProgressListener)
+ */
+final class SQLiteOnlineRedefinition {
+
+	private final static Logger LOGGER = Log.getLogger("orm-sqlite");
+
+	static final String PROGRESS_TABLE = "lumicore_migrations";
+	static final String SHADOW_TABLE_SUFFIX = "_online_new";
+
+	private static final String[] TRIGGER_SUFFIXES = { "_online_ai", "_online_au", "_online_ad" };
+
+	private final SQLiteDialect dialect;
+	private final Database db;
+	private final String tableName;
+	private final String shadowTable;
+	private final String shadowDefinition;
+	private final String[] newNames;
+	private final String[] oldNames;
+
+	/**
+	 * @param dialect         the dialect
+	 * @param db              the database
+	 * @param tableName       the table to redefine
+	 * @param createStatement the create statement of the new definition
+	 * @param newNames        the columns to copy to
+	 * @param oldNames        the columns to copy from
+	 */
+	SQLiteOnlineRedefinition(SQLiteDialect dialect, Database db, String tableName, String createStatement,
+			String[] newNames, String[] oldNames) {
+		this.dialect = dialect;
+		this.db = db;
+		this.tableName = tableName;
+		this.shadowTable = tableName.concat(SHADOW_TABLE_SUFFIX);
+		this.shadowDefinition = createStatement.substring(createStatement.indexOf("(")).trim();
+		this.newNames = newNames;
+		this.oldNames = oldNames;
+	}
+
+	static boolean isOnlineRedefinitionTable(String tableName) {
+		return PROGRESS_TABLE.equals(tableName) || tableName.endsWith(SHADOW_TABLE_SUFFIX);
+	}
+
+	/**
+	 * Runs or resumes the redefinition.
+	 * 
+	 * @param chunkSize the rows to copy per transaction
+	 * @param listener  the progress listener or null
+	 * @return false if the table cannot be redefined online (nothing was changed)
+	 * @throws SQLException
+	 */
+	boolean run(int chunkSize, ProgressListener listener) throws SQLException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be positive");
+		}
+		/*
+		 * the primary key columns identify the rows in both tables
+		 */
+		List<String> oldKeys = new ArrayList<>();
+		for (TableInfo ti : dialect.tableInfo(tableName)) {
+			if (ti.isPk()) {
+				oldKeys.add(ti.getName());
+			}
+		}
+		String[] newKeys = new String[oldKeys.size()];
+		for (int i = 0; i < newKeys.length; i++) {
+			for (int j = 0; j < oldNames.length; j++) {
+				if (oldNames[j].equals(oldKeys.get(i))) {
+					newKeys[i] = newNames[j];
+				}
+			}
+			if (Objects.isNull(newKeys[i])) {
+				return false;
+			}
+		}
+		if (oldKeys.isEmpty()) {
+			return false;
+		}
+		Connection c = db.getConnection();
+		try {
+			boolean withoutRowid;
+			try (Statement st = c.createStatement()) {
+				withoutRowid = isWithoutRowid(st, tableName);
+			}
+			if (withoutRowid && oldKeys.size() != 1) {
+				return false;
+			}
+			String chunkKey = withoutRowid ? oldKeys.get(0) : "rowid";
+			Object[] position = prepare(c, oldKeys, newKeys);
+			copy(c, chunkKey, position[0], ((Number) position[1]).longValue(), chunkSize, listener);
+			swap(c);
+			return true;
+		} finally {
+			db.checkClose(LumicoreProperties.CLOSE_CONNECTION_AFTER_OPERATION);
+		}
+	}
+
+	/**
+	 * Deploys the new table and the triggers or finds the state of an interrupted
+	 * run.
+	 * 
+	 * @return {last key, copied rows}
+	 */
+	private Object[] prepare(Connection c, List<String> oldKeys, String[] newKeys) throws SQLException {
+		try (Statement st = c.createStatement()) {
+			st.executeUpdate(String.format("CREATE TABLE IF NOT EXISTS `%s` (`table_name` TEXT PRIMARY KEY, "
+					+ "`definition` TEXT NOT NULL, `last_key`, `copied` INTEGER NOT NULL) WITHOUT ROWID",
+					PROGRESS_TABLE));
+			boolean resumable = exists(st, "table", shadowTable);
+			for (String suffix : TRIGGER_SUFFIXES) {
+				resumable &= exists(st, "trigger", tableName.concat(suffix));
+			}
+			if (resumable) {
+				try (PreparedStatement ps = c.prepareStatement(String.format(
+						"SELECT `definition`, `last_key`, `copied` FROM `%s` WHERE `table_name` = ?", PROGRESS_TABLE))) {
+					ps.setString(1, tableName);
+					try (ResultSet rs = ps.executeQuery()) {
+						if (rs.next() && shadowDefinition.equals(rs.getString(1))) {
+							Object lastKey = rs.getObject(2);
+							long copied = rs.getLong(3);
+							LOGGER.info("Resuming the online redefinition of '%s' after %d rows", tableName, copied);
+							return new Object[] { lastKey, copied };
+						}
+					}
+				}
+			}
+		}
+		inTransaction(c, st -> {
+			dropTriggers(st);
+			st.executeUpdate(String.format("DROP TABLE IF EXISTS `%s`", shadowTable));
+			st.executeUpdate(String.format("CREATE TABLE `%s` %s", shadowTable, shadowDefinition));
+			String columns = join("`%s`", newNames, ", ");
+			String matchOld = join(newKeys, oldKeys.toArray(new String[0]), "`%s` = OLD.`%s`", " AND ");
+			String replaceNew = String.format("INSERT OR REPLACE INTO `%s` (%s) VALUES (%s);", shadowTable, columns,
+					join("NEW.`%s`", oldNames, ", "));
+			String deleteOld = String.format("DELETE FROM `%s` WHERE %s;", shadowTable, matchOld);
+			st.executeUpdate(String.format("CREATE TRIGGER `%s%s` AFTER INSERT ON `%s` BEGIN %s END", tableName,
+					TRIGGER_SUFFIXES[0], tableName, replaceNew));
+			st.executeUpdate(String.format("CREATE TRIGGER `%s%s` AFTER UPDATE ON `%s` BEGIN %s %s END", tableName,
+					TRIGGER_SUFFIXES[1], tableName, deleteOld, replaceNew));
+			st.executeUpdate(String.format("CREATE TRIGGER `%s%s` AFTER DELETE ON `%s` BEGIN %s END", tableName,
+					TRIGGER_SUFFIXES[2], tableName, deleteOld));
+			try (PreparedStatement ps = c.prepareStatement(String.format(
+					"INSERT OR REPLACE INTO `%s` (`table_name`, `definition`, `last_key`, `copied`) VALUES (?, ?, NULL, 0)",
+					PROGRESS_TABLE))) {
+				ps.setString(1, tableName);
+				ps.setString(2, shadowDefinition);
+				ps.executeUpdate();
+			}
+		});
+		return new Object[] { null, 0L };
+	}
+
+	private void copy(Connection c, String chunkKey, Object lastKey, long copied, int chunkSize,
+			ProgressListener listener) throws SQLException {
+		long total = copied + ((Number) querySingle(c,
+				String.format("SELECT count(*) FROM `%s` WHERE %s", tableName, after(chunkKey, lastKey)), lastKey))
+						.longValue();
+		String sqlUpperBound = String.format("SELECT `%s` FROM `%s` WHERE %%s ORDER BY `%s` LIMIT 1 OFFSET %d",
+				chunkKey, tableName, chunkKey, chunkSize - 1);
+		String sqlMaxKey = String.format("SELECT max(`%s`) FROM `%s` WHERE %%s", chunkKey, tableName);
+		String sqlCopy = String.format("INSERT OR REPLACE INTO `%s` (%s) SELECT %s FROM `%s` WHERE %%s AND `%s` <= ?",
+				shadowTable, join("`%s`", newNames, ", "), join("`%s`", oldNames, ", "), tableName, chunkKey);
+		String sqlProgress = String.format("UPDATE `%s` SET `last_key` = ?, `copied` = ? WHERE `table_name` = ?",
+				PROGRESS_TABLE);
+		long start = System.currentTimeMillis();
+		long copiedThisRun = 0L;
+		while (true) {
+			Object from = lastKey;
+			Object to = querySingle(c, String.format(sqlUpperBound, after(chunkKey, from)), from);
+			if (Objects.isNull(to)) {
+				to = querySingle(c, String.format(sqlMaxKey, after(chunkKey, from)), from);
+				if (Objects.isNull(to)) {
+					break;
+				}
+			}
+			Object upperBound = to;
+			long[] rows = { 0L };
+			long copiedBefore = copied;
+			inTransaction(c, st -> {
+				try (PreparedStatement ps = c.prepareStatement(String.format(sqlCopy, after(chunkKey, from)))) {
+					int i = bind(ps, 1, from);
+					ps.setObject(i, upperBound);
+					rows[0] = ps.executeUpdate();
+				}
+				try (PreparedStatement ps = c.prepareStatement(sqlProgress)) {
+					ps.setObject(1, upperBound);
+					ps.setLong(2, copiedBefore + rows[0]);
+					ps.setString(3, tableName);
+					ps.executeUpdate();
+				}
+			});
+			lastKey = upperBound;
+			copied += rows[0];
+			copiedThisRun += rows[0];
+			if (Objects.nonNull(listener)) {
+				listener.progress((int) Math.min(Integer.MAX_VALUE, Math.max(0L, total - copied)),
+						(int) Math.min(Integer.MAX_VALUE, total));
+			}
+			LOGGER.trace("%s: %d/%d rows copied", tableName, copied, total);
+			try {
+				/*
+				 * let other writers in between the chunks
+				 */
+				Thread.sleep(SQLiteDialect.BACKUP_STEP_PAUSE_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException(String.format("The online redefinition of '%s' was interrupted", tableName));
+			}
+		}
+		long millis = Math.max(1L, System.currentTimeMillis() - start);
+		LOGGER.info("%d rows of '%s' were copied in %d ms (%d rows/s)", copiedThisRun, tableName, millis,
+				copiedThisRun * 1000L / millis);
+	}
+
+	/**
+	 * Replaces the table by the new table.
+	 */
+	private void swap(Connection c) throws SQLException {
+		long start = System.currentTimeMillis();
+		boolean toggleForeignKeys = dialect.isPragmaForeignKeysEnabled();
+		/*
+		 * dropping the table must not trigger actions on referencing tables
+		 */
+		try (Statement st = c.createStatement()) {
+			if (toggleForeignKeys) {
+				st.executeUpdate(Pragma.SQL_DISABLE_FOREIGN_KEYS);
+			}
+			st.executeUpdate(Pragma.SQL_ENABLE_LEGACY_ALTER_TABLE);
+		}
+		try {
+			inTransaction(c, st -> {
+				dropTriggers(st);
+				st.executeUpdate(String.format("DROP TABLE `%s`", tableName));
+				st.executeUpdate(AlterTable.sqlAlterTableRenameTo(shadowTable, tableName));
+				st.executeUpdate(
+						String.format("DELETE FROM `%s` WHERE `table_name` = '%s'", PROGRESS_TABLE, tableName));
+			});
+		} finally {
+			try (Statement st = c.createStatement()) {
+				if (toggleForeignKeys) {
+					st.executeUpdate(Pragma.SQL_ENABLE_FOREIGN_KEYS);
+				}
+				st.executeUpdate(Pragma.SQL_DISABLE_LEGACY_ALTER_TABLE);
+			}
+		}
+		LOGGER.info("Table '%s' was redefined online, the swap took %d ms", tableName,
+				System.currentTimeMillis() - start);
+	}
+
+	private void dropTriggers(Statement st) throws SQLException {
+		for (String suffix : TRIGGER_SUFFIXES) {
+			st.executeUpdate(String.format("DROP TRIGGER IF EXISTS `%s%s`", tableName, suffix));
+		}
+	}
+
+	@FunctionalInterface
+	private interface Work {
+		void run(Statement st) throws SQLException;
+	}
+
+	private static void inTransaction(Connection c, Work work) throws SQLException {
+		boolean autoCommit = c.getAutoCommit();
+		if (autoCommit) {
+			c.setAutoCommit(false);
+		}
+		try (Statement st = c.createStatement()) {
+			work.run(st);
+			if (autoCommit) {
+				c.commit();
+			}
+		} catch (SQLException e) {
+			if (autoCommit) {
+				c.rollback();
+			}
+			throw e;
+		} finally {
+			if (autoCommit) {
+				c.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * The condition selecting the rows after the specified key, bound by
+	 * {@link #bind(PreparedStatement, int, Object)}.
+	 */
+	private static String after(String chunkKey, Object lastKey) {
+		return Objects.isNull(lastKey) ? "1 = 1" : String.format("`%s` > ?", chunkKey);
+	}
+
+	private static int bind(PreparedStatement ps, int i, Object lastKey) throws SQLException {
+		if (Objects.nonNull(lastKey)) {
+			ps.setObject(i++, lastKey);
+		}
+		return i;
+	}
+
+	private static Object querySingle(Connection c, String sql, Object lastKey) throws SQLException {
+		try (PreparedStatement ps = c.prepareStatement(sql)) {
+			bind(ps, 1, lastKey);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getObject(1) : null;
+			}
+		}
+	}
+
+	private static boolean exists(Statement st, String type, String name) throws SQLException {
+		try (ResultSet rs = st.executeQuery(String.format(
+				"SELECT count(*) FROM sqlite_master WHERE `type` = '%s' AND `name` = '%s'", type, name))) {
+			return rs.next() && rs.getLong(1) > 0L;
+		}
+	}
+
+	private static boolean isWithoutRowid(Statement st, String tableName) throws SQLException {
+		try (ResultSet rs = st
+				.executeQuery(String.format("SELECT `sql` FROM sqlite_master WHERE `name` = '%s'", tableName))) {
+			return rs.next() && rs.getString(1).toUpperCase().trim().endsWith("WITHOUT ROWID");
+		}
+	}
+
+	private static String join(String format, String[] names, String delimiter) {
+		StringBuilder b = new StringBuilder();
+		for (String name : names) {
+			if (b.length() > 0) {
+				b.append(delimiter);
+			}
+			b.append(String.format(format, name));
+		}
+		return b.toString();
+	}
+
+	private static String join(String[] a, String[] b, String format, String delimiter) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < a.length; i++) {
+			if (sb.length() > 0) {
+				sb.append(delimiter);
+			}
+			sb.append(String.format(format, a[i], b[i]));
+		}
+		return sb.toString();
+	}
+}
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Objects;
 
 import com.github.epimethix.lumicore.common.orm.IntegerEnum;
+import com.github.epimethix.lumicore.common.orm.LargeObject;
 import com.github.epimethix.lumicore.common.orm.model.Entity;
 import com.github.epimethix.lumicore.common.orm.sql.ConnectionFactory;
 import com.github.epimethix.lumicore.common.orm.sqlite.Definition;
@@ -132,6 +133,7 @@ public final class SQLiteUtils {
 		map.put(char[].class, Types.BLOB);
 		map.put(BigInteger.class, Types.BLOB);
 		map.put(BigDecimal.class, Types.BLOB);
+		map.put(LargeObject.class, Types.BLOB);
 
 		return map;
 	}
@@ -175,7 +177,7 @@ public final class SQLiteUtils {
 		if (Objects.nonNull(resolvedType)) {
 			return resolvedType;
 		} else if (ORM.isJsonType(type)) {
-			return Types.VARCHAR;
+			return ORM.isBinaryJsonType(type) ? Types.BLOB : Types.VARCHAR;
 		} else if (type.isEnum() && IntegerEnum.class.isAssignableFrom(type)) {
 			return Types.INTEGER;
 		} else if (type.isEnum()) {
@@ -380,4 +382,23 @@ public final class SQLiteUtils {
 	public static ConnectionFactory connectToFile(File dbFile) {
 		return new ConnectionFactory(CONNECTION_TO_FILE + dbFile.getPath(), "", "");
 	}
+
+	/**
+	 * Gets the database file of a file connection string.
+	 * 
+	 * @param connectionString the connection string, for example
+	 *                         "jdbc:sqlite:file:data/app.db"
+	 * @return the database file
+	 */
+	public static File getDatabaseFile(String connectionString) {
+		String path = connectionString.substring("jdbc:sqlite:".length());
+		if (path.startsWith("file:")) {
+			path = path.substring("file:".length());
+		}
+		int query = path.indexOf('?');
+		if (query > -1) {
+			path = path.substring(0, query);
+		}
+		return new File(path);
+	}
 }
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.sqlite;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.sqlite.SQLiteConnection;
+
+import com.github.epimethix.lumicore.common.orm.sql.ConnectionFactory;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+import com.github.epimethix.lumicore.orm.annotation.database.WorkingCopy;
+
+/**
+ * In-memory working copy of a SQLite database file.
+ * <p>
+ * The file is restored into a single in-memory connection using the online
+ * backup API. All connections handed out are views of that connection which
+ * ignore {@link Connection#close()} because closing the in-memory connection
+ * would discard the database. Changes are detected using
+ * {@code total_changes()} and the schema version (DDL is not counted by
+ * {@code total_changes()}) and written back to the file using the online backup
+ * API according to the {@link WorkingCopy} policy. A write back is postponed
+ * while a transaction is open, transactions can not be begun or ended during a
+ * write back.
+ * 
+ * @author epimethix
+ *
+ */
+final class SQLiteWorkingCopy {
+
+	private final static Logger LOGGER = Log.getLogger("orm-sqlite");
+
+	private final static String CONNECTION_TO_MEMORY = "jdbc:sqlite::memory:";
+
+	private final static String SCHEMA_NAME = "main";
+
+	private final File file;
+	private final Connection memory;
+	private final Connection view;
+	private final long flushDelayMillis;
+	private final long maxDataLossMillis;
+	private final ScheduledExecutorService scheduler;
+	/**
+	 * the change counter at the last write back
+	 */
+	private long flushedChanges;
+	/**
+	 * the change counter at the last check
+	 */
+	private long checkedChanges;
+	/**
+	 * true if a change was reported through {@link #markDirty()}
+	 */
+	private boolean markedDirty;
+	/**
+	 * the time of the first unflushed change detected, 0 if clean
+	 */
+	private long dirtySince;
+	/**
+	 * the time of the last change detected
+	 */
+	private long changedAt;
+
+	SQLiteWorkingCopy(ConnectionFactory connectionFactory, WorkingCopy policy) throws SQLException {
+		this.file = SQLiteUtils.getDatabaseFile(connectionFactory.getConnectionString());
+		this.flushDelayMillis = TimeUnit.SECONDS.toMillis(Math.max(0, policy.flushDelaySeconds()));
+		this.maxDataLossMillis = TimeUnit.SECONDS.toMillis(Math.max(1, policy.maxDataLossSeconds()));
+		this.memory = connectionFactory.createConnection(CONNECTION_TO_MEMORY);
+		if (file.isFile() && file.length() > 0) {
+			long start = System.currentTimeMillis();
+			int rc = memory.unwrap(SQLiteConnection.class).getDatabase().restore(SCHEMA_NAME, file.getAbsolutePath(),
+					null);
+			if (rc != 0) {
+				memory.close();
+				throw new SQLException(
+						String.format("Loading '%s' into memory failed with result code %d", file.getPath(), rc));
+			}
+			LOGGER.info("Loaded '%s' into memory in %d ms", file.getPath(), System.currentTimeMillis() - start);
+		}
+		this.flushedChanges = this.checkedChanges = changeCounter();
+		this.view = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "close":
+						return null;
+					case "isClosed":
+						return memory.isClosed();
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "setAutoCommit":
+					case "commit":
+					case "rollback":
+					case "setSavepoint":
+					case "releaseSavepoint":
+						/*
+						 * transaction control waits for a running write back
+						 */
+						synchronized (this) {
+							return invoke(method, args);
+						}
+					default:
+						return invoke(method, args);
+					}
+				});
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "lumicore-working-copy");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(this::check, 1L, 1L, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @return a connection to the working copy that cannot be closed
+	 */
+	Connection getConnection() {
+		return view;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return true if the working copy contains any schema object
+	 */
+	boolean isDeployed() {
+		try (Statement st = memory.createStatement();
+				ResultSet rs = st.executeQuery("SELECT count(*) FROM sqlite_master")) {
+			return rs.next() && rs.getLong(1) > 0;
+		} catch (SQLException e) {
+			LOGGER.error(e);
+			return false;
+		}
+	}
+
+	private Object invoke(Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(memory, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Gets {@code total_changes()} plus the schema version, both only grow so
+	 * the counter changes with every row change and every DDL statement.
+	 */
+	private long changeCounter() throws SQLException {
+		try (Statement st = memory.createStatement()) {
+			long changes;
+			try (ResultSet rs = st.executeQuery("SELECT total_changes()")) {
+				rs.next();
+				changes = rs.getLong(1);
+			}
+			try (ResultSet rs = st.executeQuery("PRAGMA schema_version")) {
+				rs.next();
+				return changes + rs.getLong(1);
+			}
+		}
+	}
+
+	/**
+	 * Reports a change that must be written back, used after schema
+	 * synchronization.
+	 */
+	synchronized void markDirty() {
+		markedDirty = true;
+		changedAt = System.currentTimeMillis();
+		if (dirtySince == 0L) {
+			dirtySince = changedAt;
+		}
+	}
+
+	private synchronized void check() {
+		try {
+			long changes = changeCounter();
+			long now = System.currentTimeMillis();
+			if (changes != checkedChanges) {
+				checkedChanges = changes;
+				changedAt = now;
+				if (dirtySince == 0L) {
+					dirtySince = now;
+				}
+			}
+			if ((changes != flushedChanges || markedDirty)
+					&& (now - changedAt >= flushDelayMillis || now - dirtySince >= maxDataLossMillis)) {
+				flush();
+			}
+		} catch (SQLException e) {
+			LOGGER.error(e, "Writing back the working copy to '%s' failed", file.getPath());
+		}
+	}
+
+	/**
+	 * Writes the working copy back to the database file if there are unflushed
+	 * changes and no transaction is open.
+	 * 
+	 * @return true if the file is up to date
+	 * @throws SQLException
+	 */
+	synchronized boolean flush() throws SQLException {
+		if (memory.isClosed()) {
+			return true;
+		}
+		long changes = changeCounter();
+		if (changes == flushedChanges && !markedDirty) {
+			return true;
+		}
+		if (!memory.getAutoCommit()) {
+			LOGGER.trace("Write back postponed, a transaction is open");
+			return false;
+		}
+		long start = System.currentTimeMillis();
+		int rc = memory.unwrap(SQLiteConnection.class).getDatabase().backup(SCHEMA_NAME, file.getAbsolutePath(), null);
+		if (rc != 0) {
+			throw new SQLException(
+					String.format("Writing back to '%s' failed with result code %d", file.getPath(), rc));
+		}
+		flushedChanges = checkedChanges = changes;
+		markedDirty = false;
+		dirtySince = 0L;
+		LOGGER.trace("Wrote back the working copy to '%s' in %d ms", file.getPath(), System.currentTimeMillis() - start);
+		return true;
+	}
+
+	/**
+	 * Stops the periodic write back, writes back the working copy and closes it.
+	 * 
+	 * @throws SQLException
+	 */
+	synchronized void close() throws SQLException {
+		scheduler.shutdown();
+		if (Objects.nonNull(memory) && !memory.isClosed()) {
+			try {
+				if (!memory.getAutoCommit()) {
+					LOGGER.warn("Rolling back the open transaction of the working copy");
+					memory.rollback();
+					memory.setAutoCommit(true);
+				}
+				flush();
+			} finally {
+				memory.close();
+			}
+		}
+	}
+}
@@ -25,10 +25,12 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
 
 import com.github.epimethix.lumicore.common.ConfigurationException;
 import com.github.epimethix.lumicore.common.orm.Database;
@@ -155,74 +157,147 @@ public abstract class AbstractManyToManyRepository<E extends AbstractManyToManyE
 		saveByT(b, as, mappingTypeB, fieldNameB, user, closeConnection);
 	}
 
+	/**
+	 * Synchronizes the links of t with the given list of us.
+	 * <p>
+	 * The existing links are loaded using one query (without limit). Only the
+	 * added links are inserted (batched) and only the removed links are deleted
+	 * (DELETE ... WHERE id IN (...)), both within one transaction. Nothing is
+	 * written if the state did not change.
+	 */
 	@SuppressWarnings("unchecked")
 	private <T extends Entity<?>, U extends Entity<?>> void saveByT(T t, List<U> us, Class<?> mappingType,
 			String fieldName, String user, boolean closeConnection) throws SQLException {
 		try {
-
-//	        Field integerListField = testClass.getDeclaredField("integerList");
-//	        ParameterizedType integerListType = (ParameterizedType) integerListField.getGenericType();
-//	        Class<?> integerListClass = (Class<?>) integerListType.getActualTypeArguments()[0];
-//	        System.out.println(integerListClass); // class java.lang.Integer
-
-//			Class<?> classU = (Class<?>) ((ParameterizedType) us.getClass().getGenericSuperclass())
-//					.getActualTypeArguments()[0];
-			Set<E> newState = null;
+			boolean viaA;
 			if (t.getClass() == classA && fieldName.equals(fieldNameA)) {
-				newState = us.stream().map(u -> {
-					E e = newRecord();
-					e.setA((A) t);
-					e.setB((B) u);
-					return e;
-				}).collect(Collectors.toSet());
+				viaA = true;
 			} else if (t.getClass() == classB && fieldName.equals(fieldNameB)) {
-				newState = us.stream().map(u -> {
-					E e = newRecord();
-					e.setA((A) u);
-					e.setB((B) t);
-					return e;
-				}).collect(Collectors.toSet());
+				viaA = false;
 			} else {
 				System.err.println("ManyToMany Error");
 				return;
 			}
-//			Set<E> oldState = new HashSet<>(listBy(t.getId(), mappingType, user, false, fieldName));
-			Set<E> oldState = new HashSet<>(select(b -> b.withCriteria(this).equals(fieldName, t.getId()).leave()));
-			if (newState.equals(oldState)) {
-				return;
+			/*
+			 * new state: other id -> link record
+			 */
+			Map<Object, E> newState = new LinkedHashMap<>();
+			for (U u : us) {
+				E e = newRecord();
+				if (viaA) {
+					e.setA((A) t);
+					e.setB((B) u);
+				} else {
+					e.setA((A) u);
+					e.setB((B) t);
+				}
+				newState.putIfAbsent(idKey(u.getId()), e);
 			}
-			Set<E> toDelete = new HashSet<>(oldState);
-			toDelete.removeAll(newState);
-			Set<E> toSave = new HashSet<>(newState);
-			toSave.removeAll(oldState);
-			// TODO replace with deleteAll
-			toDelete.stream().forEach(e -> {
-				try {
-					deleteById(e.getId());
-				} catch (SQLException e1) {
-					e1.printStackTrace();
+			/*
+			 * old state: other id -> link id
+			 */
+			SelectQuery q = DB.getQueryBuilderFactory().select(this, Entity.ID, fieldNameA, fieldNameB).clearLimit()
+					.withCriteria(this).equals(fieldName, t.getId()).leave().build();
+			Map<Object, Long> oldState = new HashMap<>();
+			List<Long> toDelete = new ArrayList<>();
+			String sql = q.getQueryString();
+			Connection c = DB.getConnection();
+			logQuery(sql, Arrays.asList(q.getCriteriumValues()));
+			try (PreparedStatement ps = c.prepareStatement(sql)) {
+				fillPreparedStatementAutoType(ps, q.getCriteriumValues());
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						long linkId = rs.getLong(1);
+						Object otherId = idKey(rs.getObject(viaA ? 3 : 2));
+						if (!newState.containsKey(otherId) || oldState.containsKey(otherId)) {
+							toDelete.add(linkId);
+						} else {
+							oldState.put(otherId, linkId);
+						}
+					}
+				}
+			} catch (SQLException e) {
+				LOGGER.error(sql);
+				throw e;
+			}
+			List<E> toInsert = new ArrayList<>();
+			for (Map.Entry<Object, E> e : newState.entrySet()) {
+				if (!oldState.containsKey(e.getKey())) {
+					toInsert.add(e.getValue());
 				}
-			});
-			// TODO replace with saveAll
-//			toSave.stream().forEach(e -> {
-//				try {
-//					save(e, QueryParameters.newBuilder(getDB()).userName(user).closeConnection(closeConnection)
-//							.build());
-//				} catch (SQLException | InterruptedException e1) {
-//					e1.printStackTrace();
-//				}
-//			});
-			save(new ArrayList<>(toSave));
+			}
+			if (toDelete.isEmpty() && toInsert.isEmpty()) {
+				return;
+			}
+			writeLinks(toDelete, toInsert, user);
 		} finally {
 			checkClose(closeConnection);
 		}
 	}
 
+	/**
+	 * deletes and inserts link records within one transaction.
+	 */
+	private void writeLinks(List<Long> toDelete, List<E> toInsert, String user) throws SQLException {
+		try {
+			if (lock()) {
+				try {
+					Connection c = DB.getConnection();
+					boolean autoCommit = c.getAutoCommit();
+					if (autoCommit) {
+						c.setAutoCommit(false);
+					}
+					try {
+						deleteBatch(toDelete);
+						insertBatch(toInsert, user);
+						if (autoCommit) {
+							c.commit();
+							DB.getChangeEventBus().commit();
+						}
+					} catch (SQLException e) {
+						if (autoCommit) {
+							c.rollback();
+							DB.getChangeEventBus().rollback();
+						}
+						LOGGER.error(e);
+						throw e;
+					} finally {
+						if (autoCommit) {
+							c.setAutoCommit(true);
+						}
+					}
+				} finally {
+					unlock();
+				}
+			}
+		} catch (InterruptedException e) {
+			LOGGER.error(e);
+			throw new RuntimeException("");
+		}
+	}
+
 	@Override
 	public E saveDirect(Entity<?> o) throws SQLException {
 		return save((E) o).orElse(null);
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public void saveDirect(List<? extends Entity<?>> os) throws SQLException {
+		List<E> toInsert = new ArrayList<>();
+		for (Entity<?> o : os) {
+			Long id = ((E) o).getId();
+			if (Objects.isNull(id) || id.longValue() == 0L) {
+				toInsert.add((E) o);
+			} else {
+				saveDirect(o);
+			}
+		}
+		if (toInsert.size() > 0) {
+			writeLinks(Collections.emptyList(), toInsert, DB.getActiveUser());
+		}
+	}
+
 	@Override
 	public Class<?> getClassA() {
 		return classA;
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.github.epimethix.lumicore.common.orm.Database;
+import com.github.epimethix.lumicore.common.orm.ProgressListener;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+
+/**
+ * Periodically creates rotating online backups of a {@link Database}.
+ * <p>
+ * Backups are written to the backup directory as
+ * {@code <prefix>-yyyyMMdd-HHmmss.db}, only the newest {@code keep} backups
+ * are retained. A run is skipped if the previous backup is still in progress.
+ *
+ * @author epimethix
+ *
+ */
+public final class BackupScheduler implements AutoCloseable {
+
+	private final static Logger LOGGER = Log.getLogger(Log.CHANNEL_ORM);
+
+	private final static DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	private final Database db;
+	private final File directory;
+	private final String prefix;
+	private final int keep;
+	private final int pagesPerStep;
+	private final ProgressListener listener;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Synonym for
+	 * {@code new BackupScheduler(db, directory, prefix, keep, Database.DEFAULT_BACKUP_PAGES_PER_STEP, null)}.
+	 */
+	public BackupScheduler(Database db, File directory, String prefix, int keep) {
+		this(db, directory, prefix, keep, Database.DEFAULT_BACKUP_PAGES_PER_STEP, null);
+	}
+
+	/**
+	 * @param db           the database to back up
+	 * @param directory    the backup directory
+	 * @param prefix       the backup file name prefix
+	 * @param keep         the number of backups to retain
+	 * @param pagesPerStep the number of pages to copy per backup step
+	 * @param listener     the progress listener or null
+	 */
+	public BackupScheduler(Database db, File directory, String prefix, int keep, int pagesPerStep,
+			ProgressListener listener) {
+		if (keep < 1) {
+			throw new IllegalArgumentException("at least one backup must be kept");
+		}
+		this.db = Objects.requireNonNull(db);
+		this.directory = Objects.requireNonNull(directory);
+		this.prefix = Objects.requireNonNull(prefix);
+		this.keep = keep;
+		this.pagesPerStep = pagesPerStep;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts the periodic backups, the first backup is created after one period.
+	 *
+	 * @param period the backup interval
+	 * @param unit   the time unit of period
+	 */
+	public synchronized void start(long period, TimeUnit unit) {
+		if (Objects.nonNull(scheduler)) {
+			throw new IllegalStateException("the backup scheduler is already started");
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "lumicore-backup-scheduler");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleAtFixedRate(() -> {
+			try {
+				backupNow().join();
+			} catch (RuntimeException e) {
+				/*
+				 * already logged, keep the schedule alive
+				 */
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Creates a backup now and removes the outdated backups afterwards.
+	 *
+	 * @return the future completing with the backup file or null if another
+	 *         backup is still running
+	 */
+	public CompletableFuture<File> backupNow() {
+		if (!running.compareAndSet(false, true)) {
+			LOGGER.warn("Backup skipped, the previous backup is still running");
+			return CompletableFuture.completedFuture(null);
+		}
+		if (!directory.exists() && !directory.mkdirs()) {
+			LOGGER.error("Backup directory '%s' could not be created", directory.getPath());
+		}
+		File destination = new File(directory,
+				String.format("%s-%s.db", prefix, LocalDateTime.now().format(TIMESTAMP)));
+		return db.backupTo(destination, pagesPerStep, listener).whenComplete((f, e) -> {
+			try {
+				if (Objects.isNull(e)) {
+					rotate();
+				}
+			} finally {
+				running.set(false);
+			}
+		});
+	}
+
+	/**
+	 * Lists the backups of this scheduler, the oldest first.
+	 *
+	 * @return the existing backup files
+	 */
+	public List<File> listBackups() {
+		File[] files = directory.listFiles((d, name) -> name.startsWith(prefix + "-") && name.endsWith(".db"));
+		if (Objects.isNull(files)) {
+			return Collections.emptyList();
+		}
+		List<File> backups = new ArrayList<>(Arrays.asList(files));
+		backups.sort((a, b) -> a.getName().compareTo(b.getName()));
+		return backups;
+	}
+
+	private void rotate() {
+		List<File> backups = listBackups();
+		for (int i = 0; i < backups.size() - keep; i++) {
+			File outdated = backups.get(i);
+			if (outdated.delete()) {
+				LOGGER.info("Removed outdated backup '%s'", outdated.getPath());
+			} else {
+				LOGGER.warn("Outdated backup '%s' could not be removed", outdated.getPath());
+			}
+		}
+	}
+
+	/**
+	 * Stops the periodic backups. A running backup is completed.
+	 */
+	@Override
+	public synchronized void close() {
+		if (Objects.nonNull(scheduler)) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The row values of a cached select result.
+ * <p>
+ * The query cache stores the values rather than the entities so every cache
+ * hit initializes fresh entity instances, see {@link #cursor()}.
+ * 
+ * @author epimethix
+ *
+ */
+final class CachedRows {
+
+	private final List<Object[]> rows;
+	private final int columns;
+
+	private CachedRows(List<Object[]> rows, int columns) {
+		this.rows = Collections.unmodifiableList(rows);
+		this.columns = columns;
+	}
+
+	/**
+	 * Reads the remaining rows of the specified result set.
+	 * 
+	 * @param rs the result set
+	 * @return the row values
+	 * @throws SQLException
+	 */
+	static CachedRows read(ResultSet rs) throws SQLException {
+		int columns = rs.getMetaData().getColumnCount();
+		List<Object[]> rows = new ArrayList<>();
+		while (rs.next()) {
+			Object[] row = new Object[columns];
+			for (int i = 0; i < columns; i++) {
+				row[i] = copy(rs.getObject(i + 1));
+			}
+			rows.add(row);
+		}
+		return new CachedRows(rows, columns);
+	}
+
+	private static Object copy(Object value) {
+		return value instanceof byte[] ? ((byte[]) value).clone() : value;
+	}
+
+	int size() {
+		return rows.size();
+	}
+
+	/**
+	 * @return the number of cells, used as the weight of the cache entry
+	 */
+	long cells() {
+		return (long) rows.size() * columns;
+	}
+
+	/**
+	 * Gets a forward only cursor over the rows. The cursor supports
+	 * {@code next()}, {@code getObject(int)}, {@code wasNull()} and
+	 * {@code close()} which is all {@link SQLRepository#initializeRecord} needs,
+	 * other methods throw {@link SQLFeatureNotSupportedException}. Byte arrays
+	 * are copied so the cached values can not be changed through an entity.
+	 * 
+	 * @return a new cursor positioned before the first row
+	 */
+	ResultSet cursor() {
+		return (ResultSet) Proxy.newProxyInstance(CachedRows.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, new Cursor());
+	}
+
+	private final class Cursor implements InvocationHandler {
+		private int row = -1;
+		private boolean wasNull;
+		private boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "next":
+				if (closed) {
+					throw new SQLException("The result set is closed");
+				}
+				if (row < rows.size()) {
+					row++;
+				}
+				return row < rows.size();
+			case "getObject":
+				if (args.length == 1 && args[0] instanceof Integer) {
+					if (closed || row < 0 || row >= rows.size()) {
+						throw new SQLException("The result set is not positioned on a row");
+					}
+					int column = (Integer) args[0];
+					if (column < 1 || column > columns) {
+						throw new SQLException(String.format("Column index %d out of range", column));
+					}
+					Object value = rows.get(row)[column - 1];
+					wasNull = value == null;
+					return copy(value);
+				}
+				break;
+			case "wasNull":
+				return wasNull;
+			case "close":
+				closed = true;
+				return null;
+			case "isClosed":
+				return closed;
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "equals":
+				return proxy == args[0];
+			case "toString":
+				return String.format("CachedRows.Cursor [row=%d, rows=%d]", row, rows.size());
+			default:
+			}
+			throw new SQLFeatureNotSupportedException(method.getName());
+		}
+	}
+}
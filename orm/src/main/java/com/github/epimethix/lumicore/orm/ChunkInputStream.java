@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Reads the content of a chunked large object one chunk at a time.
+ *
+ * @author epimethix
+ *
+ */
+final class ChunkInputStream extends InputStream {
+
+	@FunctionalInterface
+	interface ChunkReader {
+		/**
+		 * @param seq the zero based chunk number
+		 * @return the chunk or null if it does not exist
+		 */
+		byte[] read(long seq) throws SQLException;
+	}
+
+	private final ChunkReader reader;
+	private long remaining;
+	private long seq;
+	private byte[] chunk;
+	private int pos;
+
+	/**
+	 * @param reader the chunk reader
+	 * @param length the content length in bytes
+	 */
+	ChunkInputStream(ChunkReader reader, long length) {
+		this.reader = reader;
+		this.remaining = length;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		remaining--;
+		return chunk[pos++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int n = (int) Math.min(Math.min(len, chunk.length - pos), remaining);
+		System.arraycopy(chunk, pos, b, off, n);
+		pos += n;
+		remaining -= n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return Objects.isNull(chunk) ? 0 : (int) Math.min(chunk.length - pos, remaining);
+	}
+
+	private boolean fill() throws IOException {
+		if (remaining <= 0) {
+			return false;
+		}
+		if (Objects.nonNull(chunk) && pos < chunk.length) {
+			return true;
+		}
+		try {
+			chunk = reader.read(seq);
+		} catch (SQLException e) {
+			throw new IOException(e);
+		}
+		if (Objects.isNull(chunk) || chunk.length == 0) {
+			throw new IOException(String.format("chunk %d is missing, %d bytes remaining", seq, remaining));
+		}
+		seq++;
+		pos = 0;
+		return true;
+	}
+}
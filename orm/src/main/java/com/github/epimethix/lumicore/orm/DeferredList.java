@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A to-many list passed to the constructor of an immutable entity before the
+ * list can be resolved, the list refers to the constructed entity.
+ * <p>
+ * The list forwards to its target once it is bound. Until then it behaves as an
+ * empty list and remembers that it was accessed, the constructor then copied
+ * the list instead of keeping it.
+ * 
+ * @author epimethix
+ *
+ */
+final class DeferredList implements InvocationHandler {
+
+	private final List<?> list;
+	private List<?> target;
+	private boolean accessed;
+
+	DeferredList() {
+		this.list = (List<?>) Proxy.newProxyInstance(ClassLoader.getSystemClassLoader(),
+				new Class<?>[] { List.class }, this);
+	}
+
+	/**
+	 * @return the list to pass to the constructor
+	 */
+	List<?> list() {
+		return list;
+	}
+
+	/**
+	 * @return true if the list was accessed before it was bound
+	 */
+	boolean isAccessed() {
+		return accessed;
+	}
+
+	/**
+	 * Binds the list to the resolved to-many list.
+	 * 
+	 * @param target the resolved list
+	 */
+	void bind(List<?> target) {
+		this.target = target;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		List<?> l = target;
+		if (Objects.isNull(l)) {
+			accessed = true;
+			l = Collections.emptyList();
+		}
+		try {
+			return method.invoke(l, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
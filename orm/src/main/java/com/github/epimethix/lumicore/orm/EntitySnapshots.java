@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Snapshots of the column values of loaded entities used for change tracking.
+ * <p>
+ * Entities are keyed by identity and weakly referenced so a snapshot never
+ * keeps an entity alive. The stored values are the database values (after the
+ * java to db transformation) in mapping order.
+ *
+ * @author epimethix
+ *
+ */
+final class EntitySnapshots {
+
+	private final WeakIdentityMap<Object[]> snapshots = new WeakIdentityMap<>();
+
+	/**
+	 * Stores the snapshot of the specified entity, byte arrays are copied.
+	 *
+	 * @param entity the entity
+	 * @param values the database values in mapping order
+	 */
+	synchronized void put(Object entity, Object[] values) {
+		Object[] copy = new Object[values.length];
+		for (int i = 0; i < values.length; i++) {
+			copy[i] = values[i] instanceof byte[] ? ((byte[]) values[i]).clone() : values[i];
+		}
+		snapshots.put(entity, copy);
+	}
+
+	/**
+	 * Gets the snapshot of the specified entity.
+	 *
+	 * @param entity the entity
+	 * @return the database values in mapping order or null if the entity is not
+	 *         tracked
+	 */
+	synchronized Object[] get(Object entity) {
+		return snapshots.get(entity);
+	}
+
+	synchronized void remove(Object entity) {
+		snapshots.remove(entity);
+	}
+
+	synchronized void clear() {
+		snapshots.clear();
+	}
+
+	/**
+	 * Compares a snapshot value with a current database value. Numbers are
+	 * compared by value because the driver may deliver a narrower type than the
+	 * transformation.
+	 *
+	 * @param a the snapshot value
+	 * @param b the current value
+	 * @return true if both values would be stored equally
+	 */
+	static boolean valueEquals(Object a, Object b) {
+		if (Objects.equals(a, b)) {
+			return true;
+		}
+		if (a instanceof byte[] && b instanceof byte[]) {
+			return Arrays.equals((byte[]) a, (byte[]) b);
+		}
+		if (a instanceof Number && b instanceof Number) {
+			Number x = (Number) a;
+			Number y = (Number) b;
+			if (isIntegral(x) && isIntegral(y)) {
+				return x.longValue() == y.longValue();
+			}
+			return Double.compare(x.doubleValue(), y.doubleValue()) == 0;
+		}
+		return false;
+	}
+
+	private static boolean isIntegral(Number n) {
+		return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+	}
+}
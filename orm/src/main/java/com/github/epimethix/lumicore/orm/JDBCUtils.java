@@ -15,16 +15,17 @@
  */
 package com.github.epimethix.lumicore.orm;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import com.github.epimethix.lumicore.common.orm.sql.Dialect;
@@ -48,37 +49,29 @@ public class JDBCUtils {
 
 	/**
 	 * Reads the SQL Script file and turns it into a String[] holding the individual
-	 * SQL statements.
-	 * 
-	 * TODO: Ignore comments
+	 * SQL statements. Comments are removed.
+	 * <p>
+	 * Use {@link SQLScriptReader} to read large scripts statement by statement.
 	 * 
 	 * @param script The script file to be read.
 	 * 
-	 * @return a String[] containing the individual SQL statements found in the file
-	 *         or null if the file is empty.
-	 * @throws IOException if any IOException occurs
+	 * @return a String[] containing the individual SQL statements found in the
+	 *         file.
+	 * @throws IOException if any IOException occurs or the file is empty
 	 */
 	public final static String[] readScript(File script) throws IOException {
-		try (InputStream is = new FileInputStream(script);
-				InputStreamReader isr = new InputStreamReader(is);
-				BufferedReader br = new BufferedReader(isr)) {
-			StringBuffer sb = new StringBuffer();
-			String line;
-			while (Objects.nonNull(line = br.readLine().trim())) {
-				if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ';') {
-					sb.append(" ");
-				}
-				sb.append(line);
-			}
-			if (sb.length() > 0) {
-				int x = 0;
-				if (sb.charAt(sb.length() - 1) == ';') {
-					x = 1;
-				}
-				return sb.subSequence(0, sb.length() - x).toString().split(";");
+		List<String> statements = new ArrayList<>();
+		try (SQLScriptReader reader = new SQLScriptReader(
+				new InputStreamReader(new FileInputStream(script), StandardCharsets.UTF_8))) {
+			String statement;
+			while (Objects.nonNull(statement = reader.next())) {
+				statements.add(statement);
 			}
 		}
-		throw new IOException("File error. is the file empty?");
+		if (statements.isEmpty()) {
+			throw new IOException("File error. is the file empty?");
+		}
+		return statements.toArray(new String[0]);
 	}
 
 //	/**
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.github.epimethix.lumicore.common.orm.sql.MaintenanceJob;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+
+/**
+ * Periodically runs database maintenance jobs during idle periods.
+ * <p>
+ * A scheduled run is skipped unless no query requested the connection for
+ * {@link #getIdleMillis()} and no transaction is open. The incremental vacuum
+ * frees at most {@link #getVacuumPagesPerStep()} pages per step and stops as
+ * soon as the database is busy again, the free list is empty or
+ * {@link #getVacuumMaxPages()} pages were freed. All jobs run one after another
+ * on one daemon thread. The last {@value #HISTORY_SIZE} runs are recorded.
+ *
+ * @author epimethix
+ *
+ */
+public final class MaintenanceScheduler implements AutoCloseable {
+
+	private final static Logger LOGGER = Log.getLogger(Log.CHANNEL_ORM);
+
+	public static final long DEFAULT_IDLE_MILLIS = 5_000L;
+
+	public static final int DEFAULT_VACUUM_PAGES_PER_STEP = 256;
+
+	public static final int DEFAULT_VACUUM_MAX_PAGES = 65_536;
+
+	public static final int HISTORY_SIZE = 100;
+
+	/**
+	 * The record of one maintenance run.
+	 */
+	public static final class Run {
+		private final MaintenanceJob job;
+		private final Instant startedAt;
+		private final long durationMillis;
+		private final long effect;
+		private final boolean completed;
+		private final SQLException error;
+
+		private Run(MaintenanceJob job, Instant startedAt, long durationMillis, long effect, boolean completed,
+				SQLException error) {
+			this.job = job;
+			this.startedAt = startedAt;
+			this.durationMillis = durationMillis;
+			this.effect = effect;
+			this.completed = completed;
+			this.error = error;
+		}
+
+		public MaintenanceJob getJob() {
+			return job;
+		}
+
+		public Instant getStartedAt() {
+			return startedAt;
+		}
+
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+
+		/**
+		 * @return the pages freed or checkpointed or -1 if not measurable
+		 */
+		public long getEffect() {
+			return effect;
+		}
+
+		/**
+		 * @return false if the run was cancelled, interrupted by activity or failed
+		 */
+		public boolean isCompleted() {
+			return completed;
+		}
+
+		/**
+		 * @return the error or null
+		 */
+		public SQLException getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s at %s: %d ms, effect %d%s", job, startedAt, durationMillis, effect,
+					Objects.nonNull(error) ? ", failed: " + error.getMessage() : completed ? "" : ", incomplete");
+		}
+	}
+
+	private final SQLDatabase db;
+	private final ScheduledExecutorService executor;
+	private final Map<MaintenanceJob, ScheduledFuture<?>> schedules = new EnumMap<>(MaintenanceJob.class);
+	private final Set<MaintenanceJob> cancelled = ConcurrentHashMap.newKeySet();
+	private final Deque<Run> history = new ArrayDeque<>();
+	private volatile long idleMillis = DEFAULT_IDLE_MILLIS;
+	private volatile int vacuumPagesPerStep = DEFAULT_VACUUM_PAGES_PER_STEP;
+	private volatile int vacuumMaxPages = DEFAULT_VACUUM_MAX_PAGES;
+
+	MaintenanceScheduler(SQLDatabase db) {
+		this.db = Objects.requireNonNull(db);
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "lumicore-maintenance");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+	}
+
+	public long getIdleMillis() {
+		return idleMillis;
+	}
+
+	/**
+	 * @param idleMillis the time without queries before a scheduled job may run
+	 */
+	public void setIdleMillis(long idleMillis) {
+		this.idleMillis = idleMillis;
+	}
+
+	public int getVacuumPagesPerStep() {
+		return vacuumPagesPerStep;
+	}
+
+	public void setVacuumPagesPerStep(int vacuumPagesPerStep) {
+		if (vacuumPagesPerStep < 1) {
+			throw new IllegalArgumentException("vacuumPagesPerStep must be positive");
+		}
+		this.vacuumPagesPerStep = vacuumPagesPerStep;
+	}
+
+	public int getVacuumMaxPages() {
+		return vacuumMaxPages;
+	}
+
+	/**
+	 * @param vacuumMaxPages the maximum number of pages to free per run
+	 */
+	public void setVacuumMaxPages(int vacuumMaxPages) {
+		this.vacuumMaxPages = vacuumMaxPages;
+	}
+
+	/**
+	 * Schedules a job, an existing schedule of the job is replaced. The first run
+	 * is attempted after one period.
+	 *
+	 * @param job    the maintenance job
+	 * @param period the interval between attempts
+	 * @param unit   the time unit of period
+	 */
+	public synchronized void schedule(MaintenanceJob job, long period, TimeUnit unit) {
+		unschedule(job);
+		cancelled.remove(job);
+		schedules.put(job, executor.scheduleWithFixedDelay(() -> {
+			try {
+				runIfIdle(job);
+			} catch (RuntimeException e) {
+				/*
+				 * keep the schedule alive
+				 */
+				LOGGER.error(e);
+			}
+		}, period, period, unit));
+	}
+
+	/**
+	 * Removes the schedule of a job and stops a running vacuum of the job after
+	 * its current step.
+	 *
+	 * @param job the maintenance job
+	 * @return true if the job was scheduled
+	 */
+	public synchronized boolean cancel(MaintenanceJob job) {
+		cancelled.add(job);
+		return unschedule(job);
+	}
+
+	private boolean unschedule(MaintenanceJob job) {
+		ScheduledFuture<?> f = schedules.remove(job);
+		if (Objects.nonNull(f)) {
+			f.cancel(false);
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized boolean isScheduled(MaintenanceJob job) {
+		return schedules.containsKey(job);
+	}
+
+	/**
+	 * Runs a job as soon as the maintenance thread is free, regardless of the
+	 * database activity.
+	 *
+	 * @param job the maintenance job
+	 * @return the future completing with the run record
+	 */
+	public CompletableFuture<Run> runNow(MaintenanceJob job) {
+		cancelled.remove(job);
+		return CompletableFuture.supplyAsync(() -> execute(job, false), executor);
+	}
+
+	/**
+	 * Gets the recorded runs, the oldest first.
+	 *
+	 * @return the run records
+	 */
+	public List<Run> getHistory() {
+		synchronized (history) {
+			return new ArrayList<>(history);
+		}
+	}
+
+	private void runIfIdle(MaintenanceJob job) {
+		try {
+			if (db.getIdleMillis() < idleMillis || db.isTransactionOpen()) {
+				LOGGER.trace("Maintenance job %s skipped, the database is busy", job);
+				return;
+			}
+		} catch (SQLException e) {
+			LOGGER.error(e);
+			return;
+		}
+		execute(job, true);
+	}
+
+	private Run execute(MaintenanceJob job, boolean yieldToActivity) {
+		Instant startedAt = Instant.now();
+		long start = System.nanoTime();
+		long effect = 0L;
+		boolean completed = true;
+		SQLException error = null;
+		try {
+			if (job == MaintenanceJob.INCREMENTAL_VACUUM) {
+				long freed;
+				do {
+					if (cancelled.contains(job) || (yieldToActivity && db.getIdleMillis() < idleMillis)) {
+						completed = false;
+						break;
+					}
+					freed = db.runMaintenance(job, Math.min(vacuumPagesPerStep, vacuumMaxPages - (int) effect));
+					effect += Math.max(0L, freed);
+				} while (freed > 0L && effect < vacuumMaxPages);
+			} else {
+				effect = db.runMaintenance(job, 0);
+			}
+		} catch (SQLException e) {
+			completed = false;
+			error = e;
+			LOGGER.error(e, "Maintenance job %s failed", job);
+		}
+		Run run = new Run(job, startedAt, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), effect,
+				completed, error);
+		synchronized (history) {
+			if (history.size() == HISTORY_SIZE) {
+				history.removeFirst();
+			}
+			history.addLast(run);
+		}
+		LOGGER.info("Maintenance: %s", run);
+		return run;
+	}
+
+	/**
+	 * Removes all schedules and stops the maintenance thread after the running
+	 * step.
+	 */
+	@Override
+	public synchronized void close() {
+		for (MaintenanceJob job : MaintenanceJob.values()) {
+			cancel(job);
+		}
+		executor.shutdown();
+	}
+}
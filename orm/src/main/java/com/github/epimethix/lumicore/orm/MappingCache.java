@@ -0,0 +1,241 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+import com.github.epimethix.lumicore.properties.LumicoreProperties;
+
+/**
+ * Startup cache of verified repository mappings.
+ * <p>
+ * The mapping of an entity (column order and resolved types) is stored in the
+ * file configured by {@link LumicoreProperties#ORM_MAPPING_CACHE} keyed by the
+ * entity class name. Each entry carries a fingerprint of the class files of the
+ * entity, its super classes, the types of its fields and the dialect. If the
+ * fingerprint still matches on the next start the entity integrity check and
+ * the type resolution are skipped, getters and setters are always resolved
+ * again.
+ * <p>
+ * New entries are written in one go by {@link #flush()} which is called after
+ * the schema synchronization and on shutdown.
+ *
+ * @author epimethix
+ *
+ */
+final class MappingCache {
+
+	private final static Logger LOGGER = Log.getLogger(Log.CHANNEL_ORM);
+
+	/**
+	 * A cached entity mapping.
+	 */
+	public final static class Entry {
+		public String fingerprint;
+		public String[] javaNames;
+		public int[] sqlTypes;
+
+		public Entry() {}
+
+		private Entry(String fingerprint, String[] javaNames, int[] sqlTypes) {
+			this.fingerprint = fingerprint;
+			this.javaNames = javaNames;
+			this.sqlTypes = sqlTypes;
+		}
+	}
+
+	private final static ObjectMapper MAPPER = new ObjectMapper();
+
+	private static Map<String, Entry> entries;
+
+	private static boolean dirty;
+
+	private static boolean shutdownHookAdded;
+
+	private MappingCache() {}
+
+	static boolean isEnabled() {
+		return Objects.nonNull(LumicoreProperties.ORM_MAPPING_CACHE);
+	}
+
+	private static File getFile() {
+		return new File(LumicoreProperties.ORM_MAPPING_CACHE);
+	}
+
+	private static Map<String, Entry> entries() {
+		if (Objects.isNull(entries)) {
+			Map<String, Entry> loaded = null;
+			File f = getFile();
+			if (f.isFile()) {
+				try {
+					loaded = MAPPER.readValue(f, new TypeReference<HashMap<String, Entry>>() {});
+				} catch (IOException e) {
+					LOGGER.warn("Mapping cache '%s' could not be read, it will be rebuilt: %s", f.getPath(),
+							e.getMessage());
+				}
+			}
+			entries = Objects.isNull(loaded) ? new HashMap<>() : loaded;
+		}
+		return entries;
+	}
+
+	/**
+	 * Gets the cached mapping of the specified entity class.
+	 *
+	 * @param entityClass the entity class
+	 * @param fingerprint the current fingerprint of the entity class
+	 * @param javaNames   the field names in mapping order
+	 * @return the cached entry or null if there is no valid entry
+	 */
+	static synchronized Entry get(Class<?> entityClass, String fingerprint, String[] javaNames) {
+		if (!isEnabled() || Objects.isNull(fingerprint)) {
+			return null;
+		}
+		Entry e = entries().get(entityClass.getName());
+		if (Objects.nonNull(e) && fingerprint.equals(e.fingerprint) && Arrays.equals(javaNames, e.javaNames)
+				&& Objects.nonNull(e.sqlTypes) && e.sqlTypes.length == javaNames.length) {
+			return e;
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the verified mapping of the specified entity class.
+	 *
+	 * @param entityClass the entity class
+	 * @param fingerprint the current fingerprint of the entity class
+	 * @param javaNames   the field names in mapping order
+	 * @param sqlTypes    the resolved sql types in mapping order
+	 */
+	static synchronized void put(Class<?> entityClass, String fingerprint, String[] javaNames, int[] sqlTypes) {
+		if (!isEnabled() || Objects.isNull(fingerprint)) {
+			return;
+		}
+		entries().put(entityClass.getName(),
+				new Entry(fingerprint, Arrays.copyOf(javaNames, javaNames.length), Arrays.copyOf(sqlTypes, sqlTypes.length)));
+		dirty = true;
+		if (!shutdownHookAdded) {
+			Runtime.getRuntime().addShutdownHook(new Thread(MappingCache::flush, "lumicore-mapping-cache"));
+			shutdownHookAdded = true;
+		}
+	}
+
+	/**
+	 * Writes the cache file if entries were added since it was last written.
+	 */
+	static synchronized void flush() {
+		if (!dirty) {
+			return;
+		}
+		File f = getFile();
+		try {
+			File parent = f.getAbsoluteFile().getParentFile();
+			if (Objects.nonNull(parent) && !parent.exists()) {
+				parent.mkdirs();
+			}
+			MAPPER.writeValue(f, entries);
+			dirty = false;
+		} catch (IOException e) {
+			LOGGER.warn("Mapping cache '%s' could not be written: %s", f.getPath(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Computes the SHA-1 fingerprint over the class files of the entity class,
+	 * its super classes, the types of their fields and the dialect class. The
+	 * resolved sql types depend on the field types too, for example on JSON
+	 * mapped types or IntegerEnum implementations.
+	 *
+	 * @param entityClass  the entity class
+	 * @param dialectClass the dialect class
+	 * @return the hex encoded fingerprint or null if a class file could not be
+	 *         read
+	 */
+	static String fingerprint(Class<?> entityClass, Class<?> dialectClass) {
+		if (!isEnabled()) {
+			return null;
+		}
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			Map<String, Class<?>> fieldTypes = new TreeMap<>();
+			for (Class<?> cls = entityClass; Objects.nonNull(cls) && cls != Object.class; cls = cls.getSuperclass()) {
+				if (!digestClass(md, cls)) {
+					return null;
+				}
+				for (Field field : cls.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						Class<?> type = field.getType();
+						while (type.isArray()) {
+							type = type.getComponentType();
+						}
+						fieldTypes.put(type.getName(), type);
+					}
+				}
+			}
+			for (Class<?> type : fieldTypes.values()) {
+				/*
+				 * platform types only contribute their name
+				 */
+				if (type.isPrimitive() || Objects.isNull(type.getClassLoader()) || !digestClass(md, type)) {
+					md.update(type.getName().getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			if (!digestClass(md, dialectClass)) {
+				return null;
+			}
+			StringBuilder sb = new StringBuilder();
+			for (byte b : md.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			LOGGER.warn("Fingerprint of '%s' could not be computed: %s", entityClass.getName(), e.getMessage());
+			return null;
+		}
+	}
+
+	private static boolean digestClass(MessageDigest md, Class<?> cls) throws IOException {
+		String resource = cls.getName().substring(cls.getName().lastIndexOf('.') + 1) + ".class";
+		try (InputStream in = cls.getResourceAsStream(resource)) {
+			if (Objects.isNull(in)) {
+				return false;
+			}
+			md.update(cls.getName().getBytes(StandardCharsets.UTF_8));
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) > -1) {
+				md.update(buffer, 0, read);
+			}
+			return true;
+		}
+	}
+}
@@ -23,7 +23,11 @@ import static com.github.epimethix.lumicore.common.Reflect.typeEquals;
 import static com.github.epimethix.lumicore.common.Reflect.typeImplements;
 import static com.github.epimethix.lumicore.common.orm.model.Entity.getEntityName;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -52,8 +56,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Function;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.github.epimethix.lumicore.common.ConfigurationException;
 import com.github.epimethix.lumicore.common.Reflect;
 import com.github.epimethix.lumicore.common.orm.Database;
@@ -67,11 +75,15 @@ import com.github.epimethix.lumicore.common.orm.sqlite.Constraint.PrimaryKeyCons
 import com.github.epimethix.lumicore.common.swing.DBControl;
 import com.github.epimethix.lumicore.orm.annotation.database.SchemaSync;
 import com.github.epimethix.lumicore.orm.annotation.database.SchemaMetadata;
+import com.github.epimethix.lumicore.orm.annotation.database.QueryResultCache;
+import com.github.epimethix.lumicore.orm.annotation.database.WorkingCopy;
 import com.github.epimethix.lumicore.orm.annotation.entity.ImplementationClass;
 import com.github.epimethix.lumicore.orm.annotation.entity.Table;
 import com.github.epimethix.lumicore.orm.annotation.entity.TableSync;
 import com.github.epimethix.lumicore.orm.annotation.field.BigDecimalScale;
+import com.github.epimethix.lumicore.orm.annotation.field.Chunked;
 import com.github.epimethix.lumicore.orm.annotation.field.Column;
+import com.github.epimethix.lumicore.orm.annotation.field.FullText;
 import com.github.epimethix.lumicore.orm.annotation.field.JoinTable;
 import com.github.epimethix.lumicore.orm.annotation.field.ManyToMany;
 import com.github.epimethix.lumicore.orm.annotation.field.ManyToOne;
@@ -119,8 +131,14 @@ public final class ORM {
 		final Class<?> mappingType = field.getType();
 		Transform transform = new Transform();
 		if (ORM.isJsonType(mappingType)) {
-			transform.javaToDb = in -> jsonMapper.writeValueAsString(in);
-			transform.dbToJava = in -> jsonMapper.readValue((String) in, mappingType);
+			final ObjectReader jsonReader = jsonMapper.readerFor(mappingType);
+			final ObjectWriter jsonWriter = jsonMapper.writerFor(mappingType);
+			if (ORM.isBinaryJsonType(mappingType)) {
+				transform.javaToDb = in -> Json.deflate(jsonWriter.writeValueAsBytes(in));
+			} else {
+				transform.javaToDb = in -> jsonWriter.writeValueAsString(in);
+			}
+			transform.dbToJava = in -> Json.read(jsonReader, in);
 		} else if (Reflect.typeEquals(mappingType, char[].class)) {
 			transform.javaToDb = in -> UTF16.charsToBytes((char[]) in, false);
 			transform.dbToJava = in -> UTF16.bytesToChars((byte[]) in, true);
@@ -268,6 +286,101 @@ public final class ORM {
 		return result.toArray(new Field[result.size()]);
 	}
 
+	/**
+	 * The name format of the full-text index table of an entity.
+	 */
+	public static final String FULL_TEXT_TABLE_FORMAT = "%s_fts";
+
+	/**
+	 * Gets the field names annotated with &#64;{@link FullText}.
+	 * 
+	 * @param entityClass the entity class
+	 * 
+	 * @return the full-text indexed field names in declaration order
+	 */
+	public static List<String> getFullTextFields(Class<?> entityClass) {
+		List<String> fields = new ArrayList<>();
+		for (Field f : selectEntityFields(entityClass, true)) {
+			if (f.isAnnotationPresent(FullText.class)) {
+				fields.add(getFieldName(f));
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Gets the name of the full-text index table of an entity.
+	 * 
+	 * @param entityName the entity name
+	 * 
+	 * @return the full-text index table name
+	 */
+	public static String getFullTextTableName(String entityName) {
+		return String.format(FULL_TEXT_TABLE_FORMAT, entityName);
+	}
+
+	/**
+	 * The name of the table holding the maintained row counts.
+	 * 
+	 * @see Table#countRows()
+	 */
+	public static final String ROW_COUNT_TABLE = "lumicore_row_counts";
+
+	/**
+	 * The name format of the chunk table of a chunked large object column.
+	 */
+	public static final String CHUNK_TABLE_FORMAT = "%s_%s_chunks";
+
+	/**
+	 * Gets the name of the chunk table of a &#64;{@link Chunked} column.
+	 * 
+	 * @param entityName the entity name
+	 * @param fieldName  the column name
+	 * 
+	 * @return the chunk table name
+	 */
+	public static String getChunkTableName(String entityName, String fieldName) {
+		return String.format(CHUNK_TABLE_FORMAT, entityName, fieldName);
+	}
+
+	/**
+	 * Gets the field names annotated with &#64;{@link Chunked}.
+	 * 
+	 * @param entityClass the entity class
+	 * 
+	 * @return the chunked field names in declaration order
+	 */
+	public static List<String> getChunkedFields(Class<?> entityClass) {
+		List<String> fields = new ArrayList<>();
+		for (Field f : selectEntityFields(entityClass, true)) {
+			if (f.isAnnotationPresent(Chunked.class)) {
+				fields.add(getFieldName(f));
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Gets the chunk size of a large object field.
+	 * 
+	 * @param field the field
+	 * 
+	 * @return the chunk size in bytes or 0 if the field is stored inline
+	 * 
+	 * @see Chunked
+	 */
+	public static int getChunkSize(Field field) {
+		Chunked c = field.getAnnotation(Chunked.class);
+		if (Objects.nonNull(c)) {
+			if (c.size() < 1) {
+				throw new IllegalArgumentException(
+						String.format("%s: the chunk size must be positive", field.getName()));
+			}
+			return c.size();
+		}
+		return 0;
+	}
+
 	public static String getFieldName(Field f) {
 		if (f.isAnnotationPresent(Column.class)) {
 			Column fd = f.getAnnotation(Column.class);
@@ -496,6 +609,34 @@ public final class ORM {
 		return dbClass.getAnnotation(SchemaSync.class);
 	}
 
+	/**
+	 * Gets the database class's &#64;{@link WorkingCopy} annotation if there is
+	 * one
+	 * 
+	 * @param dbClass the class extending AbstractDB
+	 * 
+	 * @return the WorkingCopy annotation if any, null otherwise
+	 * 
+	 * @see WorkingCopy
+	 */
+	public static final WorkingCopy getWorkingCopyConfig(Class<? extends Database> dbClass) {
+		return dbClass.getAnnotation(WorkingCopy.class);
+	}
+
+	/**
+	 * Gets the database class's &#64;{@link QueryResultCache} annotation if there
+	 * is one
+	 * 
+	 * @param dbClass the class extending AbstractDB
+	 * 
+	 * @return the QueryResultCache annotation if any, null otherwise
+	 * 
+	 * @see QueryResultCache
+	 */
+	public static final QueryResultCache getQueryResultCacheConfig(Class<? extends Database> dbClass) {
+		return dbClass.getAnnotation(QueryResultCache.class);
+	}
+
 	/**
 	 * Gets the AutoSyncEntity annotation if any.
 	 * 
@@ -525,6 +666,39 @@ public final class ORM {
 		}
 	}
 
+	/**
+	 * Tests if the supplied entityClass is configured to track changes of loaded
+	 * entities.
+	 * 
+	 * @param entityClass the entity class to test
+	 * 
+	 * @return true if change tracking is enabled
+	 */
+	public static boolean isChangeTrackingEnabled(Class<? extends Entity<?>> entityClass) {
+		Table ed = entityClass.getAnnotation(Table.class);
+		if (Objects.nonNull(ed)) {
+			return ed.trackChanges();
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Tests if the supplied entityClass is configured to maintain its row count.
+	 * 
+	 * @param entityClass the entity class to test
+	 * 
+	 * @return true if the rows are counted
+	 */
+	public static boolean isRowCountEnabled(Class<? extends Entity<?>> entityClass) {
+		Table ed = entityClass.getAnnotation(Table.class);
+		if (Objects.nonNull(ed)) {
+			return ed.countRows();
+		} else {
+			return false;
+		}
+	}
+
 	/**
 	 * Tests whether the given type is annotated with &#64;{@link JsonType}
 	 * 
@@ -536,6 +710,26 @@ public final class ORM {
 		return isAnnotationPresent(type, JsonType.class, true);
 	}
 
+	/**
+	 * Tests whether the given type is annotated with &#64;{@link JsonType} and
+	 * configured to be stored as BLOB.
+	 * 
+	 * @param type the type to test
+	 * 
+	 * @return true if binary json type
+	 * 
+	 * @see JsonType#binary()
+	 */
+	public static boolean isBinaryJsonType(Class<?> type) {
+		do {
+			JsonType jt = type.getAnnotation(JsonType.class);
+			if (Objects.nonNull(jt)) {
+				return jt.binary();
+			}
+		} while (Objects.nonNull(type = type.getSuperclass()));
+		return false;
+	}
+
 	/**
 	 * gets the powerOfTen() of the annotated &#64;{@link BigDecimalScale}
 	 * 
@@ -1167,6 +1361,70 @@ public final class ORM {
 		private UTF16() {}
 	}
 
+	/**
+	 * Utility class for reading and writing &#64;{@link JsonType} values
+	 */
+	public final static class Json {
+		/**
+		 * The first byte of a zlib stream as written by {@link Deflater} (CMF: deflate
+		 * with 32K window). A json document never starts with this byte.
+		 */
+		private static final int ZLIB_HEADER = 0x78;
+
+		/**
+		 * Compresses the given json bytes.
+		 * 
+		 * @param json the json bytes
+		 * 
+		 * @return the deflated json bytes
+		 */
+		public static final byte[] deflate(byte[] json) {
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try {
+				deflater.setInput(json);
+				deflater.finish();
+				ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 2));
+				byte[] buffer = new byte[4096];
+				while (!deflater.finished()) {
+					out.write(buffer, 0, deflater.deflate(buffer));
+				}
+				return out.toByteArray();
+			} finally {
+				deflater.end();
+			}
+		}
+
+		/**
+		 * Reads a json value as loaded from the database.
+		 * <p>
+		 * TEXT values, plain json bytes and deflated json bytes are supported.
+		 * 
+		 * @param reader the reader for the json type
+		 * @param in     the database value (String or byte[])
+		 * 
+		 * @return the java value
+		 * 
+		 * @throws IOException if the value could not be parsed
+		 */
+		public static final Object read(ObjectReader reader, Object in) throws IOException {
+			if (in instanceof byte[]) {
+				byte[] bytes = (byte[]) in;
+				if (bytes.length > 0 && (bytes[0] & 0xFF) == ZLIB_HEADER) {
+					try (InputStream is = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+						return reader.readValue(is);
+					}
+				}
+				return reader.readValue(bytes);
+			}
+			return reader.readValue((String) in);
+		}
+
+		/**
+		 * Utility class - non-instantiable
+		 */
+		private Json() {}
+	}
+
 	private ORM() {}
 
 	public static boolean isEager(Field field) {
@@ -16,8 +16,13 @@
 package com.github.epimethix.lumicore.orm;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -27,21 +32,30 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
 
 import com.github.epimethix.lumicore.common.ConfigurationException;
 import com.github.epimethix.lumicore.common.DatabaseApplication;
 import com.github.epimethix.lumicore.common.Reflect;
+import com.github.epimethix.lumicore.common.orm.ChangeEventBus;
 import com.github.epimethix.lumicore.common.orm.Database;
 import com.github.epimethix.lumicore.common.orm.ManyToManyRepository;
+import com.github.epimethix.lumicore.common.orm.ProgressListener;
+import com.github.epimethix.lumicore.common.orm.QueryCache;
 import com.github.epimethix.lumicore.common.orm.Repository;
+import com.github.epimethix.lumicore.common.orm.UnitOfWork;
 import com.github.epimethix.lumicore.common.orm.model.Entity;
 import com.github.epimethix.lumicore.common.orm.model.ManyToManyEntity;
 import com.github.epimethix.lumicore.common.orm.query.QueryBuilderFactory;
 import com.github.epimethix.lumicore.common.orm.sql.ConnectionController;
 import com.github.epimethix.lumicore.common.orm.sql.ConnectionFactory;
 import com.github.epimethix.lumicore.common.orm.sql.Dialect;
+import com.github.epimethix.lumicore.common.orm.sql.MaintenanceJob;
 import com.github.epimethix.lumicore.logging.Log;
 import com.github.epimethix.lumicore.logging.Logger;
+import com.github.epimethix.lumicore.orm.annotation.database.QueryResultCache;
 import com.github.epimethix.lumicore.orm.annotation.database.SchemaSync;
 import com.github.epimethix.lumicore.orm.annotation.entity.ImplementationClass;
 import com.github.epimethix.lumicore.orm.annotation.entity.TableSync;
@@ -158,6 +172,10 @@ public abstract class SQLDatabase implements Database {
 	 * The metadata key format "STRUCTURE_VERSION_%s"
 	 */
 	private final static String META_ENTITY_STRUCTURE_VERSION_FORMAT = META_STRUCTURE_VERSION.concat("_%s");
+	/**
+	 * The metadata key format "LUMICORE_STRUCTURE_FINGERPRINT_%s"
+	 */
+	private final static String META_ENTITY_STRUCTURE_FINGERPRINT_FORMAT = "LUMICORE_STRUCTURE_FINGERPRINT_%s";
 	/**
 	 * The drop table statement format "DROP TABLE `%s`"
 	 */
@@ -179,6 +197,27 @@ public abstract class SQLDatabase implements Database {
 	 * The databases metadata store
 	 */
 	private final MetaRepository metaRepository;
+	/**
+	 * The meta table contents while the schema is being synchronized, null
+	 * otherwise
+	 */
+	private volatile Map<String, String> metaCache;
+	/**
+	 * The bus the repositories publish their committed changes to
+	 */
+	private final ChangeEventBus changeEventBus = new ChangeEventBus();
+	/**
+	 * The select result cache, null if disabled
+	 */
+	private final QueryCache queryCache;
+	/**
+	 * The time of the last connection request, used to detect idle periods
+	 */
+	private volatile long lastActivity = System.currentTimeMillis();
+	/**
+	 * The maintenance scheduler, created on first use
+	 */
+	private MaintenanceScheduler maintenanceScheduler;
 	/**
 	 * The list of repositories to manage in creation order
 	 */
@@ -246,6 +285,8 @@ public abstract class SQLDatabase implements Database {
 			throw new ConfigurationException(ConfigurationException.COULD_NOT_ESTABLISH_CONNECTION,
 					getClass().getSimpleName());
 		}
+		QueryResultCache cacheConfig = ORM.getQueryResultCacheConfig(getClass());
+		this.queryCache = Objects.isNull(cacheConfig) ? null : new QueryCache(cacheConfig.maxWeight());
 		repositories = new ArrayList<Repository<?, ?>>();
 		mappedRepositories = new HashMap<String, Repository<?, ?>>();
 		metaRepository = new MetaRepository(this);
@@ -262,6 +303,8 @@ public abstract class SQLDatabase implements Database {
 			throw new ConfigurationException(ConfigurationException.COULD_NOT_ESTABLISH_CONNECTION,
 					getClass().getSimpleName());
 		}
+		QueryResultCache cacheConfig = ORM.getQueryResultCacheConfig(getClass());
+		this.queryCache = Objects.isNull(cacheConfig) ? null : new QueryCache(cacheConfig.maxWeight());
 		repositories = new ArrayList<Repository<?, ?>>();
 		mappedRepositories = new HashMap<String, Repository<?, ?>>();
 		metaRepository = new MetaRepository(this);
@@ -286,8 +329,13 @@ public abstract class SQLDatabase implements Database {
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override
 			public void run() {
+				synchronized (SQLDatabase.this) {
+					if (Objects.nonNull(maintenanceScheduler)) {
+						maintenanceScheduler.close();
+					}
+				}
 				try {
-					SQLDatabase.this.connectionController.close();
+					SQLDatabase.this.connectionController.shutdown();
 				} catch (SQLException e) {
 					e.printStackTrace();
 				}
@@ -420,9 +468,27 @@ public abstract class SQLDatabase implements Database {
 
 	@Override
 	public final Connection getConnection() throws SQLException {
+		lastActivity = System.currentTimeMillis();
 		return connectionController.getConnection();
 	}
 
+	/**
+	 * Gets the time since the connection was last requested by a query.
+	 * 
+	 * @return the idle time in milliseconds
+	 */
+	public final long getIdleMillis() {
+		return System.currentTimeMillis() - lastActivity;
+	}
+
+	/**
+	 * Tests if a transaction is open without counting as activity.
+	 */
+	@Override
+	public final boolean isTransactionOpen() throws SQLException {
+		return connectionController.isTransactionOpen();
+	}
+
 	@Override
 	public boolean isConnectionWorking() {
 //		try {
@@ -585,7 +651,11 @@ public abstract class SQLDatabase implements Database {
 	 */
 //	private final SchemaSynchronizity checkSchemaSynchronizity() throws SQLException {
 	public final SchemaSynchronizity checkSchemaSynchronizity() throws SQLException {
-		List<String> existingTables = dialect.listDatabaseTableNames();
+		return checkSchemaSynchronizity(dialect.listDatabaseTableNames());
+	}
+
+	@Override
+	public final SchemaSynchronizity checkSchemaSynchronizity(List<String> existingTables) {
 		List<String> definedTables = listDefinedTableNames();
 		SchemaSynchronizity ss = new SchemaSynchronizity();
 
@@ -711,6 +781,9 @@ public abstract class SQLDatabase implements Database {
 			st.executeUpdate(sqlUpdate);
 			LOGGER.trace("update '%s' was executed", sqlUpdate);
 		} finally {
+			if (Objects.nonNull(queryCache)) {
+				queryCache.clear();
+			}
 			try {
 				checkClose(closeConnection);
 			} catch (SQLException e) {
@@ -780,7 +853,11 @@ public abstract class SQLDatabase implements Database {
 		try {
 			Meta m = metaRepository.save(key, value);
 			if (Objects.nonNull(m)) {
-				LOGGER.info("Meta value was stored to '%s'", key);
+				Map<String, String> cache = metaCache;
+				if (Objects.nonNull(cache)) {
+					cache.put(key, value);
+				}
+				LOGGER.trace("Meta value was stored to '%s'", key);
 			} else {
 				LOGGER.critical("Storing Meta value to '%s' failed!", key);
 			}
@@ -854,6 +931,14 @@ public abstract class SQLDatabase implements Database {
 	 * @return the specified value if found or null otherwise
 	 */
 	protected final String getMeta(String key) {
+		Map<String, String> cache = metaCache;
+		if (Objects.nonNull(cache)) {
+			String value = cache.get(key);
+			if (Objects.isNull(value)) {
+				LOGGER.trace("%s::getMeta(%s): no value", getClass().getSimpleName(), key);
+			}
+			return value;
+		}
 		Meta m = null;
 		try {
 			m = metaRepository.selectById(key).orElse(null);
@@ -891,9 +976,9 @@ public abstract class SQLDatabase implements Database {
 			}
 		}
 		if (wasSet) {
-			LOGGER.info("%s::getIntegerMeta(%s) was successful", getClass().getSimpleName(), key);
+			LOGGER.trace("%s::getIntegerMeta(%s) was successful", getClass().getSimpleName(), key);
 		} else {
-			LOGGER.warn("%s::getIntegerMeta(%s) failed, returning default value!", getClass().getSimpleName(), key);
+			LOGGER.trace("%s::getIntegerMeta(%s) failed, returning default value!", getClass().getSimpleName(), key);
 		}
 		return l;
 	}
@@ -1005,6 +1090,32 @@ public abstract class SQLDatabase implements Database {
 		saveIntegerMeta(String.format(META_ENTITY_STRUCTURE_VERSION_FORMAT, entityName), structureVersion, true);
 	}
 
+	@Override
+	public final String getMetaEntityStructureFingerprint(String entityName) {
+		return getMeta(String.format(META_ENTITY_STRUCTURE_FINGERPRINT_FORMAT, entityName));
+	}
+
+	@Override
+	public final void setMetaEntityStructureFingerprint(String entityName, String fingerprint) {
+		saveMeta(String.format(META_ENTITY_STRUCTURE_FINGERPRINT_FORMAT, entityName), fingerprint, true);
+	}
+
+	/**
+	 * Loads the whole meta table into memory using one query. While loaded
+	 * {@link #getMeta(String)} is served from memory.
+	 * 
+	 * @return the meta table contents
+	 * @throws SQLException
+	 */
+	private final Map<String, String> loadMetaCache() throws SQLException {
+		Map<String, String> cache = new HashMap<>();
+		for (Meta m : metaRepository.selectAll()) {
+			cache.put(m.getId(), m.getValue());
+		}
+		LOGGER.trace("%d meta values were loaded", cache.size());
+		return cache;
+	}
+
 	/*
 	 * Execute scripts
 	 */
@@ -1060,7 +1171,7 @@ public abstract class SQLDatabase implements Database {
 	 * @throws SQLException
 	 */
 	public void executeScript(File script) throws IOException, SQLException {
-		executeScript(JDBCUtils.readScript(script));
+		executeScript(script, LumicoreProperties.CLOSE_CONNECTION_AFTER_OPERATION);
 	}
 
 	/**
@@ -1078,7 +1189,38 @@ public abstract class SQLDatabase implements Database {
 	 * @throws SQLException
 	 */
 	public void executeScript(File script, boolean closeConnection) throws IOException, SQLException {
-		executeScript(JDBCUtils.readScript(script), closeConnection);
+		executeScript(script, true, null, closeConnection);
+	}
+
+	/**
+	 * executes the SQLite script that is accessible by the argument script.
+	 * <p>
+	 * The script is read statement by statement, runs of statements with the same
+	 * shape (for example INSERTs into the same table) are executed as prepared
+	 * batches.
+	 * 
+	 * @param script          the File representing the script.
+	 * @param transactional   true to execute the script in one transaction which
+	 *                        is rolled back if a statement fails. BEGIN, COMMIT
+	 *                        and END are skipped, ROLLBACK, SAVEPOINT and RELEASE
+	 *                        fail the script. An already open transaction is
+	 *                        joined and left open.
+	 * @param listener        receives the remaining and the total characters of
+	 *                        the script after each statement group or null
+	 * @param closeConnection true if the connection should be closed at the end of
+	 *                        execution.
+	 * 
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public void executeScript(File script, boolean transactional, ProgressListener listener,
+			boolean closeConnection) throws IOException, SQLException {
+		long total = script.length();
+		try (SQLScriptReader reader = new SQLScriptReader(
+				new InputStreamReader(new FileInputStream(script), StandardCharsets.UTF_8))) {
+			executeScript(reader::next, () -> Math.max(0L, total - reader.getCharactersRead()), total,
+					transactional, listener, closeConnection);
+		}
 	}
 
 	/**
@@ -1104,6 +1246,9 @@ public abstract class SQLDatabase implements Database {
 	 * if auto commit is enabled, executeScript(String[]) will disable it for the
 	 * execution of the given update statements. auto commit will be re-enabled
 	 * after execution even if a SQLException is thrown.
+	 * <p>
+	 * Each element may contain comments and several statements separated by
+	 * semicolons.
 	 * 
 	 * @param script          the update statements
 	 * @param closeConnection true if the connection should be closed at the end of
@@ -1112,28 +1257,173 @@ public abstract class SQLDatabase implements Database {
 	 * @throws SQLException
 	 */
 	public void executeScript(String[] script, boolean closeConnection) throws SQLException {
+		ArrayScriptSource source = new ArrayScriptSource(script);
+		try {
+			executeScript(source, source::remaining, script.length, true, null, closeConnection);
+		} catch (IOException e) {
+			throw new SQLException(e);
+		}
+	}
+
+	/**
+	 * The maximum number of statements per JDBC batch when executing scripts
+	 */
+	private static final int SCRIPT_BATCH_SIZE = 500;
+
+	@FunctionalInterface
+	private interface ScriptSource {
+		/**
+		 * @return the next statement or null at the end of the script
+		 */
+		String next() throws IOException;
+	}
+
+	/**
+	 * Splits the elements of a script array into statements and removes comments.
+	 */
+	private static final class ArrayScriptSource implements ScriptSource {
+		private final String[] script;
+		private int next;
+		private SQLScriptReader reader;
+
+		private ArrayScriptSource(String[] script) {
+			this.script = script;
+		}
+
+		@Override
+		public String next() throws IOException {
+			while (true) {
+				if (Objects.nonNull(reader)) {
+					String statement = reader.next();
+					if (Objects.nonNull(statement)) {
+						return statement;
+					}
+					reader = null;
+				}
+				if (next >= script.length) {
+					return null;
+				}
+				reader = new SQLScriptReader(new StringReader(script[next++]));
+			}
+		}
+
+		private long remaining() {
+			return script.length - next;
+		}
+	}
+
+	private void executeScript(ScriptSource source, LongSupplier remaining, long total, boolean transactional,
+			ProgressListener listener, boolean closeConnection) throws IOException, SQLException {
+		long start = System.currentTimeMillis();
+		int statements = 0;
+		int groups = 0;
 		try {
 			Connection c = getConnection();
 			boolean isAutoCommit = c.getAutoCommit();
-			try {
-				if (isAutoCommit) {
+			boolean ownTransaction = transactional && isAutoCommit;
+			PreparedStatement group = null;
+			String groupShape = null;
+			int groupSize = 0;
+			long groupStart = 0L;
+			try (Statement st = c.createStatement()) {
+				if (ownTransaction) {
 					c.setAutoCommit(false);
 				}
-				for (String statement : script) {
-					executeUpdate(statement, false);
+				String sql;
+				while (Objects.nonNull(sql = source.next())) {
+					ScriptStatement statement = ScriptStatement.parse(sql);
+					if (transactional && statement.isTransactionControl()) {
+						LOGGER.trace("'%s' was skipped, the script runs in one transaction", sql);
+						continue;
+					}
+					if (transactional && statement.isSavepointControl()) {
+						throw new SQLException(
+								String.format("'%s' is not supported, the script runs in one transaction", sql));
+					}
+					statements++;
+					if (Objects.nonNull(group) && !Objects.equals(statement.getShape(), groupShape)) {
+						executeScriptGroup(group, groupShape, groupSize, groupStart);
+						group = null;
+						groups++;
+						reportProgress(listener, remaining.getAsLong(), total);
+					}
+					if (statement.isBatchable()) {
+						if (Objects.isNull(group)) {
+							groupShape = statement.getShape();
+							group = c.prepareStatement(groupShape);
+							groupSize = 0;
+							groupStart = System.currentTimeMillis();
+						}
+						statement.bind(group);
+						group.addBatch();
+						if (++groupSize % SCRIPT_BATCH_SIZE == 0) {
+							group.executeBatch();
+						}
+					} else {
+						long statementStart = System.currentTimeMillis();
+						st.execute(sql);
+						groups++;
+						LOGGER.trace("'%s' executed in %d ms", sql, System.currentTimeMillis() - statementStart);
+						reportProgress(listener, remaining.getAsLong(), total);
+					}
+				}
+				if (Objects.nonNull(group)) {
+					executeScriptGroup(group, groupShape, groupSize, groupStart);
+					group = null;
+					groups++;
+					reportProgress(listener, remaining.getAsLong(), total);
+				}
+				if (ownTransaction) {
+					c.commit();
+				}
+				LOGGER.info("script of %d commands (%d groups) executed successfully in %d ms!", statements, groups,
+						System.currentTimeMillis() - start);
+			} catch (SQLException | IOException e) {
+				if (ownTransaction) {
+					c.rollback();
 				}
-				c.commit();
-				LOGGER.info("script of %d commands executed successfully!", script.length);
+				throw e;
 			} finally {
-				if (isAutoCommit) {
+				if (Objects.nonNull(group)) {
+					group.close();
+				}
+				if (ownTransaction) {
 					c.setAutoCommit(true);
 				}
+				if (Objects.nonNull(queryCache)) {
+					queryCache.clear();
+				}
 			}
 		} finally {
 			checkClose(closeConnection);
 		}
 	}
 
+	private void executeScriptGroup(PreparedStatement group, String shape, int size, long start) throws SQLException {
+		try {
+			if (size % SCRIPT_BATCH_SIZE != 0) {
+				group.executeBatch();
+			}
+		} finally {
+			group.close();
+		}
+		LOGGER.trace("%d x '%s' executed in %d ms", size, shape, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Reports the progress in int units, large totals are scaled down.
+	 */
+	private static void reportProgress(ProgressListener listener, long remaining, long total) {
+		if (Objects.isNull(listener)) {
+			return;
+		}
+		while (total > Integer.MAX_VALUE) {
+			total >>>= 1;
+			remaining >>>= 1;
+		}
+		listener.progress((int) Math.min(remaining, total), (int) total);
+	}
+
 	/*
 	 * User management
 	 */
@@ -1164,7 +1454,76 @@ public abstract class SQLDatabase implements Database {
 
 	@Override
 	public void autoSyncSchema() throws SQLException, ConfigurationException {
-		dialect.autoSyncSchema();
+		if (isDeployed()) {
+			metaCache = loadMetaCache();
+		}
+		try {
+			dialect.autoSyncSchema();
+		} finally {
+			metaCache = null;
+			MappingCache.flush();
+		}
+	}
+
+	@Override
+	public CompletableFuture<File> backupTo(File destination, int pagesPerStep, ProgressListener listener) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				LOGGER.info("Backup to '%s' started", destination.getPath());
+				dialect.backupTo(destination, pagesPerStep, listener);
+				LOGGER.info("Backup to '%s' finished", destination.getPath());
+				return destination;
+			} catch (SQLException e) {
+				LOGGER.error(e, "Backup to '%s' failed", destination.getPath());
+				throw new CompletionException(e);
+			}
+		}, r -> {
+			Thread t = new Thread(r, "lumicore-backup");
+			t.setDaemon(true);
+			t.start();
+		});
+	}
+
+	@Override
+	public ChangeEventBus getChangeEventBus() {
+		return changeEventBus;
+	}
+
+	@Override
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	@Override
+	public UnitOfWork beginUnitOfWork() throws SQLException {
+		return new SQLUnitOfWork(this);
+	}
+
+	/**
+	 * Runs one bounded step of a maintenance job, see
+	 * {@link Dialect#runMaintenance(MaintenanceJob, int)}.
+	 * 
+	 * @param job   the maintenance job
+	 * @param pages the maximum number of pages to process
+	 * @return the effect of the step or -1 if it is not measurable
+	 * @throws SQLException
+	 */
+	public long runMaintenance(MaintenanceJob job, int pages) throws SQLException {
+		return dialect.runMaintenance(job, pages);
+	}
+
+	/**
+	 * Gets the maintenance scheduler of this database. No job is scheduled until
+	 * {@link MaintenanceScheduler#schedule(MaintenanceJob, long, java.util.concurrent.TimeUnit)}
+	 * is called.
+	 * 
+	 * @return the maintenance scheduler
+	 */
+	public synchronized MaintenanceScheduler getMaintenanceScheduler() {
+		if (Objects.isNull(maintenanceScheduler)) {
+			maintenanceScheduler = new MaintenanceScheduler(this);
+		}
+		return maintenanceScheduler;
 	}
 
 	@Override
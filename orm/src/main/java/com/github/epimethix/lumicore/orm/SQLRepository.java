@@ -15,16 +15,31 @@
  */
 package com.github.epimethix.lumicore.orm;
 
+import java.beans.ConstructorProperties;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
 import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,23 +47,32 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.epimethix.lumicore.common.ApplicationUtils;
 import com.github.epimethix.lumicore.common.ConfigurationException;
 import com.github.epimethix.lumicore.common.Reflect;
+import com.github.epimethix.lumicore.common.orm.ChangeEvent;
+import com.github.epimethix.lumicore.common.orm.ChangeEventBus;
 import com.github.epimethix.lumicore.common.orm.Database;
 import com.github.epimethix.lumicore.common.orm.EntitySynchronizity;
+import com.github.epimethix.lumicore.common.orm.LargeObject;
 import com.github.epimethix.lumicore.common.orm.ManyToManyRepository;
+import com.github.epimethix.lumicore.common.orm.QueryCache;
 import com.github.epimethix.lumicore.common.orm.Repository;
 import com.github.epimethix.lumicore.common.orm.model.Entity;
 import com.github.epimethix.lumicore.common.orm.model.Entity.EntityBuilder;
@@ -56,6 +80,8 @@ import com.github.epimethix.lumicore.common.orm.model.Log;
 import com.github.epimethix.lumicore.common.orm.model.ManyToManyEntity;
 import com.github.epimethix.lumicore.common.orm.model.MutableEntity;
 import com.github.epimethix.lumicore.common.orm.model.TreeEntity;
+import com.github.epimethix.lumicore.common.orm.query.AggregateBuilder;
+import com.github.epimethix.lumicore.common.orm.query.AggregateRow;
 import com.github.epimethix.lumicore.common.orm.query.Query.CreateBuilder;
 import com.github.epimethix.lumicore.common.orm.query.Query.CreateIndexQuery;
 import com.github.epimethix.lumicore.common.orm.query.Query.CreateQuery;
@@ -79,6 +105,7 @@ import com.github.epimethix.lumicore.orm.ORM.Transform;
 import com.github.epimethix.lumicore.orm.annotation.entity.Table;
 import com.github.epimethix.lumicore.orm.annotation.field.AutoIncrement;
 import com.github.epimethix.lumicore.orm.annotation.field.Column;
+import com.github.epimethix.lumicore.orm.annotation.field.LazyLoad;
 import com.github.epimethix.lumicore.orm.annotation.field.ManyToMany;
 import com.github.epimethix.lumicore.orm.annotation.field.ManyToMany.Type;
 import com.github.epimethix.lumicore.orm.annotation.field.ManyToOne;
@@ -93,6 +120,7 @@ import com.github.epimethix.lumicore.orm.model.Key.CompositeKey;
 import com.github.epimethix.lumicore.orm.model.LazyCollectionProxy;
 import com.github.epimethix.lumicore.orm.model.LazyEntityProxy;
 import com.github.epimethix.lumicore.orm.model.i.MetaEntity;
+import com.github.epimethix.lumicore.orm.query.SQLAggregateBuilder;
 import com.github.epimethix.lumicore.properties.LumicoreProperties;
 
 /**
@@ -173,6 +201,57 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 	 */
 	private final boolean SOFT_DELETE;
 
+	/**
+	 * indicates if change tracking (snapshots of loaded entities) is enabled
+	 */
+	private final boolean TRACK_CHANGES;
+
+	private final EntitySnapshots SNAPSHOTS = new EntitySnapshots();
+
+	/**
+	 * the chunk size of each column in mapping order: -1 if the column is not a
+	 * {@link LargeObject}, 0 if it is stored inline
+	 */
+	private final int[] LARGE_OBJECT_CHUNK_SIZES;
+
+	/**
+	 * indicates if at least one {@link LargeObject} column is stored in chunks
+	 */
+	private final boolean HAS_CHUNKED_LARGE_OBJECTS;
+
+	private volatile boolean chunkTablesCreated;
+
+	/**
+	 * indicates for each column in mapping order if it is annotated &#64;{@link LazyLoad}
+	 * and left out of the default selects
+	 */
+	private final boolean[] LAZY_COLUMNS;
+
+	private final boolean HAS_LAZY_COLUMNS;
+
+	/**
+	 * the loaded entities the lazy columns of which were not fetched yet
+	 */
+	private final WeakIdentityMap<LazyRow> LAZY_ROWS = new WeakIdentityMap<>();
+
+	/**
+	 * marks a lazy column that was loaded with its record
+	 */
+	private static final Object LOADED = new Object();
+
+	/**
+	 * The values of the unloaded lazy columns of an entity and the rows that were
+	 * selected together with it.
+	 */
+	private static final class LazyRow {
+		private final Object[] unloaded;
+		private List<WeakReference<Object>> group;
+
+		private LazyRow(Object[] unloaded) {
+			this.unloaded = unloaded;
+		}
+	}
+
 	/**
 	 * The managed entity class
 	 */
@@ -183,6 +262,31 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 	private final Constructor<E> ENTITY_CLASS_CONSTRUCTOR;
 	private final Constructor<? extends EntityBuilder<ID>> ENTITY_CLASS_BUILDER_CONSTRUCTOR;
 	private final Constructor<? extends EntityBuilder<ID>> ENTITY_CLASS_BUILDER_COPY_CONSTRUCTOR;
+	/**
+	 * The all-args constructor of an immutable entity used to materialize rows
+	 * without a builder, null if there is none.
+	 */
+	private final Constructor<E> ENTITY_CLASS_CANONICAL_CONSTRUCTOR;
+	/**
+	 * The canonical constructor parameter position of each mapped field in mapping
+	 * order followed by the positions of {@link #CANONICAL_TO_MANY_FIELDS}.
+	 */
+	private final int[] CANONICAL_CONSTRUCTOR_POSITIONS;
+	/**
+	 * The to-many fields passed to the canonical constructor as
+	 * {@link DeferredList}.
+	 */
+	private final String[] CANONICAL_TO_MANY_FIELDS;
+	/**
+	 * Set if the canonical constructor copied a to-many list, the builder is used
+	 * then.
+	 */
+	private volatile boolean canonicalConstructorCopiesLists;
+	/**
+	 * The initial canonical constructor arguments, the default value for primitive
+	 * parameters and null otherwise.
+	 */
+	private final Object[] CANONICAL_CONSTRUCTOR_DEFAULTS;
 	/**
 	 * The managed entities id (primary key) class
 	 */
@@ -215,6 +319,10 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 	 * insert
 	 */
 	private final boolean PK_IS_UUID;
+	/**
+	 * The {@link PrimaryKey#generator()} of a single auto generated primary key
+	 */
+	private final int ID_GENERATOR;
 	/**
 	 * The MappingDefinition arrays for the primary key definition(s)
 	 */
@@ -285,6 +393,11 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 	protected final SelectQuery DEFAULT_SELECT_QUERY;
 	protected final SelectQuery DEFAULT_SELECT_DISTINCT_QUERY;
 	protected final SelectQuery DEFAULT_SELECT_QUERY_BY_ID;
+	/**
+	 * select by id bypassing the query result cache, used to read the stored
+	 * record before an update
+	 */
+	private final SelectQuery SELECT_STORED_BY_ID_QUERY;
 	protected final SelectQuery DEFAULT_SELECT_QUERY_BY_PARENT;
 	protected final SelectQuery DEFAULT_SELECT_QUERY_BY_TOP_PARENT;
 	protected final SelectQuery DEFAULT_SELECT_QUERY_UNLIMITED;
@@ -293,6 +406,31 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 	private final Map<String, SelectQuery> FK_QUERIES;
 
 	private final Map<Class<?>, Constructor<?>> DTO_CONSTRUCTORS = new HashMap<>();
+	/**
+	 * compiled DTO mappers by DTO class and query string
+	 */
+	private final Map<List<Object>, DTOMapper> DTO_MAPPERS = new ConcurrentHashMap<>();
+
+	/**
+	 * The maximum number of statements per JDBC batch and the maximum number of
+	 * values per IN (...) criterium used by the batch write methods
+	 */
+	protected static final int BATCH_SIZE = 500;
+	private static final String SQL_DELETE_FROM = "DELETE FROM ";
+	/**
+	 * the approximate size of the chunk table rows per dump chunk
+	 */
+	private static final int CHUNK_DUMP_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * Matches the schema qualified table names `schema`.`table` in a query
+	 */
+	private static final Pattern TABLE_NAME_PATTERN = Pattern.compile("`([^`]+)`\\.`([^`]+)`");
+	/**
+	 * id lists longer than this are selected through a temporary table instead of
+	 * chunked IN (...) criteria
+	 */
+	protected static final int TEMP_TABLE_THRESHOLD = 10_000;
 
 	/**
 	 * This constructor must be called when implementing
@@ -400,6 +538,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		this.lock = new ReentrantLock(true);
 		this.definitions = new HashMap<>();
 		this.SOFT_DELETE = ORM.isSoftDeleteEnabled(ENTITY_CLASS);
+		this.TRACK_CHANGES = ORM.isChangeTrackingEnabled(ENTITY_CLASS);
 		this.NAMING = new Naming();
 		this.JSON_MAPPER = new ObjectMapper();
 		this.childRepositories = new ArrayList<>();
@@ -484,6 +623,8 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		 */
 		List<FieldDefinitionContainer> fieldDefinitionContainers = new ArrayList<>();
 		int nPK;
+		String mappingFingerprint = MappingCache.fingerprint(ENTITY_CLASS, DB.getDialect().getClass());
+		MappingCache.Entry cachedMapping;
 		{
 			nPK = scanEntity(ENTITY_CLASS, pkc, fieldDefinitionContainers);
 			Collections.sort(fieldDefinitionContainers, FIELD_DEFINITION_COMPARATOR);
@@ -493,7 +634,12 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				fieldNames.add(fdc.javaFieldName);
 				fieldTypes.add(fdc.mappingType);
 			}
-			ORM.checkEntityIntegrity(ENTITY_CLASS, fieldNames, fieldTypes, DB.getDialect());
+			cachedMapping = MappingCache.get(ENTITY_CLASS, mappingFingerprint, fieldNames.toArray(new String[0]));
+			if (Objects.isNull(cachedMapping)) {
+				ORM.checkEntityIntegrity(ENTITY_CLASS, fieldNames, fieldTypes, DB.getDialect());
+			} else {
+				LOGGER.trace("%s: using cached mapping", ENTITY_NAME);
+			}
 		}
 		/**
 		 * 4 Analyze joined entities
@@ -554,6 +700,8 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		Transform[] FLD_NON_PK_TRANSFORMS = MAPPING_DEFINITION_NON_PK.transforms;
 
 		Definition[] definitionsArray = new Definition[fieldDefinitionContainers.size()];
+		LARGE_OBJECT_CHUNK_SIZES = new int[fieldDefinitionContainers.size()];
+		LAZY_COLUMNS = new boolean[fieldDefinitionContainers.size()];
 		fieldIndexMap = new HashMap<>();
 		{
 			int counter = 0;
@@ -561,10 +709,35 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			int counterJoins = 0;
 			boolean pkIsAutoGen = false;
 			boolean pkIsUUIDGen = false;
+			int idGenerator = PrimaryKey.GENERATOR_DEFAULT;
 			int resolveDepth = Resolve.DEPTH_DEFAULT;
 			int selfReferences = 0;
+			boolean hasChunkedLargeObjects = false;
+			boolean hasLazyColumns = false;
 			for (FieldDefinitionContainer fdc : fieldDefinitionContainers) {
 				Definition d = definitionsArray[counter] = fdc.toDefinition();
+				if (Reflect.typeEquals(fdc.mappingType, LargeObject.class)) {
+					int chunkSize = LARGE_OBJECT_CHUNK_SIZES[counter] = ORM.getChunkSize(fdc.field);
+					if (nPK != 1) {
+						throw new ConfigurationException(
+								ConfigurationException.LARGE_OBJECT_REQUIRES_SINGLE_PRIMARY_KEY, ENTITY_NAME,
+								fdc.getSQLName());
+					}
+					if (chunkSize > 0) {
+						hasChunkedLargeObjects = true;
+					}
+				} else {
+					LARGE_OBJECT_CHUNK_SIZES[counter] = -1;
+					if (counter >= nPK && fdc.field.isAnnotationPresent(LazyLoad.class)
+							&& !Entity.class.isAssignableFrom(fdc.mappingType)) {
+						if (Objects.isNull(ENTITY_BUILDER_CLASS)) {
+							LAZY_COLUMNS[counter] = hasLazyColumns = true;
+						} else {
+							LOGGER.warn("%s.%s: @LazyLoad is ignored for immutable entities", ENTITY_NAME,
+									fdc.getSQLName());
+						}
+					}
+				}
 				definitions.put(d.getName(), d);
 				fieldIndexMap.put(d.getName(), counter);
 				if (Reflect.typeEquals(fdc.mappingType, ENTITY_CLASS)) {
@@ -581,6 +754,21 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				if (counter == 0 && nPK == 1) {
 					pkIsAutoGen = d.isAutoGenerated();
 					pkIsUUIDGen = d.mustGenerateUUID();
+					if (Objects.nonNull(fdc.primaryKey) && fdc.primaryKey.autoGenerated()) {
+						idGenerator = fdc.primaryKey.generator();
+					}
+					if (idGenerator == PrimaryKey.GENERATOR_UUID_V7 && !pkIsUUIDGen
+							|| idGenerator == PrimaryKey.GENERATOR_SNOWFLAKE
+									&& (!pkIsAutoGen || !Reflect.typeEquals(ID_CLASS, Long.class))) {
+						throw new ConfigurationException(ConfigurationException.ID_GENERATOR_NOT_APPLICABLE,
+								ENTITY_NAME, fdc.getSQLName());
+					}
+					if (idGenerator == PrimaryKey.GENERATOR_SNOWFLAKE) {
+						/*
+						 * assigned before the insert like UUIDs
+						 */
+						pkIsAutoGen = false;
+					}
 				} else if (counter < nPK) {
 					if (d.isAutoGenerated() || d.mustGenerateUUID()) {
 						throw new ConfigurationException(
@@ -609,6 +797,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 //					} else {
 						FLD_PK_SQL_TYPES[counter] =
 								FLD_SQL_TYPES_PK_LEADING[counter] = 
+								Objects.nonNull(cachedMapping) ? cachedMapping.sqlTypes[counter] :
 								DB.getDialect().resolveType(fdc.mappingType);
 						FLD_PK_TRANSFORMS[counter] = 
 								FLD_TRANSFORMS_PK_LEADING[counter] = 
@@ -639,6 +828,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 					} else {
 						FLD_NON_PK_SQL_TYPES[counterTrailing] = 
 								FLD_SQL_TYPES_PK_LEADING[counter] = 
+								Objects.nonNull(cachedMapping) ? cachedMapping.sqlTypes[counter] :
 								DB.getDialect().resolveType(fdc.mappingType);
 						FLD_NON_PK_TRANSFORMS[counterTrailing] = 
 								FLD_TRANSFORMS_PK_LEADING[counter] = 
@@ -653,11 +843,49 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			}
 
 			PK_IS_AUTO_GENERATED = pkIsAutoGen;
+			HAS_CHUNKED_LARGE_OBJECTS = hasChunkedLargeObjects;
+			HAS_LAZY_COLUMNS = hasLazyColumns;
 			PK_IS_UUID = pkIsUUIDGen;
+			ID_GENERATOR = idGenerator;
 			MAPPING_DEFINITION_PK_LEADING.initializeMethods();
 			MAPPING_DEFINITION_NON_PK.initializeMethods();
 			MAPPING_DEFINITION_PK.initializeMethods();
 			RESOLVE_DEPTH = resolveDepth;
+			if (Objects.isNull(cachedMapping)) {
+				MappingCache.put(ENTITY_CLASS, mappingFingerprint, FLD_JAVA_NAMES_PK_LEADING, FLD_SQL_TYPES_PK_LEADING);
+			}
+		}
+		{
+			Constructor<E> canonicalConstructor = null;
+			int[] positions = null;
+			List<String> toManyFields = new ArrayList<>(manyToManyMapping.keySet());
+			toManyFields.addAll(oneToManyMapping.keySet());
+			CANONICAL_TO_MANY_FIELDS = toManyFields.toArray(new String[0]);
+			if (Objects.nonNull(ENTITY_BUILDER_CLASS)) {
+				for (Constructor<?> c : ENTITY_CLASS.getConstructors()) {
+					positions = getCanonicalPositions(c, fieldDefinitionContainers, CANONICAL_TO_MANY_FIELDS);
+					if (Objects.nonNull(positions)) {
+						@SuppressWarnings("unchecked")
+						Constructor<E> cc = (Constructor<E>) c;
+						canonicalConstructor = cc;
+						break;
+					}
+				}
+			}
+			ENTITY_CLASS_CANONICAL_CONSTRUCTOR = canonicalConstructor;
+			CANONICAL_CONSTRUCTOR_POSITIONS = positions;
+			if (Objects.nonNull(canonicalConstructor)) {
+				Class<?>[] parameterTypes = canonicalConstructor.getParameterTypes();
+				CANONICAL_CONSTRUCTOR_DEFAULTS = new Object[parameterTypes.length];
+				for (int i = 0; i < parameterTypes.length; i++) {
+					if (parameterTypes[i].isPrimitive()) {
+						CANONICAL_CONSTRUCTOR_DEFAULTS[i] = Array.get(Array.newInstance(parameterTypes[i], 1), 0);
+					}
+				}
+				LOGGER.trace("%s: materializing through the canonical constructor", ENTITY_NAME);
+			} else {
+				CANONICAL_CONSTRUCTOR_DEFAULTS = null;
+			}
 		}
 
 		/**
@@ -683,23 +911,22 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		DEFAULT_INSERT_QUERY = queryBuilderFactory.insert(DB.getSchemaName(), ENTITY_CLASS, FLD_SQL_NAMES_PK_LEADING)
 				.values(Arrays.asList((Entity<?>) null)).build();
 
-		SelectBuilder selectBuilder = queryBuilderFactory.select(DB.getSchemaName(), ENTITY_CLASS,
-				FLD_SQL_NAMES_PK_LEADING);
-
-		if (SOFT_DELETE) {
-			selectBuilder.withCriteria(this).isZero("deleted");
-		}
-
-		for (int i = 0; i < JOIN_MAPPINGS.length; i++) {
-			JoinMapping jm = JOIN_MAPPINGS[i];
-			if (jm.eager) {
-				jm.repository.joinEntity(selectBuilder, this, jm.fieldName, jm.referencedFieldName);
-			}
-		}
-		selectBuilder.limit(getDefaultLimit());
-		DEFAULT_SELECT_QUERY = selectBuilder.build();
+		DEFAULT_SELECT_QUERY = getDefaultSelectBuilder().build();
 		DEFAULT_SELECT_QUERY_BY_ID = DEFAULT_SELECT_QUERY.builder().withCriteria(this).equals(Entity.ID, "").leave()
 				.limit(1L).build();
+		{
+			/*
+			 * save and update compare with the stored lazy columns
+			 */
+			List<String> lazyFields = new ArrayList<>();
+			for (int i = 0; i < LAZY_COLUMNS.length; i++) {
+				if (LAZY_COLUMNS[i]) {
+					lazyFields.add(FLD_SQL_NAMES_PK_LEADING[i]);
+				}
+			}
+			SELECT_STORED_BY_ID_QUERY = getDefaultSelectBuilder(lazyFields.toArray(new String[0])).withCriteria(this)
+					.equals(Entity.ID, "").leave().limit(1L).noCache().build();
+		}
 		if (Objects.nonNull(PARENT_FIELD_NAME)) {
 			DEFAULT_SELECT_QUERY_BY_TOP_PARENT = DEFAULT_SELECT_QUERY.builder().withCriteria(this)
 					.isNull(PARENT_FIELD_NAME).leave().build();
@@ -717,7 +944,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				.where(DB.getSchemaName(), ENTITY_CLASS).equals(Entity.ID, "").leave().build();
 		FK_QUERIES = new HashMap<>();
 		for (JoinMapping j : JOIN_MAPPINGS) {
-			SelectBuilder b = db.getQueryBuilderFactory().select(this, FLD_SQL_NAMES_PK_LEADING).withCriteria(this)
+			SelectBuilder b = selectColumns(db.getQueryBuilderFactory().select(this)).withCriteria(this)
 					.equals(j.fieldName, "").leave().limit(Long.MAX_VALUE);
 			for (JoinMapping jj : JOIN_MAPPINGS) {
 				if (jj != j) {
@@ -731,6 +958,64 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 
 	}
 
+	/**
+	 * Matches the parameters of the specified constructor with the mapped fields
+	 * and the to-many fields by name. The names are taken from
+	 * {@link ConstructorProperties} or, if the class was compiled with
+	 * {@code -parameters}, from the parameters. The constructor is not used if the
+	 * names are unknown since matching by type and position could silently swap
+	 * values of the same type.
+	 * 
+	 * @param c                         the constructor to test
+	 * @param fieldDefinitionContainers the mapped fields in mapping order
+	 * @param toManyFields              the to-many fields, passed as list
+	 * @return the parameter position of each mapped field in mapping order
+	 *         followed by the positions of the to-many fields or null if the
+	 *         constructor does not match
+	 */
+	private int[] getCanonicalPositions(Constructor<?> c, List<FieldDefinitionContainer> fieldDefinitionContainers,
+			String[] toManyFields) {
+		Parameter[] parameters = c.getParameters();
+		int mapped = fieldDefinitionContainers.size();
+		if (parameters.length == 0 || parameters.length != mapped + toManyFields.length) {
+			return null;
+		}
+		List<String> names = new ArrayList<>();
+		ConstructorProperties properties = c.getAnnotation(ConstructorProperties.class);
+		if (Objects.nonNull(properties)) {
+			names.addAll(Arrays.asList(properties.value()));
+		} else {
+			for (Parameter parameter : parameters) {
+				if (!parameter.isNamePresent()) {
+					return null;
+				}
+				names.add(parameter.getName());
+			}
+		}
+		if (names.size() != parameters.length) {
+			return null;
+		}
+		int[] positions = new int[parameters.length];
+		for (int i = 0; i < mapped; i++) {
+			Field field = fieldDefinitionContainers.get(i).field;
+			int p = names.indexOf(field.getName());
+			if (p == -1 || names.lastIndexOf(field.getName()) != p
+					|| !Reflect.typeEquals(parameters[p].getType(), field.getType())) {
+				return null;
+			}
+			positions[i] = p;
+		}
+		for (int i = 0; i < toManyFields.length; i++) {
+			int p = names.indexOf(toManyFields[i]);
+			if (p == -1 || names.lastIndexOf(toManyFields[i]) != p
+					|| !parameters[p].getType().isAssignableFrom(List.class)) {
+				return null;
+			}
+			positions[mapped + i] = p;
+		}
+		return positions;
+	}
+
 	/**
 	 * scans the given entity class for field definitions.
 	 * <p>
@@ -951,9 +1236,15 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return CREATE_TABLE_QUERY.getQueryString();
 	}
 
+	@Override
+	public CreateQuery getCreateQuery() {
+		return CREATE_TABLE_QUERY;
+	}
+
 	@Override
 	public void create() throws SQLException {
 		DB.executeUpdate(CREATE_TABLE_QUERY.getQueryString());
+		createChunkTables();
 		for (CreateIndexQuery ciq : CREATE_INDEX_QUERIES) {
 			DB.executeUpdate(ciq.getQueryString());
 			;
@@ -1051,9 +1342,16 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		E record = null;
 		Object mutable;
 		EntityBuilder<ID> builder = null;
+		Object[] arguments = null;
 		if (Objects.isNull(ENTITY_BUILDER_CLASS)) {
 			record = ENTITY_CLASS_CONSTRUCTOR.newInstance();
 			mutable = record;
+		} else if (Objects.nonNull(ENTITY_CLASS_CANONICAL_CONSTRUCTOR) && !canonicalConstructorCopiesLists) {
+			/*
+			 * collected and passed to the constructor, no builder is allocated
+			 */
+			arguments = CANONICAL_CONSTRUCTOR_DEFAULTS.clone();
+			mutable = null;
 		} else {
 			builder = ENTITY_CLASS_BUILDER_CONSTRUCTOR.newInstance();
 			mutable = builder;
@@ -1061,6 +1359,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		int j = JOIN_MAPPINGS.length > 0 ? 0 : -1;
 		boolean isNull = true;
 		Object[] joinIds = new Object[JOIN_MAPPINGS.length];
+		boolean[] unloaded = null;
 //		if (ENTITY_CLASS.getSimpleName().equals("Transaction")) {
 //			System.err.println("STOP");
 //		} else {
@@ -1073,9 +1372,40 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				continue;
 			}
 			Object value = rs.getObject(iDB);
+			if (LARGE_OBJECT_CHUNK_SIZES[i] != -1) {
+				/*
+				 * only the length is selected, the content is read on access
+				 */
+				if (Objects.nonNull(value)) {
+					LargeObject largeObject = storedLargeObject(i, rs.getObject(index[0]), ((Number) value).longValue());
+					if (Objects.nonNull(arguments)) {
+						arguments[CANONICAL_CONSTRUCTOR_POSITIONS[i]] = largeObject;
+					} else {
+						MAPPING_DEFINITION_PK_LEADING.setters[i].invoke(mutable, largeObject);
+					}
+					isNull = false;
+				}
+				continue;
+			}
+			if (LAZY_COLUMNS[i] && Objects.isNull(value)) {
+				/*
+				 * not selected or NULL, fetched on demand
+				 */
+				if (Objects.isNull(unloaded)) {
+					unloaded = new boolean[LAZY_COLUMNS.length];
+				}
+				unloaded[i] = true;
+				continue;
+			}
 			if (Objects.nonNull(value)) {
-				setValue(mutable, value, MAPPING_DEFINITION_PK_LEADING.mappingTypes[i],
-						MAPPING_DEFINITION_PK_LEADING.setters[i], MAPPING_DEFINITION_PK_LEADING.transforms[i]);
+				if (Objects.nonNull(arguments)) {
+					arguments[CANONICAL_CONSTRUCTOR_POSITIONS[i]] = toJavaValue(value,
+							MAPPING_DEFINITION_PK_LEADING.mappingTypes[i], MAPPING_DEFINITION_PK_LEADING.transforms[i],
+							MAPPING_DEFINITION_PK_LEADING.javaNames[i]);
+				} else {
+					setValue(mutable, value, MAPPING_DEFINITION_PK_LEADING.mappingTypes[i],
+							MAPPING_DEFINITION_PK_LEADING.setters[i], MAPPING_DEFINITION_PK_LEADING.transforms[i]);
+				}
 				if (isNull) {
 					isNull = false;
 				}
@@ -1108,74 +1438,174 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				subRecord = jm.repository.getLazyEntityProxy(joinIds[i]);
 			}
 			if (Objects.nonNull(subRecord)) {
-				MAPPING_DEFINITION_PK_LEADING.setters[jm.mappingIndex].invoke(mutable, subRecord);
+				if (Objects.nonNull(arguments)) {
+					arguments[CANONICAL_CONSTRUCTOR_POSITIONS[jm.mappingIndex]] = subRecord;
+				} else {
+					MAPPING_DEFINITION_PK_LEADING.setters[jm.mappingIndex].invoke(mutable, subRecord);
+				}
 			}
 			i++;
 		}
-		if (Objects.nonNull(builder)) {
-			record = (E) builder.build();
-		}
-		boolean rebuild = false;
-		for (String key : manyToManyMapping.keySet()) {
-
-			ManyToManyMapping m = getManyToManyMapping(key);
-			List<?> res = null;
-//			ManyToManyMapping m = manyToManyMap.get(key);
-			if (eagerToMany.contains(key)) {
-				switch (m.type) {
-				case DIRECT:
-					res = m.mtmRepository.selectByFK(m.manyFieldName, record);
-					break;
-				case VIA_A:
-					res = m.mtmRepository.listByA(record);
-					break;
-				case VIA_B:
-					res = m.mtmRepository.listByB(record);
-					break;
-
-				default:
-					break;
+		boolean toManyBound = false;
+		if (Objects.nonNull(arguments)) {
+			/*
+			 * the to-many lists refer to the record, they are bound after construction
+			 */
+			DeferredList[] toMany = new DeferredList[CANONICAL_TO_MANY_FIELDS.length];
+			int mapped = MAPPING_DEFINITION_PK_LEADING.javaNames.length;
+			for (int k = 0; k < toMany.length; k++) {
+				toMany[k] = new DeferredList();
+				arguments[CANONICAL_CONSTRUCTOR_POSITIONS[mapped + k]] = toMany[k].list();
+			}
+			record = ENTITY_CLASS_CANONICAL_CONSTRUCTOR.newInstance(arguments);
+			toManyBound = true;
+			for (DeferredList list : toMany) {
+				if (list.isAccessed()) {
+					toManyBound = false;
+				}
+			}
+			if (toManyBound) {
+				for (int k = 0; k < toMany.length; k++) {
+					toMany[k].bind(resolveToMany(CANONICAL_TO_MANY_FIELDS[k], record));
 				}
 			} else {
-				switch (m.type) {
-				case DIRECT:
-					res = m.mtmRepository.getLazyListProxy(record, m.manyFieldName);
-					break;
-				case VIA_A:
-					res = m.mtmRepository.getLazyListProxy(record, m.manyFieldName, Type.VIA_A);
-					break;
-				case VIA_B:
-					res = m.mtmRepository.getLazyListProxy(record, m.manyFieldName, Type.VIA_B);
-					break;
-
-				default:
-					break;
+				LOGGER.trace("%s: the canonical constructor copies to-many lists, materializing through the builder",
+						ENTITY_NAME);
+				canonicalConstructorCopiesLists = true;
+				builder = ENTITY_CLASS_BUILDER_CONSTRUCTOR.newInstance();
+				for (int k = 0; k < mapped; k++) {
+					Object argument = arguments[CANONICAL_CONSTRUCTOR_POSITIONS[k]];
+					if (Objects.nonNull(argument)) {
+						MAPPING_DEFINITION_PK_LEADING.setters[k].invoke(builder, argument);
+					}
 				}
+				record = (E) builder.build();
 			}
-			if (!rebuild) {
-				rebuild = true;
-			}
-			m.setter.invoke(builder, res);
+		} else if (Objects.nonNull(builder)) {
+			record = (E) builder.build();
 		}
-		for (String key : oneToManyMapping.keySet()) {
-			OneToManyMapping m = getOneToManyMapping(key);
-			List<?> res;
-			if (eagerToMany.contains(key)) {
-				res = m.otmRepository.selectByFK(m.oneFieldName, record);
-			} else {
-				res = m.otmRepository.getLazyListProxy(record, m.oneFieldName);
+		if (!toManyBound && (manyToManyMapping.size() > 0 || oneToManyMapping.size() > 0)) {
+			for (String key : manyToManyMapping.keySet()) {
+				getManyToManyMapping(key).setter.invoke(builder, resolveToMany(key, record));
 			}
-			m.setter.invoke(builder, res);
-			if (!rebuild) {
-				rebuild = true;
+			for (String key : oneToManyMapping.keySet()) {
+				getOneToManyMapping(key).setter.invoke(builder, resolveToMany(key, record));
 			}
-		}
-		if (rebuild) {
 			record = (E) builder.build();
 		}
+		if (Objects.nonNull(unloaded)) {
+			registerLazyRow(record, unloaded);
+		}
+		SQLUnitOfWork unitOfWork = SQLUnitOfWork.current(DB);
+		if (Objects.nonNull(unitOfWork)) {
+			E known = unitOfWork.lookup(ENTITY_CLASS, record.getId());
+			if (Objects.nonNull(known)) {
+				return known;
+			}
+			unitOfWork.register(ENTITY_CLASS, record);
+			takeSnapshot(record);
+		} else if (TRACK_CHANGES) {
+			refreshSnapshot(record);
+		}
 		return record;
 	}
 
+	/**
+	 * Resolves the list of a to-many field of the specified record, eagerly or as
+	 * lazy list proxy.
+	 * 
+	 * @param fieldName the to-many field
+	 * @param record    the record owning the list
+	 * @return the list
+	 * @throws SQLException
+	 */
+	private List<?> resolveToMany(String fieldName, E record) throws SQLException {
+		boolean eager = eagerToMany.contains(fieldName);
+		if (manyToManyMapping.containsKey(fieldName)) {
+			ManyToManyMapping m = getManyToManyMapping(fieldName);
+			switch (m.type) {
+			case DIRECT:
+				return eager ? m.mtmRepository.selectByFK(m.manyFieldName, record)
+						: m.mtmRepository.getLazyListProxy(record, m.manyFieldName);
+			case VIA_A:
+				return eager ? m.mtmRepository.listByA(record)
+						: m.mtmRepository.getLazyListProxy(record, m.manyFieldName, Type.VIA_A);
+			case VIA_B:
+				return eager ? m.mtmRepository.listByB(record)
+						: m.mtmRepository.getLazyListProxy(record, m.manyFieldName, Type.VIA_B);
+			default:
+				return null;
+			}
+		}
+		OneToManyMapping m = getOneToManyMapping(fieldName);
+		return eager ? m.otmRepository.selectByFK(m.oneFieldName, record)
+				: m.otmRepository.getLazyListProxy(record, m.oneFieldName);
+	}
+
+	/**
+	 * Stores the current column values of the specified entity as change tracking
+	 * snapshot.
+	 * 
+	 * @param item the loaded or saved entity
+	 */
+	private void takeSnapshot(E item) {
+		Object[] values = new Object[MAPPING_DEFINITION_PK_LEADING.getters.length];
+		try {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = getValue(item, MAPPING_DEFINITION_PK_LEADING.getters[i],
+						MAPPING_DEFINITION_PK_LEADING.transforms[i]);
+			}
+		} catch (SQLException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			LOGGER.trace("%s snapshot skipped: %s", ENTITY_NAME, e.getMessage());
+			SNAPSHOTS.remove(item);
+			return;
+		}
+		SNAPSHOTS.put(item, values);
+	}
+
+	/**
+	 * Refreshes the change tracking snapshot outside of units of work. Inside a
+	 * transaction managed by the caller the snapshot is dropped instead because
+	 * the values may be rolled back, the next save then compares the entity to
+	 * the stored record. Units of work drop their snapshots on rollback.
+	 * 
+	 * @param item the loaded or saved entity
+	 * @throws SQLException
+	 */
+	private void refreshSnapshot(E item) throws SQLException {
+		if (DB.isTransactionOpen()) {
+			SNAPSHOTS.remove(item);
+		} else {
+			takeSnapshot(item);
+		}
+	}
+
+	/**
+	 * Gets the change tracking snapshot of the specified entity.
+	 * 
+	 * @param item the entity to save
+	 * @return the snapshot or null if the entity is detached or its primary key
+	 *         was changed
+	 */
+	private Object[] getSnapshot(E item) {
+		Object[] snapshot = SNAPSHOTS.get(item);
+		if (Objects.isNull(snapshot)) {
+			return null;
+		}
+		try {
+			for (int i = 0; i < MAPPING_DEFINITION_PK.getters.length; i++) {
+				if (!EntitySnapshots.valueEquals(snapshot[i],
+						getValue(item, MAPPING_DEFINITION_PK.getters[i], MAPPING_DEFINITION_PK.transforms[i]))) {
+					return null;
+				}
+			}
+		} catch (SQLException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			LOGGER.error(e);
+			return null;
+		}
+		return snapshot;
+	}
+
 	@Override
 	public int skipSubrecord(int i) {
 		i += MAPPING_DEFINITION_PK_LEADING.sqlNames.length;
@@ -1206,23 +1636,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			value = 0;
 		}
 		if (Objects.nonNull(value)) {
-			try {
-				value = transform.dbToJava.transform(value);
-			} catch (Exception e) {
-//				e.printStackTrace();
-				throw new SQLException("Type transformation failed: " + setter.getName() + ": " + e.getMessage(), e);
-			}
-			// ensure data/type integrity
-			if (!Reflect.typeEquals(value.getClass(), type) && !Reflect.typeIsWrapperOf(value.getClass(), type)) {
-				// auto upcast because of issues with getting the current auto-generated id
-				// TODO fix?
-				if (Number.class.isAssignableFrom(type) && Number.class.isAssignableFrom(value.getClass())) {
-					Object x = Reflect.tryUpCastInteger(value, type);
-					if (Objects.nonNull(x)) {
-						value = x;
-					}
-				}
-			}
+			value = toJavaValue(value, type, transform, setter.getName());
 			try {
 				setter.invoke(item, value);
 			} catch (IllegalArgumentException e) {
@@ -1238,6 +1652,31 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return value;
 	}
 
+	/**
+	 * Transforms a non-null database value to the java type of the field.
+	 */
+	private static final Object toJavaValue(Object value, Class<?> type, Transform transform, String name)
+			throws SQLException {
+		try {
+			value = transform.dbToJava.transform(value);
+		} catch (Exception e) {
+//			e.printStackTrace();
+			throw new SQLException("Type transformation failed: " + name + ": " + e.getMessage(), e);
+		}
+		// ensure data/type integrity
+		if (!Reflect.typeEquals(value.getClass(), type) && !Reflect.typeIsWrapperOf(value.getClass(), type)) {
+			// auto upcast because of issues with getting the current auto-generated id
+			// TODO fix?
+			if (Number.class.isAssignableFrom(type) && Number.class.isAssignableFrom(value.getClass())) {
+				Object x = Reflect.tryUpCastInteger(value, type);
+				if (Objects.nonNull(x)) {
+					value = x;
+				}
+			}
+		}
+		return value;
+	}
+
 	private int fillPreparedStatementAutoType(PreparedStatement ps, Object[] values, int startingValue)
 			throws SQLException {
 		return JDBCUtils.autoFill(DB.getDialect(), ps, values, startingValue);
@@ -1268,6 +1707,8 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			}
 			if (arg == null) {
 				ps.setNull(nextPos, sqlTypes[i]);
+			} else if (arg instanceof LargeObject) {
+				setLargeObject(ps, nextPos, (LargeObject) arg, getMappingIndex(getters[i]));
 			} else {
 				ps.setObject(nextPos, arg, sqlTypes[i]);
 			}
@@ -1308,33 +1749,602 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return nextPos;
 	}
 
+	/*
+	 * * * Lazy Columns
+	 */
+
 	@Override
-	public <T> T newRecord() {
-		if (Objects.isNull(ENTITY_BUILDER_CLASS)) {
-			try {
-				return (T) ENTITY_CLASS_CONSTRUCTOR.newInstance();
-			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-					| InvocationTargetException e) {
-				LOGGER.error(e);
-			}
-		} else {
-			try {
-				return (T) ENTITY_CLASS_BUILDER_CONSTRUCTOR.newInstance();
-			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-					| InvocationTargetException e) {
-				LOGGER.error(e);
-			}
+	public SelectBuilder getDefaultSelectBuilder(String... eagerFields) {
+		SelectBuilder selectBuilder = selectColumns(queryBuilderFactory.select(DB.getSchemaName(), ENTITY_CLASS),
+				Arrays.asList(eagerFields));
+
+		if (SOFT_DELETE) {
+			selectBuilder.withCriteria(this).isZero("deleted");
 		}
-		return null;
-	}
 
-	@Override
-	public final boolean checkClose(boolean closeConnection) throws SQLException {
-		if (closeConnection) {
-			DB.closeConnection();
-			return true;
+		for (int i = 0; i < JOIN_MAPPINGS.length; i++) {
+			JoinMapping jm = JOIN_MAPPINGS[i];
+			if (jm.eager) {
+				jm.repository.joinEntity(selectBuilder, this, jm.fieldName, jm.referencedFieldName);
+			}
 		}
-		return false;
+		selectBuilder.limit(getDefaultLimit());
+		return selectBuilder;
+	}
+
+	/**
+	 * Remembers the values of the unloaded lazy columns of a loaded entity.
+	 * 
+	 * @param record   the loaded entity
+	 * @param unloaded the lazy columns that were not loaded in mapping order
+	 */
+	private void registerLazyRow(E record, boolean[] unloaded) {
+		Object[] values = new Object[unloaded.length];
+		for (int i = 0; i < values.length; i++) {
+			if (unloaded[i]) {
+				try {
+					values[i] = getValue(record, MAPPING_DEFINITION_PK_LEADING.getters[i],
+							MAPPING_DEFINITION_PK_LEADING.transforms[i]);
+				} catch (SQLException | IllegalAccessException | IllegalArgumentException
+						| InvocationTargetException e) {
+					LOGGER.error(e);
+				}
+			} else {
+				values[i] = LOADED;
+			}
+		}
+		synchronized (LAZY_ROWS) {
+			LAZY_ROWS.put(record, new LazyRow(values));
+		}
+	}
+
+	/**
+	 * Groups the rows of one result so their lazy columns are fetched together.
+	 */
+	private void groupLazyRows(List<E> rows) {
+		List<WeakReference<Object>> group = new ArrayList<>();
+		synchronized (LAZY_ROWS) {
+			for (E e : rows) {
+				LazyRow row = LAZY_ROWS.get(e);
+				if (Objects.nonNull(row)) {
+					row.group = group;
+					group.add(new WeakReference<>(e));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests if the specified lazy column of the item was neither fetched nor
+	 * changed since it was loaded.
+	 */
+	private boolean isUnloaded(E item, int i) {
+		LazyRow row;
+		synchronized (LAZY_ROWS) {
+			row = LAZY_ROWS.get(item);
+		}
+		if (Objects.isNull(row) || row.unloaded[i] == LOADED) {
+			return false;
+		}
+		try {
+			return EntitySnapshots.valueEquals(row.unloaded[i], getValue(item,
+					MAPPING_DEFINITION_PK_LEADING.getters[i], MAPPING_DEFINITION_PK_LEADING.transforms[i]));
+		} catch (SQLException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			LOGGER.error(e);
+			return false;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void fetchLazy(E item) throws SQLException {
+		List<E> rows = new ArrayList<>();
+		Map<Object, LazyRow> lazyRows = new HashMap<>();
+		synchronized (LAZY_ROWS) {
+			LazyRow row = LAZY_ROWS.get(item);
+			if (Objects.isNull(row)) {
+				return;
+			}
+			if (Objects.isNull(row.group)) {
+				rows.add(item);
+			} else {
+				for (WeakReference<Object> ref : row.group) {
+					Object e = ref.get();
+					if (Objects.nonNull(e) && Objects.nonNull(LAZY_ROWS.get(e))) {
+						rows.add((E) e);
+					}
+				}
+			}
+			for (E e : rows) {
+				lazyRows.put(e, LAZY_ROWS.remove(e));
+			}
+		}
+		List<Integer> lazyIndexes = new ArrayList<>();
+		List<String> columns = new ArrayList<>();
+		columns.add(MAPPING_DEFINITION_PK.sqlNames[0]);
+		for (int i = 0; i < LAZY_COLUMNS.length; i++) {
+			if (LAZY_COLUMNS[i]) {
+				lazyIndexes.add(i);
+				columns.add(MAPPING_DEFINITION_PK_LEADING.sqlNames[i]);
+			}
+		}
+		Map<Object, List<E>> byId = new HashMap<>();
+		for (E e : rows) {
+			byId.computeIfAbsent(idKey(e.getId()), k -> new ArrayList<>()).add(e);
+		}
+		List<Object> ids = new ArrayList<>(byId.keySet());
+		try {
+			Connection c = DB.getConnection();
+			for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+				List<Object> chunk = ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE));
+				SelectQuery q = queryBuilderFactory.select(DB.getSchemaName(), ENTITY_CLASS,
+						columns.toArray(new String[0])).withCriteria(this)
+						.in(MAPPING_DEFINITION_PK.sqlNames[0], new ArrayList<>(chunk)).leave().clearLimit().build();
+				String sql = q.getQueryString();
+				logQuery(sql, Arrays.asList(q.getCriteriumValues()));
+				try (PreparedStatement ps = c.prepareStatement(sql)) {
+					fillPreparedStatementAutoType(ps, q.getCriteriumValues());
+					try (ResultSet rs = ps.executeQuery()) {
+						while (rs.next()) {
+							List<E> es = byId.get(idKey(rs.getObject(1)));
+							if (Objects.isNull(es)) {
+								continue;
+							}
+							for (E e : es) {
+								applyLazyColumns(e, lazyRows.get(e), lazyIndexes, rs);
+							}
+						}
+					}
+				} catch (SQLException e) {
+					LOGGER.error(sql);
+					throw e;
+				}
+			}
+		} catch (SQLException e) {
+			synchronized (LAZY_ROWS) {
+				for (E r : rows) {
+					LAZY_ROWS.put(r, lazyRows.get(r));
+				}
+			}
+			throw e;
+		} finally {
+			checkClose();
+		}
+		LOGGER.trace("%s: fetched the lazy columns of %d records", ENTITY_NAME, rows.size());
+	}
+
+	/**
+	 * Sets the fetched lazy columns that were not changed since the entity was
+	 * loaded and updates its change tracking snapshot.
+	 */
+	private void applyLazyColumns(E e, LazyRow row, List<Integer> lazyIndexes, ResultSet rs) throws SQLException {
+		Object[] snapshot = SNAPSHOTS.get(e);
+		int k = 2;
+		for (int i : lazyIndexes) {
+			Object value = rs.getObject(k++);
+			if (row.unloaded[i] == LOADED) {
+				continue;
+			}
+			try {
+				Method getter = MAPPING_DEFINITION_PK_LEADING.getters[i];
+				Transform transform = MAPPING_DEFINITION_PK_LEADING.transforms[i];
+				if (!EntitySnapshots.valueEquals(row.unloaded[i], getValue(e, getter, transform))) {
+					continue;
+				}
+				setValue(e, value, MAPPING_DEFINITION_PK_LEADING.mappingTypes[i],
+						MAPPING_DEFINITION_PK_LEADING.setters[i], transform);
+				if (Objects.nonNull(snapshot)) {
+					Object stored = getValue(e, getter, transform);
+					snapshot[i] = stored instanceof byte[] ? ((byte[]) stored).clone() : stored;
+				}
+			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
+				LOGGER.error(ex);
+			}
+		}
+	}
+
+	/*
+	 * * * Large Objects
+	 */
+
+	private SelectBuilder selectColumns(SelectBuilder s) {
+		return selectColumns(s, Collections.emptyList());
+	}
+
+	/**
+	 * Selects the mapped columns in mapping order, inline {@link LargeObject}
+	 * columns are selected by their length only and lazy columns are selected as
+	 * NULL unless they are loaded eagerly.
+	 * 
+	 * @param s           the select builder
+	 * @param eagerFields the lazy columns to load
+	 * @return the select builder
+	 */
+	private SelectBuilder selectColumns(SelectBuilder s, Collection<String> eagerFields) {
+		String[] sqlNames = MAPPING_DEFINITION_PK_LEADING.sqlNames;
+		for (int i = 0; i < sqlNames.length; i++) {
+			if (LARGE_OBJECT_CHUNK_SIZES[i] == 0) {
+				s.selectLength(DB.getSchemaName(), ENTITY_CLASS, sqlNames[i]);
+			} else if (LAZY_COLUMNS[i] && !eagerFields.contains(sqlNames[i])) {
+				s.selectNull();
+			} else {
+				s.select(DB.getSchemaName(), ENTITY_CLASS, sqlNames[i]);
+			}
+		}
+		return s;
+	}
+
+	private int getMappingIndex(Method getter) {
+		for (int i = 0; i < MAPPING_DEFINITION_PK_LEADING.getters.length; i++) {
+			if (MAPPING_DEFINITION_PK_LEADING.getters[i].equals(getter)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private String getChunkTableName(int i) {
+		return String.format("`%s`.`%s`", DB.getSchemaName(),
+				ORM.getChunkTableName(ENTITY_NAME, MAPPING_DEFINITION_PK_LEADING.sqlNames[i]));
+	}
+
+	/**
+	 * Creates the handle of a loaded large object that reads the content on
+	 * access.
+	 * 
+	 * @param i      the mapping index
+	 * @param id     the primary key value
+	 * @param length the stored length
+	 * @return the stored handle
+	 */
+	private LargeObject storedLargeObject(int i, Object id, long length) {
+		String column = MAPPING_DEFINITION_PK_LEADING.sqlNames[i];
+		LargeObject.Source source;
+		if (LARGE_OBJECT_CHUNK_SIZES[i] > 0) {
+			source = () -> new ChunkInputStream(seq -> readChunk(i, id, seq), length);
+		} else {
+			source = () -> readInline(column, id);
+		}
+		return LargeObject.stored(Arrays.asList(ENTITY_NAME, column, idKey(id)), source, length);
+	}
+
+	/**
+	 * Reads an inline large object. The driver reads the value in one piece, use
+	 * chunked storage to avoid that.
+	 */
+	private InputStream readInline(String column, Object id) throws IOException {
+		String sql = String.format("SELECT `%s` FROM `%s`.`%s` WHERE `%s` = ?", column, DB.getSchemaName(),
+				ENTITY_NAME, MAPPING_DEFINITION_PK.sqlNames[0]);
+		try {
+			Connection c = DB.getConnection();
+			logQuery(sql, Arrays.asList(id));
+			try (PreparedStatement ps = c.prepareStatement(sql)) {
+				ps.setObject(1, id);
+				try (ResultSet rs = ps.executeQuery()) {
+					byte[] content = rs.next() ? rs.getBytes(1) : null;
+					if (Objects.isNull(content)) {
+						throw new IOException(String.format("%s.%s of %s is not stored", ENTITY_NAME, column, id));
+					}
+					return new ByteArrayInputStream(content);
+				}
+			} finally {
+				checkClose();
+			}
+		} catch (SQLException e) {
+			LOGGER.error(sql);
+			throw new IOException(e);
+		}
+	}
+
+	private byte[] readChunk(int i, Object id, long seq) throws SQLException {
+		String sql = String.format("SELECT `data` FROM %s WHERE `owner` = ? AND `seq` = ?", getChunkTableName(i));
+		Connection c = DB.getConnection();
+		try (PreparedStatement ps = c.prepareStatement(sql)) {
+			ps.setObject(1, id);
+			ps.setLong(2, seq);
+			try (ResultSet rs = ps.executeQuery()) {
+				return rs.next() ? rs.getBytes(1) : null;
+			}
+		} catch (SQLException e) {
+			LOGGER.error(sql);
+			throw e;
+		} finally {
+			checkClose();
+		}
+	}
+
+	/**
+	 * Binds a large object parameter, inline content is streamed through
+	 * {@code setBinaryStream}, chunked columns store the length.
+	 */
+	private void setLargeObject(PreparedStatement ps, int pos, LargeObject lo, int i) throws SQLException {
+		if (i != -1 && LARGE_OBJECT_CHUNK_SIZES[i] > 0) {
+			ps.setLong(pos, lo.length());
+			return;
+		}
+		if (lo.length() > Integer.MAX_VALUE) {
+			throw new SQLException(
+					String.format("%s: %d bytes cannot be stored inline, use @Chunked", ENTITY_NAME, lo.length()));
+		}
+		InputStream in;
+		try {
+			in = lo.openStream();
+		} catch (IOException e) {
+			throw new SQLException("Large object could not be opened: " + e.getMessage(), e);
+		}
+		/*
+		 * the driver may consume the stream when the statement is executed, close
+		 * it once it is exhausted
+		 */
+		ps.setBinaryStream(pos, new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if (b == -1) {
+					close();
+				}
+				return b;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int n = super.read(b, off, len);
+				if (n == -1) {
+					close();
+				}
+				return n;
+			}
+		}, (int) lo.length());
+	}
+
+	/**
+	 * Rewrites the chunks of the chunked large object columns among the specified
+	 * getters. The chunks of a record are replaced in one transaction unless the
+	 * caller manages the transaction.
+	 * 
+	 * @param item    the written item
+	 * @param getters the getters of the written columns
+	 * @throws SQLException
+	 */
+	private void writeChunks(E item, Method[] getters) throws SQLException {
+		if (!HAS_CHUNKED_LARGE_OBJECTS) {
+			return;
+		}
+		for (Method getter : getters) {
+			int i = getMappingIndex(getter);
+			if (i == -1 || LARGE_OBJECT_CHUNK_SIZES[i] <= 0) {
+				continue;
+			}
+			try {
+				Object id = getValue(item, MAPPING_DEFINITION_PK.getters[0], MAPPING_DEFINITION_PK.transforms[0]);
+				writeChunks(i, id, (LargeObject) getter.invoke(item));
+			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+				LOGGER.error(e);
+				throw new SQLException(String.format("%s: the large object %s could not be read", ENTITY_NAME,
+						MAPPING_DEFINITION_PK_LEADING.sqlNames[i]), e);
+			}
+		}
+	}
+
+	private void writeChunks(int i, Object id, LargeObject lo) throws SQLException {
+		createChunkTables();
+		String table = getChunkTableName(i);
+		int chunkSize = LARGE_OBJECT_CHUNK_SIZES[i];
+		Connection c = DB.getConnection();
+		boolean autoCommit = c.getAutoCommit();
+		if (autoCommit) {
+			c.setAutoCommit(false);
+		}
+		String sqlDelete = String.format("DELETE FROM %s WHERE `owner` = ?", table);
+		String sqlInsert = String.format("INSERT INTO %s (`owner`, `seq`, `data`) VALUES (?, ?, ?)", table);
+		try {
+			logQuery(sqlDelete);
+			try (PreparedStatement ps = c.prepareStatement(sqlDelete)) {
+				ps.setObject(1, id);
+				ps.executeUpdate();
+			}
+			if (Objects.nonNull(lo)) {
+				logQuery(sqlInsert);
+				try (InputStream in = lo.openStream(); PreparedStatement ps = c.prepareStatement(sqlInsert)) {
+					byte[] buffer = new byte[chunkSize];
+					long seq = 0L;
+					int n;
+					while ((n = in.readNBytes(buffer, 0, chunkSize)) > 0) {
+						ps.setObject(1, id);
+						ps.setLong(2, seq++);
+						ps.setBytes(3, n == chunkSize ? buffer : Arrays.copyOf(buffer, n));
+						ps.executeUpdate();
+					}
+				}
+			}
+			if (autoCommit) {
+				c.commit();
+			}
+		} catch (SQLException | IOException e) {
+			if (autoCommit) {
+				c.rollback();
+			}
+			LOGGER.error(sqlInsert);
+			throw e instanceof SQLException ? (SQLException) e
+					: new SQLException("Large object could not be read: " + e.getMessage(), e);
+		} finally {
+			if (autoCommit) {
+				c.setAutoCommit(true);
+			}
+		}
+	}
+
+	/**
+	 * Creates the side tables of the chunked large object columns if they do not
+	 * exist. The chunks reference their record with {@code ON DELETE CASCADE} but
+	 * foreign keys may be disabled, so the delete paths remove them explicitly.
+	 * 
+	 * @throws SQLException
+	 */
+	private void createChunkTables() throws SQLException {
+		if (!HAS_CHUNKED_LARGE_OBJECTS || chunkTablesCreated) {
+			return;
+		}
+		for (int i = 0; i < LARGE_OBJECT_CHUNK_SIZES.length; i++) {
+			if (LARGE_OBJECT_CHUNK_SIZES[i] > 0) {
+				DB.executeUpdate(String.format(
+						"CREATE TABLE IF NOT EXISTS %s (`owner` NOT NULL REFERENCES `%s` (`%s`) ON DELETE CASCADE, "
+								+ "`seq` INTEGER NOT NULL, `data` BLOB NOT NULL, PRIMARY KEY (`owner`, `seq`)) WITHOUT ROWID",
+						getChunkTableName(i), ENTITY_NAME, MAPPING_DEFINITION_PK.sqlNames[0]));
+			}
+		}
+		chunkTablesCreated = true;
+	}
+
+	/**
+	 * Begins a transaction for writing a record together with its chunks unless
+	 * the record has no chunked columns or the caller manages the transaction.
+	 * 
+	 * @param c the connection
+	 * @return true if the transaction must be ended by
+	 *         {@link #endChunkedWrite(Connection, boolean, boolean)}
+	 * @throws SQLException
+	 */
+	private boolean beginChunkedWrite(Connection c) throws SQLException {
+		if (HAS_CHUNKED_LARGE_OBJECTS && c.getAutoCommit()) {
+			createChunkTables();
+			c.setAutoCommit(false);
+			return true;
+		}
+		return false;
+	}
+
+	private void endChunkedWrite(Connection c, boolean ownTransaction, boolean written) throws SQLException {
+		if (!ownTransaction) {
+			return;
+		}
+		try {
+			if (written) {
+				c.commit();
+				DB.getChangeEventBus().commit();
+			} else {
+				c.rollback();
+				DB.getChangeEventBus().rollback();
+			}
+		} finally {
+			c.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Deletes the chunks of the records the specified delete query is going to
+	 * delete. If the records can not be selected from the query the chunks left
+	 * without record are deleted instead, call this method again after the records
+	 * were deleted then.
+	 * 
+	 * @param c       the connection
+	 * @param q       the delete query
+	 * @param deleted true if the records were deleted already
+	 * @throws SQLException
+	 */
+	private void deleteChunks(Connection c, DeleteQuery q, boolean deleted) throws SQLException {
+		String sql = q.getQueryString();
+		String pk = MAPPING_DEFINITION_PK.sqlNames[0];
+		boolean selectable = sql.startsWith(SQL_DELETE_FROM);
+		if (selectable == deleted) {
+			return;
+		}
+		for (int i = 0; i < LARGE_OBJECT_CHUNK_SIZES.length; i++) {
+			if (LARGE_OBJECT_CHUNK_SIZES[i] <= 0) {
+				continue;
+			}
+			String sqlChunks;
+			Object[] values;
+			if (selectable) {
+				sqlChunks = String.format("DELETE FROM %s WHERE `owner` IN (SELECT `%s` FROM %s)",
+						getChunkTableName(i), pk, sql.substring(SQL_DELETE_FROM.length()));
+				values = q.getCriteriumValues();
+			} else {
+				sqlChunks = String.format("DELETE FROM %s WHERE `owner` NOT IN (SELECT `%s` FROM `%s`.`%s`)",
+						getChunkTableName(i), pk, DB.getSchemaName(), ENTITY_NAME);
+				values = new Object[0];
+			}
+			logQuery(sqlChunks, Arrays.asList(values));
+			try (PreparedStatement ps = c.prepareStatement(sqlChunks)) {
+				fillPreparedStatementAutoType(ps, values);
+				ps.executeUpdate();
+			} catch (SQLException e) {
+				LOGGER.error(sqlChunks);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Deletes records along with their chunks in one transaction unless the caller
+	 * manages the transaction.
+	 * 
+	 * @param q the delete query
+	 * @throws SQLException
+	 */
+	private void executeChunkedDelete(DeleteQuery q) throws SQLException {
+		createChunkTables();
+		String sql = q.getQueryString();
+		try {
+			Connection c = DB.getConnection();
+			boolean autoCommit = c.getAutoCommit();
+			if (autoCommit) {
+				c.setAutoCommit(false);
+			}
+			try {
+				deleteChunks(c, q, false);
+				logQuery(sql, Arrays.asList(q.getCriteriumValues()));
+				try (PreparedStatement ps = c.prepareStatement(sql)) {
+					fillPreparedStatementAutoType(ps, q.getCriteriumValues());
+					ps.executeUpdate();
+				}
+				deleteChunks(c, q, true);
+				if (autoCommit) {
+					c.commit();
+				}
+			} catch (SQLException | RuntimeException e) {
+				if (autoCommit) {
+					c.rollback();
+				}
+				LOGGER.error(sql);
+				throw e;
+			} finally {
+				if (autoCommit) {
+					c.setAutoCommit(true);
+				}
+			}
+		} finally {
+			checkClose();
+		}
+	}
+
+	@Override
+	public <T> T newRecord() {
+		if (Objects.isNull(ENTITY_BUILDER_CLASS)) {
+			try {
+				return (T) ENTITY_CLASS_CONSTRUCTOR.newInstance();
+			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+					| InvocationTargetException e) {
+				LOGGER.error(e);
+			}
+		} else {
+			try {
+				return (T) ENTITY_CLASS_BUILDER_CONSTRUCTOR.newInstance();
+			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+					| InvocationTargetException e) {
+				LOGGER.error(e);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public final boolean checkClose(boolean closeConnection) throws SQLException {
+		if (closeConnection) {
+			DB.closeConnection();
+			return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -1404,6 +2414,15 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return x.size() == 1 ? Optional.of(x.get(0)) : Optional.empty();
 	}
 
+	/**
+	 * Reads the stored record bypassing the query result cache so the record is
+	 * compared to what is stored even if the cache configuration changes.
+	 */
+	private Optional<E> selectStoredById(ID id) throws SQLException {
+		List<E> x = select(SELECT_STORED_BY_ID_QUERY.withCriteriumValues(id));
+		return x.size() == 1 ? Optional.of(x.get(0)) : Optional.empty();
+	}
+
 	@Override
 	public List<E> selectByFK(String foreignKeyField, Object one) throws SQLException {
 		SelectQuery q = FK_QUERIES.get(foreignKeyField).withCriteriumValues(((Entity<?>) one).getId());
@@ -1440,8 +2459,114 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 
 	@Override
 	public List<E> selectAll(List<ID> ids) throws SQLException {
-		return select(DEFAULT_SELECT_QUERY.builder().limit(ids.size()).withCriteria(this).in("id", (List<Object>) ids)
-				.leave().build());
+		return selectAll(ids, false);
+	}
+
+	@Override
+	public List<E> selectAll(List<ID> ids, boolean inputOrder) throws SQLException {
+		List<E> result;
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		} else if (ids.size() <= BATCH_SIZE) {
+			result = selectIn(ids);
+		} else if (ids.size() <= TEMP_TABLE_THRESHOLD) {
+			result = new ArrayList<>();
+			for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+				result.addAll(selectIn(ids.subList(i, Math.min(ids.size(), i + BATCH_SIZE))));
+			}
+		} else {
+			result = selectInTempTable(ids);
+		}
+		if (inputOrder) {
+			Map<Object, E> byId = new HashMap<>();
+			for (E e : result) {
+				byId.put(idKey(e.getId()), e);
+			}
+			result = new ArrayList<>(result.size());
+			for (ID id : ids) {
+				E e = byId.get(idKey(id));
+				if (Objects.nonNull(e)) {
+					result.add(e);
+				}
+			}
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<E> selectIn(List<ID> ids) throws SQLException {
+		return select(DEFAULT_SELECT_QUERY.builder().limit(ids.size()).withCriteria(this)
+				.in(MAPPING_DEFINITION_PK.sqlNames[0], new ArrayList<>((List<Object>) ids)).leave().build());
+	}
+
+	/**
+	 * Selects the records by bulk-inserting the ids into a temporary table that is
+	 * used in an IN (SELECT ...) criterium.
+	 */
+	private List<E> selectInTempTable(List<ID> ids) throws SQLException {
+		String tableName = "lumicore_ids_" + ENTITY_NAME;
+		String table = String.format("`temp`.`%s`", tableName);
+		Connection c = DB.getConnection();
+		try (Statement st = c.createStatement()) {
+			String sql = String.format("CREATE TEMP TABLE IF NOT EXISTS `%s` (`id` PRIMARY KEY) WITHOUT ROWID",
+					tableName);
+			logQuery(sql);
+			st.executeUpdate(sql);
+			sql = String.format("DELETE FROM %s", table);
+			logQuery(sql);
+			st.executeUpdate(sql);
+		}
+		boolean autoCommit = c.getAutoCommit();
+		if (autoCommit) {
+			c.setAutoCommit(false);
+		}
+		String sqlInsert = String.format("INSERT OR IGNORE INTO %s (`id`) VALUES (?)", table);
+		logQuery(sqlInsert);
+		try (PreparedStatement ps = c.prepareStatement(sqlInsert)) {
+			int n = 0;
+			for (ID id : ids) {
+				ps.setObject(1, id);
+				ps.addBatch();
+				if (++n % BATCH_SIZE == 0) {
+					ps.executeBatch();
+				}
+			}
+			ps.executeBatch();
+			if (autoCommit) {
+				c.commit();
+			}
+		} catch (SQLException e) {
+			if (autoCommit) {
+				c.rollback();
+			}
+			LOGGER.error(sqlInsert);
+			throw e;
+		} finally {
+			if (autoCommit) {
+				c.setAutoCommit(true);
+			}
+		}
+		try {
+			return select(DEFAULT_SELECT_QUERY.builder().clearLimit().withCriteria(this)
+					.inTable(MAPPING_DEFINITION_PK.sqlNames[0], "temp", tableName, "id").leave().build());
+		} finally {
+			if (!c.isClosed()) {
+				try (Statement st = c.createStatement()) {
+					st.executeUpdate(String.format("DELETE FROM %s", table));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Normalizes ids so that ids read from the database compare equal to the
+	 * given ids (for example Integer vs. Long).
+	 */
+	static Object idKey(Object id) {
+		if (id instanceof Number) {
+			return ((Number) id).longValue();
+		}
+		return id;
 	}
 
 	@Override
@@ -1451,21 +2576,42 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		LOGGER.trace(sql);
 		try {
 			Connection c = DB.getConnection();
+			QueryCache cache = DB.getQueryCache();
+			Set<String> tables = null;
+			List<Object> cacheKey = null;
+			long generation = 0L;
+			if (Objects.nonNull(cache) && q.isCacheable() && c.getAutoCommit()
+					&& Objects.nonNull(tables = getCacheableTables(sql, q.getCriteriumValues()))) {
+				cacheKey = Arrays.asList(ENTITY_CLASS, sql, Arrays.asList(q.getCriteriumValues()));
+				CachedRows cached = cache.get(cacheKey);
+				if (Objects.nonNull(cached)) {
+					LOGGER.trace("%s: cached result of %d rows", ENTITY_NAME, cached.size());
+					initializeRecords(cached.cursor(), l);
+					return l;
+				}
+				generation = cache.generation();
+			}
 			logQuery(sql, Arrays.asList(q.getCriteriumValues()));
 			if (q.getCriteriumValues().length == 0) {
 				try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-					while (rs.next()) {
-						E x = initializeRecord(rs);
-						l.add(x);
+					if (Objects.nonNull(cacheKey)) {
+						CachedRows rows = CachedRows.read(rs);
+						cache.put(cacheKey, rows, tables, 1L + rows.cells(), generation);
+						initializeRecords(rows.cursor(), l);
+					} else {
+						initializeRecords(rs, l);
 					}
 				}
 			} else {
 				try (PreparedStatement ps = c.prepareStatement(sql)) {
 					fillPreparedStatementAutoType(ps, q.getCriteriumValues());
 					try (ResultSet rs = ps.executeQuery()) {
-						while (rs.next()) {
-							E x = initializeRecord(rs);
-							l.add(x);
+						if (Objects.nonNull(cacheKey)) {
+							CachedRows rows = CachedRows.read(rs);
+							cache.put(cacheKey, rows, tables, 1L + rows.cells(), generation);
+							initializeRecords(rows.cursor(), l);
+						} else {
+							initializeRecords(rs, l);
 						}
 					}
 				}
@@ -1483,6 +2629,43 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return l;
 	}
 
+	private void initializeRecords(ResultSet rs, List<E> l) throws SQLException, InstantiationException,
+			IllegalAccessException, IllegalArgumentException, InvocationTargetException, NoSuchMethodException,
+			SecurityException {
+		while (rs.next()) {
+			E x = initializeRecord(rs);
+			l.add(x);
+		}
+		if (HAS_LAZY_COLUMNS) {
+			groupLazyRows(l);
+		}
+	}
+
+	/**
+	 * Gets the names of the tables the specified select reads.
+	 * 
+	 * @param sql    the select query
+	 * @param values the criterium values
+	 * @return the table names or null if the result must not be cached because it
+	 *         reads a temporary table or is parameterized with an array
+	 */
+	private static Set<String> getCacheableTables(String sql, Object[] values) {
+		for (Object v : values) {
+			if (Objects.nonNull(v) && v.getClass().isArray()) {
+				return null;
+			}
+		}
+		Set<String> tables = new HashSet<>();
+		Matcher m = TABLE_NAME_PATTERN.matcher(sql);
+		while (m.find()) {
+			if ("temp".equalsIgnoreCase(m.group(1))) {
+				return null;
+			}
+			tables.add(m.group(2));
+		}
+		return tables.isEmpty() ? null : tables;
+	}
+
 	protected void checkClose(SelectQuery q) throws SQLException {
 		if (q.isCloseConnection().isPresent()) {
 			if (q.isCloseConnection().get()) {
@@ -1550,57 +2733,36 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			logQuery(sql, Arrays.asList(q.getCriteriumValues()));
 			if (q.getCriteriumValues().length == 0) {
 				try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
-					int width = rs.getMetaData().getColumnCount();
-					if (width != dtoConstructor.getParameterCount()) {
-						throw new SQLException(
-								"DTO Constructor parameter count must be equal to the column count of the ResultSet!");
-					}
-					while (rs.next()) {
-						Object[] args = new Object[dtoConstructor.getParameterCount()];
-						for (int i = 0; i < args.length; i++) {
-							args[i] = rs.getObject(i + 1);
-						}
-						/*
-						 * dtoConstructor is obtained from Class<DTO>
-						 */
-						@SuppressWarnings("unchecked")
-						DTO dto = (DTO) dtoConstructor.newInstance(args);
-						result.add(dto);
-					}
+					mapDTOs(rs, dtoClass, dtoConstructor, sql, result);
 				}
 			} else {
 				try (PreparedStatement ps = c.prepareStatement(sql)) {
 					fillPreparedStatementAutoType(ps, q.getCriteriumValues());
 					try (ResultSet rs = ps.executeQuery()) {
-						int width = rs.getMetaData().getColumnCount();
-						if (width != dtoConstructor.getParameterCount()) {
-							throw new SQLException(
-									"DTO Constructor parameter count must be equal to the column count of the ResultSet!");
-						}
-						while (rs.next()) {
-							Object[] args = new Object[dtoConstructor.getParameterCount()];
-							for (int i = 0; i < args.length; i++) {
-								args[i] = rs.getObject(i + 1);
-							}
-							/*
-							 * dtoConstructor is obtained from Class<DTO>
-							 */
-							@SuppressWarnings("unchecked")
-							DTO dto = (DTO) dtoConstructor.newInstance(args);
-							result.add(dto);
-						}
+						mapDTOs(rs, dtoClass, dtoConstructor, sql, result);
 					}
 				}
 			}
-		} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException
-				| SecurityException e) {
-			LOGGER.error(e);
 		} finally {
 			checkClose(q);
 		}
 		return result;
 	}
 
+	private <DTO> void mapDTOs(ResultSet rs, Class<DTO> dtoClass, Constructor<?> dtoConstructor, String sql,
+			List<DTO> result) throws SQLException {
+		List<Object> key = Arrays.asList(dtoClass, sql);
+		DTOMapper mapper = DTO_MAPPERS.get(key);
+		if (Objects.isNull(mapper)) {
+			mapper = new DTOMapper(dtoConstructor, rs.getMetaData());
+			DTO_MAPPERS.put(key, mapper);
+		}
+		Object[] args = mapper.newArgumentBuffer();
+		while (rs.next()) {
+			result.add(dtoClass.cast(mapper.map(rs, args)));
+		}
+	}
+
 	private List<Long> selectLong(SelectQuery q) throws SQLException {
 		List<Long> result = new ArrayList<>();
 		String sql = q.getQueryString();
@@ -1785,6 +2947,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 					nextPos);
 			ps.executeUpdate();
 //				log(item.getId(), CRUD.U, user, logWrite);
+			publishChange(ChangeEvent.Operation.UPDATE, null, fields);
 		} catch (SQLException e) {
 			LOGGER.error(sqlUpdateDelta);
 			e.printStackTrace();
@@ -1800,7 +2963,15 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 
 	@Override
 	public List<E> delete(DeleteQuery q) throws SQLException {
-		if (q.getCriteriumValues().length == 0) {
+		executeDelete(q);
+		publishChange(ChangeEvent.Operation.DELETE, null);
+		return Collections.emptyList();
+	}
+
+	private void executeDelete(DeleteQuery q) throws SQLException {
+		if (HAS_CHUNKED_LARGE_OBJECTS) {
+			executeChunkedDelete(q);
+		} else if (q.getCriteriumValues().length == 0) {
 			DB.executeUpdate(q.getQueryString());
 		} else {
 			Connection c = DB.getConnection();
@@ -1815,15 +2986,12 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				}
 			}
 		}
-		return Collections.emptyList();
 	}
 
 	@Override
 	public Optional<E> deleteById(ID id) throws SQLException {
-		List<E> ls = delete(DEFAULT_DELETE_QUERY_BY_ID.withCriteriumValues(id));
-		if (ls.size() == 1) {
-			return Optional.of(ls.get(0));
-		}
+		executeDelete(DEFAULT_DELETE_QUERY_BY_ID.withCriteriumValues(id));
+		publishChange(ChangeEvent.Operation.DELETE, id);
 		return Optional.empty();
 	}
 
@@ -1840,9 +3008,30 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return 0L;
 	}
 
+	@Override
+	public long estimateCount() throws SQLException {
+		try {
+			if (ORM.isRowCountEnabled(ENTITY_CLASS)) {
+				long counted = DB.getDialect().getCountedRows(ENTITY_NAME);
+				if (counted > -1L) {
+					return counted;
+				}
+			}
+			long estimate = DB.getDialect().estimateRowCount(ENTITY_NAME);
+			if (estimate > -1L) {
+				return estimate;
+			}
+		} catch (SQLFeatureNotSupportedException e) {
+			LOGGER.trace("Row count estimation is not supported, counting '%s'", ENTITY_NAME);
+		} finally {
+			checkClose();
+		}
+		return count();
+	}
+
 	@Override
 	public long countDistinct(String field) throws SQLException {
-		List<Long> result = selectLong(queryBuilderFactory.select(this).distinct().selectCount(this, field).build());
+		List<Long> result = selectLong(queryBuilderFactory.select(this).selectCountDistinct(this, field).build());
 		if (result.size() == 1) {
 			return result.get(0).longValue();
 		}
@@ -1895,6 +3084,38 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return 0.0d;
 	}
 
+	@Override
+	public List<AggregateRow> aggregate(Function<AggregateBuilder, AggregateBuilder> b) throws SQLException {
+		AggregateBuilder ab = b.apply(new SQLAggregateBuilder(queryBuilderFactory.select(this), DB.getSchemaName(),
+				ENTITY_CLASS));
+		List<String> labels = ab.getLabels();
+		SelectQuery q = ab.build();
+		List<AggregateRow> result = new ArrayList<>();
+		String sql = q.getQueryString();
+		try {
+			Connection c = DB.getConnection();
+			logQuery(sql, Arrays.asList(q.getCriteriumValues()));
+			try (PreparedStatement ps = c.prepareStatement(sql)) {
+				fillPreparedStatementAutoType(ps, q.getCriteriumValues());
+				try (ResultSet rs = ps.executeQuery()) {
+					while (rs.next()) {
+						Object[] values = new Object[labels.size()];
+						for (int i = 0; i < values.length; i++) {
+							values[i] = rs.getObject(i + 1);
+						}
+						result.add(new AggregateRow(labels, values));
+					}
+				}
+			}
+		} catch (SQLException e) {
+			LOGGER.error(sql);
+			throw e;
+		} finally {
+			checkClose(q);
+		}
+		return result;
+	}
+
 	/*
 	 * * * OLD CRUD
 	 */
@@ -1961,16 +3182,13 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			if (lock()) {
 				try {
 					E existing = null;
+					Object[] snapshot = null;
 					ID id = item.getId();
 					boolean insert = false;
-					if (Objects.isNull(id)) {
+					if (isUnsetId(id)) {
 						insert = true;
-					} else if (id instanceof Number && ((Number) id).longValue() == 0L) {
-						insert = true;
-					} else if (id instanceof String && ((String) id).trim().isEmpty()) {
-						insert = true;
-					} else {
-						Optional<E> existingOpt = selectById(id);
+					} else if (Objects.isNull(snapshot = getSnapshot(item))) {
+						Optional<E> existingOpt = selectStoredById(id);
 						if (existingOpt.isPresent()) {
 							existing = existingOpt.get();
 						} else {
@@ -1980,6 +3198,13 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 					try {
 						if (insert) {
 							item = insert(item, user, closeConnection);
+						} else if (Objects.nonNull(snapshot)) {
+							E updated = update(item, getDelta(snapshot, item), true, user, stampUpdateMeta,
+									logWrite);
+							/*
+							 * the tracked record was removed in the meantime
+							 */
+							item = Objects.nonNull(updated) ? updated : insert(item, user, closeConnection);
 						} else {
 							item = update(item, existing, user, closeConnection, stampUpdateMeta, logWrite);
 						}
@@ -1987,16 +3212,144 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 					} catch (SecurityException | IllegalAccessException | IllegalArgumentException
 							| InvocationTargetException e) {
 						LOGGER.error(e);
+						throw new SQLException(e.getMessage(), e);
+					}
+				} finally {
+					unlock();
+				}
+			} else {}
+		} catch (InterruptedException e) {
+			LOGGER.error(e);
+			throw new RuntimeException("");
+		}
+		return item;
+	}
+
+	private static boolean isUnsetId(Object id) {
+		if (Objects.isNull(id)) {
+			return true;
+		} else if (id instanceof Number && ((Number) id).longValue() == 0L) {
+			return true;
+		} else if (id instanceof String && ((String) id).trim().isEmpty()) {
+			return true;
+		}
+		return false;
+	}
+
+	/*
+	 * * * Unit of Work
+	 */
+
+	/**
+	 * Tests if a loaded entity was modified since it was loaded or saved.
+	 * 
+	 * @param item the entity
+	 * @return true if the entity has a snapshot and differs from it
+	 * @throws SQLException
+	 */
+	boolean isDirty(E item) throws SQLException {
+		Object[] snapshot = getSnapshot(item);
+		return Objects.nonNull(snapshot) && getDelta(snapshot, item).isPresent();
+	}
+
+	/**
+	 * Writes the entities collected by a unit of work. New entities are inserted
+	 * in batches unless they are immutable, loaded entities are updated against
+	 * their snapshot and other entities are saved.
+	 * <p>
+	 * This method neither manages the transaction nor closes the connection.
+	 * 
+	 * @param items the entities to write
+	 * @param user  the active user
+	 * @return the written entities
+	 * @throws SQLException if writing fails or the repository could not be
+	 *                      locked, the unit of work must be rolled back then
+	 */
+	List<E> flush(List<E> items, String user) throws SQLException {
+		List<E> written = new ArrayList<>();
+		try {
+			if (lock()) {
+				try {
+					boolean batch = Objects.isNull(ENTITY_BUILDER_CLASS);
+					List<E> batchInserts = new ArrayList<>();
+					boolean[] batched = new boolean[items.size()];
+					for (int i = 0; i < items.size(); i++) {
+						if (batch && isUnsetId(items.get(i).getId())) {
+							batchInserts.add(items.get(i));
+							batched[i] = true;
+						}
+					}
+					/*
+					 * batch inserts first so that the other items can reference them
+					 */
+					if (!batchInserts.isEmpty()) {
+						insertBatch(batchInserts, user);
+						for (E item : batchInserts) {
+							takeSnapshot(item);
+							written.add(item);
+						}
+					}
+					for (int i = 0; i < items.size(); i++) {
+						E item = items.get(i);
+						if (batched[i]) {
+							continue;
+						} else if (isUnsetId(item.getId())) {
+							item = insert(item, user, false);
+						} else {
+							item = save(item, false, user, true, true);
+						}
+						takeSnapshot(item);
+						written.add(item);
 					}
+				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+					LOGGER.error(e);
+					throw new SQLException(e.getMessage(), e);
+				} finally {
+					unlock();
+				}
+			} else {
+				throw new SQLException(String.format("%s could not be locked", ENTITY_NAME));
+			}
+		} catch (InterruptedException e) {
+			LOGGER.error(e);
+			throw new RuntimeException("");
+		}
+		return written;
+	}
+
+	/**
+	 * Deletes the entities collected by a unit of work in batches.
+	 * 
+	 * @param ids the ids to delete
+	 * @throws SQLException
+	 */
+	void flushDeletes(Collection<ID> ids) throws SQLException {
+		try {
+			if (lock()) {
+				try {
+					deleteBatch(ids);
 				} finally {
 					unlock();
 				}
-			} else {}
+			} else {
+				throw new SQLException(String.format("%s could not be locked", ENTITY_NAME));
+			}
 		} catch (InterruptedException e) {
 			LOGGER.error(e);
 			throw new RuntimeException("");
 		}
-		return item;
+	}
+
+	/**
+	 * Drops the snapshot of an entity at the end of a unit of work.
+	 * 
+	 * @param item       the entity
+	 * @param rolledBack true if the unit of work was rolled back
+	 */
+	void release(E item, boolean rolledBack) {
+		if (rolledBack || !TRACK_CHANGES) {
+			SNAPSHOTS.remove(item);
+		}
 	}
 
 	@Override
@@ -2036,13 +3389,7 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 							} else if (m.type == ManyToMany.Type.VIA_B) {
 								m.mtmRepository.saveByB(item, data);
 							} else if (m.type == ManyToMany.Type.DIRECT) {
-								data.stream().forEach(o -> {
-									try {
-										m.mtmRepository.saveDirect(o);
-									} catch (SQLException e) {
-										LOGGER.error(e);
-									}
-								});
+								m.mtmRepository.saveDirect(data);
 							}
 						}
 
@@ -2055,29 +3402,415 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return item;
 	}
 
+	/**
+	 * Inserts the given items using a single batched prepared statement.
+	 * <p>
+	 * This method neither manages the transaction nor closes the connection, it
+	 * is meant to be called from within a transaction of the caller. Auto
+	 * generated ids are read back per batch: within one transaction SQLite
+	 * assigns consecutive row ids, so a batch of n rows ends at
+	 * {@code last_insert_rowid()}. The range is verified after each batch. If the
+	 * entity has many to many mappings or chunked large objects, or if auto
+	 * generated ids can not be assigned in place, the items are inserted one by
+	 * one instead.
+	 * 
+	 * @param items the new items to insert
+	 * @param user  the user name to insert into the logs record.
+	 * 
+	 * @throws SQLException
+	 */
+	protected void insertBatch(Collection<E> items, String user) throws SQLException {
+		if (items.isEmpty()) {
+			return;
+		}
+		if (manyToManyMapping.size() > 0 || HAS_CHUNKED_LARGE_OBJECTS || !canReadBackBatchIds(items)) {
+			for (E item : items) {
+				try {
+					insert(item, user, false);
+				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+					LOGGER.error(e);
+					throw new SQLException(e.getMessage(), e);
+				}
+			}
+			return;
+		}
+		Connection c = DB.getConnection();
+		/*
+		 * consecutive row ids are only guaranteed while no other connection writes
+		 */
+		boolean ownTransaction = PK_IS_AUTO_GENERATED && c.getAutoCommit();
+		if (ownTransaction) {
+			c.setAutoCommit(false);
+		}
+		String sqlInsert = DEFAULT_INSERT_QUERY.getQueryString();
+		logQuery(sqlInsert);
+		boolean written = false;
+		try (PreparedStatement ps = c.prepareStatement(sqlInsert)) {
+			List<E> pending = new ArrayList<>(Math.min(items.size(), BATCH_SIZE));
+			for (E item : items) {
+				ID id = item.getId();
+				ID generatedId = generateId(id);
+				if (Objects.nonNull(generatedId)) {
+					item = setId(item, generatedId);
+				} else if (Objects.nonNull(id) && id instanceof Number && ((Number) id).longValue() == 0L) {
+					item = setId(item, null);
+				}
+				stampMeta(item, CRUD.C, true);
+				fillPreparedStatement(ps, MAPPING_DEFINITION_PK_LEADING.getters,
+						MAPPING_DEFINITION_PK_LEADING.transforms, MAPPING_DEFINITION_PK_LEADING.sqlTypes, item);
+				ps.addBatch();
+				pending.add(item);
+				if (pending.size() == BATCH_SIZE) {
+					executeInsertBatch(c, ps, pending);
+				}
+			}
+			if (!pending.isEmpty()) {
+				executeInsertBatch(c, ps, pending);
+			}
+			written = true;
+		} catch (SQLException e) {
+			LOGGER.error(sqlInsert);
+			throw e;
+		} finally {
+			if (ownTransaction) {
+				try {
+					if (written) {
+						c.commit();
+						DB.getChangeEventBus().commit();
+					} else {
+						c.rollback();
+						DB.getChangeEventBus().rollback();
+					}
+				} finally {
+					c.setAutoCommit(true);
+				}
+			}
+		}
+		for (E item : items) {
+			log(item.getId(), CRUD.C, user, true);
+			publishChange(ChangeEvent.Operation.INSERT, item.getId(), MAPPING_DEFINITION_PK_LEADING.sqlNames);
+		}
+	}
+
+	/**
+	 * Tests if the ids of the specified new items can be assigned after a batch
+	 * insert.
+	 * 
+	 * @param items the new items
+	 * @return true if the ids are not auto generated or if all items are mutable
+	 *         and have no id yet
+	 */
+	private boolean canReadBackBatchIds(Collection<E> items) {
+		if (!PK_IS_AUTO_GENERATED) {
+			return true;
+		}
+		if (Objects.nonNull(ENTITY_BUILDER_CLASS)) {
+			return false;
+		}
+		for (E item : items) {
+			if (!isUnsetId(item.getId())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Executes a batch of inserts and assigns the auto generated ids.
+	 * 
+	 * @param c       the connection
+	 * @param ps      the insert statement
+	 * @param pending the items of the batch, cleared afterwards
+	 * @throws SQLException if the generated ids are not consecutive
+	 */
+	@SuppressWarnings("unchecked")
+	private void executeInsertBatch(Connection c, PreparedStatement ps, List<E> pending) throws SQLException {
+		ps.executeBatch();
+		if (PK_IS_AUTO_GENERATED) {
+			long last = JDBCUtils.lastInsertIntegerId(ps);
+			long first = last - pending.size() + 1;
+			String pk = MAPPING_DEFINITION_PK.sqlNames[0];
+			String sql = String.format("SELECT count(*) FROM `%s` WHERE `%s` BETWEEN ? AND ?", ENTITY_NAME, pk);
+			logQuery(sql, Arrays.asList(first, last));
+			try (PreparedStatement check = c.prepareStatement(sql)) {
+				check.setLong(1, first);
+				check.setLong(2, last);
+				try (ResultSet rs = check.executeQuery()) {
+					if (first < 1 || !rs.next() || rs.getLong(1) != pending.size()) {
+						throw new SQLException(
+								String.format("%s: the generated ids of a batch insert are not consecutive", ENTITY_NAME));
+					}
+				}
+			}
+			for (int i = 0; i < pending.size(); i++) {
+				setId(pending.get(i), (ID) Long.valueOf(first + i));
+			}
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Deletes the records with the given ids using DELETE ... WHERE id IN (...)
+	 * statements of at most {@link #BATCH_SIZE} ids each.
+	 * <p>
+	 * This method neither manages the transaction nor closes the connection, it
+	 * is meant to be called from within a transaction of the caller.
+	 * 
+	 * @param ids the ids of the records to delete
+	 * 
+	 * @throws SQLException
+	 */
+	protected void deleteBatch(Collection<ID> ids) throws SQLException {
+		if (ids.isEmpty()) {
+			return;
+		}
+		createChunkTables();
+		Connection c = DB.getConnection();
+		List<Object> chunk = new ArrayList<>(Math.min(ids.size(), BATCH_SIZE));
+		Iterator<ID> iterator = ids.iterator();
+		while (iterator.hasNext()) {
+			chunk.add(iterator.next());
+			if (chunk.size() == BATCH_SIZE || !iterator.hasNext()) {
+				DeleteQuery q = DEFAULT_DELETE_QUERY_UNCONDITIONAL.builder().withCriteria(this)
+						.in(MAPPING_DEFINITION_PK.sqlNames[0], chunk).leave().build();
+				String sql = q.getQueryString();
+				if (HAS_CHUNKED_LARGE_OBJECTS) {
+					deleteChunks(c, q, false);
+				}
+				logQuery(sql, chunk);
+				try (PreparedStatement ps = c.prepareStatement(sql)) {
+					fillPreparedStatementAutoType(ps, q.getCriteriumValues());
+					ps.executeUpdate();
+				} catch (SQLException e) {
+					LOGGER.error(sql);
+					throw e;
+				}
+				if (HAS_CHUNKED_LARGE_OBJECTS) {
+					deleteChunks(c, q, true);
+				}
+				for (Object id : chunk) {
+					publishChange(ChangeEvent.Operation.DELETE, id);
+				}
+				chunk.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the file the chunks of a chunked large object column are dumped to, the
+	 * name of the chunk table is appended to the file name of the table dump.
+	 */
+	private Path getChunkDumpPath(Path path, int i) {
+		return path.resolveSibling(String.format("%s.%s", path.getFileName(),
+				ORM.getChunkTableName(ENTITY_NAME, MAPPING_DEFINITION_PK_LEADING.sqlNames[i])));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The chunks of {@code @Chunked} columns are exported to a file next to the
+	 * specified file, see {@link #getChunkDumpPath(Path, int)}.
+	 */
+	@Override
+	public long exportTo(Path path, boolean compress) throws SQLException, IOException {
+		String[] columns = MAPPING_DEFINITION_PK_LEADING.sqlNames;
+		SelectQuery q = queryBuilderFactory.select(DB.getSchemaName(), ENTITY_CLASS, columns).clearLimit().build();
+		String sql = q.getQueryString();
+		createChunkTables();
+		try (TableDump.Writer w = TableDump.writer(path, ENTITY_NAME, columns, compress)) {
+			Connection c = DB.getConnection();
+			logQuery(sql);
+			try (PreparedStatement ps = c.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					Object[] row = new Object[columns.length];
+					for (int i = 0; i < columns.length; i++) {
+						row[i] = rs.getObject(i + 1);
+					}
+					w.addRow(row);
+				}
+			} catch (SQLException e) {
+				LOGGER.error(sql);
+				throw e;
+			}
+			if (HAS_CHUNKED_LARGE_OBJECTS) {
+				for (int i = 0; i < LARGE_OBJECT_CHUNK_SIZES.length; i++) {
+					if (LARGE_OBJECT_CHUNK_SIZES[i] > 0) {
+						exportChunks(c, i, getChunkDumpPath(path, i), compress);
+					}
+				}
+			}
+			LOGGER.trace("%s: exported %d rows to '%s'", ENTITY_NAME, w.getCount(), path);
+			return w.getCount();
+		} finally {
+			checkClose();
+		}
+	}
+
+	private void exportChunks(Connection c, int i, Path path, boolean compress) throws SQLException, IOException {
+		String sql = String.format("SELECT `owner`, `seq`, `data` FROM %s ORDER BY `owner`, `seq`",
+				getChunkTableName(i));
+		String[] columns = { "owner", "seq", "data" };
+		try (TableDump.Writer w = TableDump.writer(path,
+				ORM.getChunkTableName(ENTITY_NAME, MAPPING_DEFINITION_PK_LEADING.sqlNames[i]), columns, compress,
+				CHUNK_DUMP_BYTES / LARGE_OBJECT_CHUNK_SIZES[i])) {
+			logQuery(sql);
+			try (PreparedStatement ps = c.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+				while (rs.next()) {
+					w.addRow(new Object[] { rs.getObject(1), rs.getObject(2), rs.getObject(3) });
+				}
+			} catch (SQLException e) {
+				LOGGER.error(sql);
+				throw e;
+			}
+			LOGGER.trace("%s: exported %d chunks to '%s'", ENTITY_NAME, w.getCount(), path);
+		}
+	}
+
+	private void importChunks(Connection c, int i, Path path) throws SQLException, IOException {
+		if (!Files.isRegularFile(path)) {
+			throw new IOException(String.format("%s: the chunks of %s are missing, '%s' does not exist", ENTITY_NAME,
+					MAPPING_DEFINITION_PK_LEADING.sqlNames[i], path));
+		}
+		String sql = String.format("INSERT INTO %s (`owner`, `seq`, `data`) VALUES (?, ?, ?)", getChunkTableName(i));
+		try (TableDump.Reader r = TableDump.reader(path); PreparedStatement ps = c.prepareStatement(sql)) {
+			logQuery(sql);
+			Object[][] rows;
+			while (Objects.nonNull(rows = r.nextChunk())) {
+				for (Object[] row : rows) {
+					for (int j = 0; j < row.length; j++) {
+						ps.setObject(j + 1, row[j]);
+					}
+					ps.addBatch();
+				}
+				ps.executeBatch();
+			}
+		} catch (SQLException e) {
+			LOGGER.error(sql);
+			throw e;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The chunks of {@code @Chunked} columns are imported from the files written
+	 * by {@link #exportTo(Path, boolean)}.
+	 */
+	@Override
+	public long importFrom(Path path) throws SQLException, IOException {
+		try (TableDump.Reader r = TableDump.reader(path)) {
+			if (!Arrays.equals(r.getColumns(), MAPPING_DEFINITION_PK_LEADING.sqlNames)) {
+				throw new SQLException(String.format("%s: the columns %s of '%s' do not match %s", ENTITY_NAME,
+						Arrays.toString(r.getColumns()), path,
+						Arrays.toString(MAPPING_DEFINITION_PK_LEADING.sqlNames)));
+			}
+			String sql = DEFAULT_INSERT_QUERY.getQueryString();
+			long count = 0L;
+			createChunkTables();
+			if (lock()) {
+				try {
+					Connection c = DB.getConnection();
+					boolean autoCommit = c.getAutoCommit();
+					if (autoCommit) {
+						c.setAutoCommit(false);
+					}
+					logQuery(sql);
+					try (PreparedStatement ps = c.prepareStatement(sql)) {
+						Object[][] rows;
+						while (Objects.nonNull(rows = r.nextChunk())) {
+							for (Object[] row : rows) {
+								for (int i = 0; i < row.length; i++) {
+									ps.setObject(i + 1, row[i]);
+								}
+								ps.addBatch();
+							}
+							ps.executeBatch();
+							count += rows.length;
+						}
+						if (HAS_CHUNKED_LARGE_OBJECTS) {
+							for (int i = 0; i < LARGE_OBJECT_CHUNK_SIZES.length; i++) {
+								if (LARGE_OBJECT_CHUNK_SIZES[i] > 0) {
+									importChunks(c, i, getChunkDumpPath(path, i));
+								}
+							}
+						}
+						publishChange(ChangeEvent.Operation.INSERT, null, MAPPING_DEFINITION_PK_LEADING.sqlNames);
+						if (autoCommit) {
+							c.commit();
+							DB.getChangeEventBus().commit();
+						}
+					} catch (SQLException | IOException e) {
+						if (autoCommit) {
+							c.rollback();
+							DB.getChangeEventBus().rollback();
+						}
+						LOGGER.error(sql);
+						LOGGER.error(e);
+						throw e;
+					} finally {
+						if (autoCommit) {
+							c.setAutoCommit(true);
+						}
+					}
+				} finally {
+					unlock();
+					checkClose();
+				}
+			}
+			LOGGER.trace("%s: imported %d rows from '%s'", ENTITY_NAME, count, path);
+			return count;
+		} catch (InterruptedException e) {
+			LOGGER.error(e);
+			throw new RuntimeException("");
+		}
+	}
+
 	public E insert(E item) throws IllegalAccessException, IllegalArgumentException, InvocationTargetException,
 			SQLException, InterruptedException {
 		return insert(item, getDB().getActiveUser(), LumicoreProperties.CLOSE_CONNECTION_AFTER_OPERATION);
 	}
 
+	/**
+	 * Generates the primary key of a new record according to
+	 * {@link PrimaryKey#generator()}.
+	 * 
+	 * @param id the current id of the record
+	 * @return the generated id or null if the id is assigned by the database or
+	 *         by the caller
+	 */
+	@SuppressWarnings("unchecked")
+	private ID generateId(ID id) {
+		switch (ID_GENERATOR) {
+		case PrimaryKey.GENERATOR_UUID_V7:
+			return (ID) DB.nextTimeOrderedUUID();
+		case PrimaryKey.GENERATOR_SNOWFLAKE:
+			if (Objects.isNull(id) || ((Number) id).longValue() == 0L) {
+				return (ID) Long.valueOf(DB.nextSnowflakeId());
+			}
+			return null;
+		default:
+			if (PK_IS_UUID && ID_CLASS == String.class) {
+				return (ID) DB.nextUUID();
+			}
+			return null;
+		}
+	}
+
 	private E insert(E item, String user, boolean closeConnection)
 			throws SQLException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-		boolean generateUUID = false;
 		ID id = item.getId();
-		if (Objects.nonNull(id) && id instanceof Number && ((Number) id).longValue() == 0L) {
+		ID generatedId = generateId(id);
+		if (Objects.nonNull(generatedId)) {
+			item = setId(item, generatedId);
+		} else if (Objects.nonNull(id) && id instanceof Number && ((Number) id).longValue() == 0L) {
 			item = setId(item, null);
-		} else if (PK_IS_UUID && ID_CLASS == String.class) {
-			generateUUID = true;
-		}
-		if (generateUUID) {
-			@SuppressWarnings("unchecked")
-			ID nextUUID = (ID) DB.nextUUID();
-			item = setId(item, nextUUID);
 		}
 		Connection c = DB.getConnection();
 		stampMeta(item, CRUD.C, true);
 		String sqlInsert = DEFAULT_INSERT_QUERY.getQueryString();
 		logQuery(sqlInsert);
+		boolean ownTransaction = beginChunkedWrite(c);
+		boolean written = false;
 		try (PreparedStatement ps = c.prepareStatement(sqlInsert)) {
 			fillPreparedStatement(ps, MAPPING_DEFINITION_PK_LEADING.getters, MAPPING_DEFINITION_PK_LEADING.transforms,
 					MAPPING_DEFINITION_PK_LEADING.sqlTypes, item);
@@ -2086,16 +3819,32 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 				Long l = JDBCUtils.lastInsertIntegerId(ps);
 				item = setId(item, (ID) l);
 			}
+			writeChunks(item, MAPPING_DEFINITION_PK_LEADING.getters);
 			log(item.getId(), CRUD.C, user, true);
+			written = true;
+		} finally {
+			endChunkedWrite(c, ownTransaction, written);
 		}
+		publishChange(ChangeEvent.Operation.INSERT, item.getId(), MAPPING_DEFINITION_PK_LEADING.sqlNames);
 		saveMany(item);
+		if (TRACK_CHANGES) {
+			refreshSnapshot(item);
+		}
 
 		return item;
 	}
 
 	@Override
 	public Optional<E> update(E item) throws SQLException {
-		Optional<E> existingOpt = selectById(item.getId());
+		Object[] snapshot = getSnapshot(item);
+		if (Objects.nonNull(snapshot)) {
+			E updated = update(item, getDelta(snapshot, item), true, DB.getActiveUser(), true, true);
+			if (Objects.nonNull(updated)) {
+				return Optional.of(updated);
+			}
+			throw new SQLException("Record to update not found");
+		}
+		Optional<E> existingOpt = selectStoredById(item.getId());
 		if (existingOpt.isPresent()) {
 			E existing = existingOpt.get();
 			return Optional.ofNullable(update(item, existing, DB.getActiveUser(),
@@ -2106,9 +3855,26 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 
 	private E update(E item, E existing, String user, boolean closeConnection, boolean stampUpdateMeta,
 			boolean logWrite) throws SQLException {
-		// update
+		return update(item, getDelta(existing, item), false, user, stampUpdateMeta, logWrite);
+	}
+
+	/**
+	 * Updates the changed columns of the specified item.
+	 * 
+	 * @param item               the item to update
+	 * @param deltaDefinitionOpt the changed columns
+	 * @param tracked            true if the delta was computed from a change
+	 *                           tracking snapshot
+	 * @param user               the active user
+	 * @param stampUpdateMeta    true if the update metadata should be stamped
+	 * @param logWrite           true if the update should be logged
+	 * @return the item or null if the delta was tracked and no record was
+	 *         updated
+	 * @throws SQLException
+	 */
+	private E update(E item, Optional<MappingDefinition> deltaDefinitionOpt, boolean tracked, String user,
+			boolean stampUpdateMeta, boolean logWrite) throws SQLException {
 		Connection c = DB.getConnection();
-		Optional<MappingDefinition> deltaDefinitionOpt = getDelta(existing, item);
 		if (deltaDefinitionOpt.isPresent()) {
 			stampMeta(item, CRUD.U, stampUpdateMeta);
 			MappingDefinition deltaDefinition = deltaDefinitionOpt.get();
@@ -2142,19 +3908,32 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			String sqlUpdateDelta = sqlUpdateDeltaQuery.getQueryString();
 
 			logQuery(sqlUpdateDelta);
+			boolean ownTransaction = beginChunkedWrite(c);
+			boolean written = false;
 			try (PreparedStatement ps = c.prepareStatement(sqlUpdateDelta)) {
 				int nextPos = fillPreparedStatement(ps, deltaDefinition.getters, deltaDefinition.transforms,
 						deltaDefinition.sqlTypes, item);
 				fillPreparedStatement(ps, MAPPING_DEFINITION_PK.getters, MAPPING_DEFINITION_PK.transforms,
 						MAPPING_DEFINITION_PK.sqlTypes, item, nextPos);
-				ps.executeUpdate();
+				if (ps.executeUpdate() == 0 && tracked) {
+					SNAPSHOTS.remove(item);
+					return null;
+				}
+				writeChunks(item, deltaDefinition.getters);
 				log(item.getId(), CRUD.U, user, logWrite);
+				publishChange(ChangeEvent.Operation.UPDATE, item.getId(), deltaDefinition.sqlNames);
+				written = true;
 			} catch (SQLException e) {
 				LOGGER.error(sqlUpdateDelta);
 				throw e;
+			} finally {
+				endChunkedWrite(c, ownTransaction, written);
 			}
 		}
 		saveMany(item);
+		if (TRACK_CHANGES) {
+			refreshSnapshot(item);
+		}
 		return item;
 	};
 
@@ -2162,10 +3941,44 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		int size = MAPPING_DEFINITION_PK_LEADING.sqlNames.length;
 		List<Integer> delta = new ArrayList<>();
 		for (int i = 0; i < size; i++) {
+			if (LAZY_COLUMNS[i] && isUnloaded(item, i)) {
+				continue;
+			}
 			if (!valueEquals(existing, item, MAPPING_DEFINITION_PK_LEADING.getters[i])) {
 				delta.add(i);
 			}
 		}
+		return getDeltaDefinition(delta);
+	}
+
+	/**
+	 * Computes the changed columns against a change tracking snapshot without
+	 * reading the record.
+	 * 
+	 * @param snapshot the column values of the item when it was loaded
+	 * @param item     the item to update
+	 * @return the changed columns
+	 * @throws SQLException
+	 */
+	private Optional<MappingDefinition> getDelta(Object[] snapshot, E item) throws SQLException {
+		int size = MAPPING_DEFINITION_PK_LEADING.sqlNames.length;
+		List<Integer> delta = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			try {
+				Object value = getValue(item, MAPPING_DEFINITION_PK_LEADING.getters[i],
+						MAPPING_DEFINITION_PK_LEADING.transforms[i]);
+				if (!EntitySnapshots.valueEquals(snapshot[i], value)) {
+					delta.add(i);
+				}
+			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+				LOGGER.error(e);
+				delta.add(i);
+			}
+		}
+		return getDeltaDefinition(delta);
+	}
+
+	private Optional<MappingDefinition> getDeltaDefinition(List<Integer> delta) {
 		if (delta.size() == 0) {
 			return Optional.empty();
 		}
@@ -2272,9 +4085,9 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 			}
 		}
 		String[] alias = new String[] { null };
-		s.join(schemaName, entity, DB.getSchemaName(), ENTITY_CLASS, alias, JoinOperator.LEFT, JoinOperator.JOIN)
-				.on(foreignKey, referencedField)
-				.select(DB.getSchemaName(), ENTITY_CLASS, MAPPING_DEFINITION_PK_LEADING.sqlNames);
+		selectColumns(s
+				.join(schemaName, entity, DB.getSchemaName(), ENTITY_CLASS, alias, JoinOperator.LEFT, JoinOperator.JOIN)
+				.on(foreignKey, referencedField));
 
 		for (int i = 0; i < JOIN_MAPPINGS.length; i++) {
 			JoinMapping jm = JOIN_MAPPINGS[i];
@@ -2437,6 +4250,61 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		return logRepository;
 	}
 
+	/**
+	 * Invalidates the cached results reading this repositories table and the
+	 * tables changed along with it by cascading foreign keys. The whole cache is
+	 * cleared if the dependent tables are unknown, for example because triggers
+	 * are defined on one of the tables.
+	 */
+	private void invalidateCache(QueryCache cache) throws SQLException {
+		Set<String> dependents;
+		try {
+			dependents = DB.getDialect().getDependentTables(ENTITY_NAME);
+		} catch (SQLFeatureNotSupportedException e) {
+			dependents = null;
+		}
+		if (Objects.isNull(dependents)) {
+			cache.clear();
+		} else if (dependents.isEmpty()) {
+			cache.invalidate(ENTITY_NAME);
+		} else {
+			Set<String> tables = new HashSet<>(dependents);
+			tables.add(ENTITY_NAME);
+			cache.invalidate(tables);
+		}
+	}
+
+	/**
+	 * Publishes a change of this repositories table to the databases
+	 * {@link ChangeEventBus}.
+	 * <p>
+	 * If a transaction is open the event is deferred until the owner of the
+	 * transaction commits.
+	 * 
+	 * @param operation the operation
+	 * @param id        the id of the changed record or null if an unknown set of
+	 *                  records was changed
+	 * @param columns   the changed columns
+	 * @throws SQLException
+	 */
+	protected void publishChange(ChangeEvent.Operation operation, Object id, String... columns)
+			throws SQLException {
+		QueryCache cache = DB.getQueryCache();
+		if (Objects.nonNull(cache)) {
+			invalidateCache(cache);
+		}
+		ChangeEventBus bus = DB.getChangeEventBus();
+		if (!bus.hasSubscribers()) {
+			return;
+		}
+		ChangeEvent e = new ChangeEvent(ENTITY_CLASS, id, operation, columns);
+		if (DB.isTransactionOpen()) {
+			bus.defer(e);
+		} else {
+			bus.publish(e);
+		}
+	}
+
 	/**
 	 * Logs an action in the log if logging is enabled.
 	 * <p>
@@ -2595,6 +4463,100 @@ public abstract class SQLRepository<E extends Entity<ID>, ID> implements Reposit
 		private CRUD() {}
 	} // end of class CRUD
 
+	/**
+	 * Reads one column of the current row.
+	 */
+	@FunctionalInterface
+	private static interface ColumnReader {
+		Object read(ResultSet rs, int column) throws SQLException;
+	}
+
+	/**
+	 * A compiled DTO mapper for one DTO class and one query.
+	 * <p>
+	 * The column count is verified and the column readers are resolved from the
+	 * constructor parameter types once. The constructor is invoked through a
+	 * spreading {@code MethodHandle} so the argument buffer can be reused for
+	 * every row.
+	 */
+	private static final class DTOMapper {
+		private final MethodHandle constructor;
+		private final ColumnReader[] readers;
+
+		private DTOMapper(Constructor<?> dtoConstructor, ResultSetMetaData metaData) throws SQLException {
+			int width = metaData.getColumnCount();
+			if (width != dtoConstructor.getParameterCount()) {
+				throw new SQLException(
+						"DTO Constructor parameter count must be equal to the column count of the ResultSet!");
+			}
+			Class<?>[] parameterTypes = dtoConstructor.getParameterTypes();
+			readers = new ColumnReader[width];
+			for (int i = 0; i < width; i++) {
+				readers[i] = readerFor(parameterTypes[i]);
+			}
+			try {
+				constructor = MethodHandles.publicLookup().unreflectConstructor(dtoConstructor)
+						.asSpreader(Object[].class, width).asType(MethodType.methodType(Object.class, Object[].class));
+			} catch (IllegalAccessException e) {
+				throw new SQLException("DTO Constructor is not accessible", e);
+			}
+		}
+
+		private static ColumnReader readerFor(Class<?> type) {
+			if (type == long.class) {
+				return ResultSet::getLong;
+			} else if (type == int.class) {
+				return ResultSet::getInt;
+			} else if (type == double.class) {
+				return ResultSet::getDouble;
+			} else if (type == boolean.class) {
+				return ResultSet::getBoolean;
+			} else if (type == Long.class) {
+				return (rs, i) -> {
+					long l = rs.getLong(i);
+					return rs.wasNull() ? null : l;
+				};
+			} else if (type == Integer.class) {
+				return (rs, i) -> {
+					int n = rs.getInt(i);
+					return rs.wasNull() ? null : n;
+				};
+			} else if (type == Double.class) {
+				return (rs, i) -> {
+					double d = rs.getDouble(i);
+					return rs.wasNull() ? null : d;
+				};
+			} else if (type == Boolean.class) {
+				return (rs, i) -> {
+					boolean b = rs.getBoolean(i);
+					return rs.wasNull() ? null : b;
+				};
+			} else if (type == String.class) {
+				return ResultSet::getString;
+			} else if (type == byte[].class) {
+				return ResultSet::getBytes;
+			}
+			return ResultSet::getObject;
+		}
+
+		private Object[] newArgumentBuffer() {
+			return new Object[readers.length];
+		}
+
+		private Object map(ResultSet rs, Object[] args) throws SQLException {
+			for (int i = 0; i < readers.length; i++) {
+				args[i] = readers[i].read(rs, i + 1);
+			}
+			try {
+				return (Object) constructor.invokeExact(args);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new SQLException("DTO could not be constructed", e);
+			}
+		}
+	}
+
 	private static final class OneToManyMapping {
 		private final String oneFieldName;
 //		private final Method getter;
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a SQL script statement by statement without loading it as a whole.
+ * <p>
+ * Statements are terminated by semicolons outside of literals, quoted
+ * identifiers and trigger bodies ({@code CREATE TRIGGER ... BEGIN ... END;}).
+ * Line comments ({@code --}) and block comments are removed.
+ * 
+ * @author epimethix
+ *
+ */
+public final class SQLScriptReader implements Closeable {
+
+	private final BufferedReader reader;
+	private long charactersRead;
+
+	/**
+	 * @param reader the script source, closed by {@link #close()}
+	 */
+	public SQLScriptReader(Reader reader) {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+	}
+
+	/**
+	 * Reads the next statement.
+	 * 
+	 * @return the trimmed statement without the terminating semicolon or null at
+	 *         the end of the script
+	 * @throws IOException
+	 */
+	public String next() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		StringBuilder word = new StringBuilder();
+		int words = 0;
+		boolean trigger = false;
+		boolean body = false;
+		int depth = 0;
+		int c;
+		while ((c = read()) != -1) {
+			char ch = (char) c;
+			if (Character.isLetterOrDigit(ch) || ch == '_') {
+				word.append(ch);
+				sb.append(ch);
+				continue;
+			}
+			if (word.length() > 0) {
+				String w = word.toString().toUpperCase();
+				word.setLength(0);
+				words++;
+				if (words <= 3 && w.equals("TRIGGER")) {
+					trigger = sb.toString().trim().toUpperCase().startsWith("CREATE");
+				} else if (trigger && (w.equals("BEGIN") || w.equals("CASE"))) {
+					body = true;
+					depth++;
+				} else if (trigger && w.equals("END")) {
+					depth--;
+				}
+			}
+			switch (ch) {
+			case '\'':
+			case '"':
+			case '`':
+				sb.append(ch);
+				copyQuoted(sb, ch);
+				break;
+			case '[':
+				sb.append(ch);
+				copyQuoted(sb, ']');
+				break;
+			case '-': {
+				int next = peek();
+				if (next == '-') {
+					skipLine();
+					sb.append(' ');
+				} else {
+					sb.append(ch);
+				}
+				break;
+			}
+			case '/': {
+				int next = peek();
+				if (next == '*') {
+					read();
+					skipBlockComment();
+					sb.append(' ');
+				} else {
+					sb.append(ch);
+				}
+				break;
+			}
+			case ';':
+				if (!trigger || (body && depth <= 0)) {
+					String statement = sb.toString().trim();
+					if (statement.isEmpty()) {
+						words = 0;
+						sb.setLength(0);
+						continue;
+					}
+					return statement;
+				}
+				sb.append(ch);
+				break;
+			default:
+				sb.append(ch);
+				break;
+			}
+		}
+		String statement = sb.toString().trim();
+		return statement.isEmpty() ? null : statement;
+	}
+
+	/**
+	 * @return the number of characters read so far
+	 */
+	public long getCharactersRead() {
+		return charactersRead;
+	}
+
+	private int read() throws IOException {
+		int c = reader.read();
+		if (c != -1) {
+			charactersRead++;
+		}
+		return c;
+	}
+
+	private int peek() throws IOException {
+		reader.mark(1);
+		int c = reader.read();
+		reader.reset();
+		return c;
+	}
+
+	/**
+	 * Copies a literal or quoted identifier, a doubled quote is an escaped quote.
+	 */
+	private void copyQuoted(StringBuilder sb, char quote) throws IOException {
+		int c;
+		while ((c = read()) != -1) {
+			sb.append((char) c);
+			if (c == quote) {
+				if (quote != ']' && peek() == quote) {
+					sb.append((char) read());
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+	private void skipLine() throws IOException {
+		int c;
+		while ((c = read()) != -1 && c != '\n') {}
+	}
+
+	private void skipBlockComment() throws IOException {
+		int c;
+		int previous = -1;
+		while ((c = read()) != -1) {
+			if (previous == '*' && c == '/') {
+				return;
+			}
+			previous = c;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
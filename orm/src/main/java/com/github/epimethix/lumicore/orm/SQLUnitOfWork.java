@@ -0,0 +1,292 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import com.github.epimethix.lumicore.common.ConfigurationException;
+import com.github.epimethix.lumicore.common.orm.Database;
+import com.github.epimethix.lumicore.common.orm.Repository;
+import com.github.epimethix.lumicore.common.orm.UnitOfWork;
+import com.github.epimethix.lumicore.common.orm.model.Entity;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+
+/**
+ * {@link UnitOfWork} of a {@link SQLDatabase}.
+ * <p>
+ * The unit of work is bound to the thread that began it. The repositories of
+ * the database consult {@link #current(Database)} when they materialize a
+ * record and keep a snapshot of each record they register, so modified records
+ * can be detected and updated without reading them again.
+ *
+ * @author epimethix
+ *
+ */
+final class SQLUnitOfWork implements UnitOfWork {
+
+	private final static Logger LOGGER = Log.getLogger(Log.CHANNEL_ORM);
+
+	private final static ThreadLocal<SQLUnitOfWork> CURRENT = new ThreadLocal<>();
+
+	private final SQLDatabase db;
+	private final Connection connection;
+	private final boolean ownsTransaction;
+	/**
+	 * entity class -> id -> entity
+	 */
+	private final Map<Class<?>, Map<Object, Entity<?>>> identityMap = new HashMap<>();
+	private final Set<Entity<?>> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final List<Entity<?>> savedOrder = new ArrayList<>();
+	private final Map<Class<?>, Map<Object, Entity<?>>> deleted = new HashMap<>();
+	private boolean open = true;
+	private boolean committed;
+
+	SQLUnitOfWork(SQLDatabase db) throws SQLException {
+		if (Objects.nonNull(current(db))) {
+			throw new IllegalStateException("a unit of work is already open on this thread");
+		}
+		this.db = db;
+		this.connection = db.getConnection();
+		this.ownsTransaction = connection.getAutoCommit();
+		if (ownsTransaction) {
+			connection.setAutoCommit(false);
+		}
+		CURRENT.set(this);
+	}
+
+	/**
+	 * Gets the open unit of work of the current thread.
+	 * 
+	 * @param db the database
+	 * @return the unit of work or null if there is none for the specified
+	 *         database
+	 */
+	static SQLUnitOfWork current(Database db) {
+		SQLUnitOfWork uow = CURRENT.get();
+		return Objects.nonNull(uow) && uow.db == db ? uow : null;
+	}
+
+	<E> E lookup(Class<?> entityClass, Object id) {
+		Map<Object, Entity<?>> entities = identityMap.get(entityClass);
+		@SuppressWarnings("unchecked")
+		E e = Objects.isNull(entities) ? null : (E) entities.get(SQLRepository.idKey(id));
+		return e;
+	}
+
+	void register(Class<?> entityClass, Entity<?> entity) {
+		if (Objects.nonNull(entity.getId())) {
+			identityMap.computeIfAbsent(entityClass, k -> new HashMap<>()).put(SQLRepository.idKey(entity.getId()), entity);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private SQLRepository<Entity<Object>, Object> repository(Class<?> entityClass) {
+		Repository<?, ?> r = db.getRepository((Class<? extends Entity<?>>) entityClass);
+		if (!(r instanceof SQLRepository)) {
+			throw new IllegalArgumentException(
+					String.format("%s is not managed by %s", entityClass.getName(), db.getClass().getSimpleName()));
+		}
+		return (SQLRepository<Entity<Object>, Object>) r;
+	}
+
+	private void checkOpen() {
+		if (!open) {
+			throw new IllegalStateException("the unit of work is closed");
+		}
+	}
+
+	@Override
+	public <E extends Entity<ID>, ID> Optional<E> find(Class<E> entityClass, ID id) throws SQLException {
+		checkOpen();
+		Class<?> key = repository(entityClass).getEntityClass();
+		Map<Object, Entity<?>> gone = deleted.get(key);
+		if (Objects.nonNull(gone) && gone.containsKey(SQLRepository.idKey(id))) {
+			return Optional.empty();
+		}
+		E known = lookup(key, id);
+		if (Objects.nonNull(known)) {
+			return Optional.of(known);
+		}
+		@SuppressWarnings("unchecked")
+		Repository<E, ID> r = (Repository<E, ID>) repository(entityClass);
+		return r.selectById(id);
+	}
+
+	@Override
+	public <E extends Entity<?>> E save(E entity) {
+		checkOpen();
+		repository(entity.getClass());
+		if (saved.add(entity)) {
+			savedOrder.add(entity);
+		}
+		return entity;
+	}
+
+	@Override
+	public void delete(Entity<?> entity) {
+		checkOpen();
+		Class<?> key = repository(entity.getClass()).getEntityClass();
+		if (saved.remove(entity)) {
+			savedOrder.remove(entity);
+		}
+		if (Objects.nonNull(entity.getId())) {
+			deleted.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(SQLRepository.idKey(entity.getId()), entity);
+			Map<Object, Entity<?>> entities = identityMap.get(key);
+			if (Objects.nonNull(entities)) {
+				entities.remove(SQLRepository.idKey(entity.getId()));
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws SQLException {
+		checkOpen();
+		committed = false;
+		Map<Class<?>, List<Entity<Object>>> writes = new HashMap<>();
+		for (Entity<?> e : savedOrder) {
+			writes.computeIfAbsent(repository(e.getClass()).getEntityClass(), k -> new ArrayList<>())
+					.add(entity(e));
+		}
+		for (Map.Entry<Class<?>, Map<Object, Entity<?>>> entry : identityMap.entrySet()) {
+			SQLRepository<Entity<Object>, Object> r = repository(entry.getKey());
+			for (Entity<?> e : entry.getValue().values()) {
+				if (!saved.contains(e) && r.isDirty(entity(e))) {
+					writes.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(entity(e));
+				}
+			}
+		}
+		List<Class<? extends Entity<?>>> order = dependencyOrder(writes.keySet(), deleted.keySet());
+		for (Class<? extends Entity<?>> entityClass : order) {
+			List<Entity<Object>> items = writes.get(entityClass);
+			if (Objects.nonNull(items)) {
+				for (Entity<Object> e : repository(entityClass).flush(items, db.getActiveUser())) {
+					register(entityClass, e);
+				}
+			}
+		}
+		for (int i = order.size() - 1; i > -1; i--) {
+			Map<Object, Entity<?>> gone = deleted.get(order.get(i));
+			if (Objects.nonNull(gone)) {
+				List<Object> ids = new ArrayList<>();
+				for (Entity<?> e : gone.values()) {
+					ids.add(e.getId());
+				}
+				repository(order.get(i)).flushDeletes(ids);
+			}
+		}
+		LOGGER.trace("unit of work flushed %d entity classes", order.size());
+		saved.clear();
+		savedOrder.clear();
+		/*
+		 * the deleted records are gone within the transaction, find no longer needs
+		 * them and a later flush must not delete them again
+		 */
+		deleted.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Entity<Object> entity(Entity<?> e) {
+		return (Entity<Object>) e;
+	}
+
+	/**
+	 * Sorts the written entity classes so that referenced entities come first.
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Class<? extends Entity<?>>> dependencyOrder(Set<Class<?>> writes, Set<Class<?>> deletes)
+			throws SQLException {
+		List<Class<? extends Entity<?>>> classes = new ArrayList<>();
+		for (Class<?> c : writes) {
+			classes.add((Class<? extends Entity<?>>) c);
+		}
+		for (Class<?> c : deletes) {
+			if (!writes.contains(c)) {
+				classes.add((Class<? extends Entity<?>>) c);
+			}
+		}
+		try {
+			ORM.sortEntityClasses(classes);
+		} catch (ConfigurationException e) {
+			throw new SQLException(e.getMessage(), e);
+		}
+		return classes;
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		flush();
+		if (ownsTransaction) {
+			connection.commit();
+			db.getChangeEventBus().commit();
+		}
+		committed = true;
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		checkOpen();
+		if (ownsTransaction) {
+			connection.rollback();
+			db.getChangeEventBus().rollback();
+		}
+		release(true);
+		saved.clear();
+		savedOrder.clear();
+		deleted.clear();
+	}
+
+	private void release(boolean rolledBack) {
+		for (Map.Entry<Class<?>, Map<Object, Entity<?>>> entry : identityMap.entrySet()) {
+			SQLRepository<Entity<Object>, Object> r = repository(entry.getKey());
+			for (Entity<?> e : entry.getValue().values()) {
+				r.release(entity(e), rolledBack);
+			}
+		}
+		identityMap.clear();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (!open) {
+			return;
+		}
+		try {
+			if (!committed) {
+				rollback();
+			} else {
+				release(false);
+			}
+		} finally {
+			open = false;
+			CURRENT.remove();
+			if (ownsTransaction) {
+				connection.setAutoCommit(true);
+			}
+		}
+	}
+}
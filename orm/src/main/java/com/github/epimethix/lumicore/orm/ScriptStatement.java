@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A script statement split into its shape and its literal values.
+ * <p>
+ * The string and number literals of INSERT, REPLACE, UPDATE and DELETE
+ * statements are replaced by parameters so runs of statements of the same
+ * shape can be executed as one prepared batch. Other statements (and DML using
+ * ORDER BY or GROUP BY where a number can mean a column index) are executed as
+ * they are.
+ * 
+ * @author epimethix
+ *
+ */
+final class ScriptStatement {
+
+	private final String sql;
+	private final String shape;
+	private final Object[] parameters;
+	private final String keyword;
+
+	private ScriptStatement(String sql, String shape, Object[] parameters, String keyword) {
+		this.sql = sql;
+		this.shape = shape;
+		this.parameters = parameters;
+		this.keyword = keyword;
+	}
+
+	static ScriptStatement parse(String sql) {
+		int end = 0;
+		while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+			end++;
+		}
+		String keyword = sql.substring(0, end).toUpperCase(Locale.ROOT);
+		switch (keyword) {
+		case "INSERT":
+		case "REPLACE":
+		case "UPDATE":
+		case "DELETE":
+			break;
+		default:
+			return new ScriptStatement(sql, null, null, keyword);
+		}
+		StringBuilder shape = new StringBuilder(sql.length());
+		List<Object> parameters = new ArrayList<>();
+		int i = 0;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+					i++;
+				}
+				shape.append(' ');
+			} else if (c == '\'') {
+				int start = i;
+				StringBuilder value = new StringBuilder();
+				i++;
+				while (i < sql.length()) {
+					char x = sql.charAt(i++);
+					if (x == '\'') {
+						if (i < sql.length() && sql.charAt(i) == '\'') {
+							value.append('\'');
+							i++;
+						} else {
+							break;
+						}
+					} else {
+						value.append(x);
+					}
+				}
+				if (isBlobPrefix(shape)) {
+					shape.append(sql, start, i);
+				} else {
+					shape.append('?');
+					parameters.add(value.toString());
+				}
+			} else if (c == '"' || c == '`' || c == '[') {
+				char quote = c == '[' ? ']' : c;
+				int start = i++;
+				while (i < sql.length() && sql.charAt(i++) != quote) {}
+				shape.append(sql, start, i);
+			} else if (isNumberStart(sql, i) && !isIdentifierPart(shape)) {
+				int start = i;
+				if (c == '0' && i + 1 < sql.length() && (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+					i += 2;
+					while (i < sql.length() && Character.isLetterOrDigit(sql.charAt(i))) {
+						i++;
+					}
+					shape.append(sql, start, i);
+					continue;
+				}
+				boolean integral = true;
+				while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+					i++;
+				}
+				if (i < sql.length() && sql.charAt(i) == '.') {
+					integral = false;
+					i++;
+					while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+						i++;
+					}
+				}
+				if (i < sql.length() && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+					integral = false;
+					i++;
+					if (i < sql.length() && (sql.charAt(i) == '+' || sql.charAt(i) == '-')) {
+						i++;
+					}
+					while (i < sql.length() && Character.isDigit(sql.charAt(i))) {
+						i++;
+					}
+				}
+				String number = sql.substring(start, i);
+				Object value;
+				try {
+					value = integral ? (Object) Long.valueOf(number) : (Object) Double.valueOf(number);
+				} catch (NumberFormatException e) {
+					shape.append(number);
+					continue;
+				}
+				shape.append('?');
+				parameters.add(value);
+			} else {
+				shape.append(c);
+				i++;
+			}
+		}
+		String s = shape.toString().trim();
+		String upper = s.toUpperCase(Locale.ROOT);
+		if (upper.contains("ORDER BY") || upper.contains("GROUP BY")) {
+			return new ScriptStatement(sql, null, null, keyword);
+		}
+		return new ScriptStatement(sql, s, parameters.toArray(), keyword);
+	}
+
+	private static boolean isNumberStart(String sql, int i) {
+		char c = sql.charAt(i);
+		return Character.isDigit(c)
+				|| (c == '.' && i + 1 < sql.length() && Character.isDigit(sql.charAt(i + 1)));
+	}
+
+	private static boolean isIdentifierPart(StringBuilder shape) {
+		if (shape.length() == 0) {
+			return false;
+		}
+		char c = shape.charAt(shape.length() - 1);
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	/**
+	 * Tests whether the shape ends with the X of a BLOB literal.
+	 */
+	private static boolean isBlobPrefix(StringBuilder shape) {
+		int n = shape.length();
+		if (n == 0 || Character.toUpperCase(shape.charAt(n - 1)) != 'X') {
+			return false;
+		}
+		if (n == 1) {
+			return true;
+		}
+		char c = shape.charAt(n - 2);
+		return !(Character.isLetterOrDigit(c) || c == '_' || c == '$');
+	}
+
+	String getSQL() {
+		return sql;
+	}
+
+	/**
+	 * @return the parameterized statement or null if the statement cannot be
+	 *         batched
+	 */
+	String getShape() {
+		return shape;
+	}
+
+	boolean isBatchable() {
+		return Objects.nonNull(shape);
+	}
+
+	/**
+	 * @return true for BEGIN, COMMIT and END (TRANSACTION) statements
+	 */
+	boolean isTransactionControl() {
+		return keyword.equals("BEGIN") || keyword.equals("COMMIT") || keyword.equals("END");
+	}
+
+	/**
+	 * @return true for ROLLBACK, SAVEPOINT and RELEASE (SAVEPOINT) statements
+	 */
+	boolean isSavepointControl() {
+		return keyword.equals("ROLLBACK") || keyword.equals("SAVEPOINT") || keyword.equals("RELEASE");
+	}
+
+	void bind(PreparedStatement ps) throws SQLException {
+		for (int i = 0; i < parameters.length; i++) {
+			ps.setObject(i + 1, parameters[i]);
+		}
+	}
+}
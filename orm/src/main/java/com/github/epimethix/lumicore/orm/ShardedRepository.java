@@ -0,0 +1,363 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.github.epimethix.lumicore.common.orm.Repository;
+import com.github.epimethix.lumicore.common.orm.model.Entity;
+import com.github.epimethix.lumicore.common.orm.query.Query.SelectBuilder;
+import com.github.epimethix.lumicore.logging.Log;
+import com.github.epimethix.lumicore.logging.Logger;
+
+/**
+ * One logical repository spread over several database files (shards).
+ * <p>
+ * Each shard is a regular {@link Repository} of its own {@code SQLDatabase} so
+ * every shard has its own connection and its own write lock. Writes are routed
+ * to exactly one shard by the {@link ShardFunction} applied to the shard key
+ * (the primary key by default). Reads by id go to a single shard if the
+ * primary key is the shard key, selects fan out to all shards in parallel and
+ * are merged.
+ * <p>
+ * Routing by primary key requires the id to be assigned before saving
+ * (for example UUID or application generated keys) because auto increment
+ * keys would collide between shards.
+ *
+ * @author epimethix
+ *
+ * @param <E>  the entity type
+ * @param <ID> the primary key type
+ */
+public class ShardedRepository<E extends Entity<ID>, ID> implements AutoCloseable {
+
+	private final static Logger LOGGER = Log.getLogger(Log.CHANNEL_ORM);
+
+	/**
+	 * Maps a shard key to the shard index.
+	 */
+	@FunctionalInterface
+	public static interface ShardFunction {
+		/**
+		 * @param key    the shard key
+		 * @param shards the number of shards
+		 * @return the shard index (0 to shards - 1)
+		 */
+		int shardOf(Object key, int shards);
+
+		/**
+		 * Hash routing, numbers are routed by their long value so that
+		 * {@code Integer} and {@code Long} keys are routed equally.
+		 *
+		 * @return the hash shard function
+		 */
+		public static ShardFunction hash() {
+			return (key, shards) -> {
+				int h;
+				if (key instanceof Number) {
+					h = Long.hashCode(((Number) key).longValue());
+				} else {
+					h = Objects.hashCode(key);
+				}
+				return Math.floorMod(h, shards);
+			};
+		}
+
+		/**
+		 * Key range routing: keys lower than {@code upperBounds[i]} (and not
+		 * lower than the previous bound) go to shard i, all greater keys go to
+		 * the last shard.
+		 *
+		 * @param upperBounds the exclusive upper bounds in ascending order
+		 * @return the range shard function
+		 */
+		public static ShardFunction range(long... upperBounds) {
+			long[] bounds = Arrays.copyOf(upperBounds, upperBounds.length);
+			return (key, shards) -> {
+				long k = ((Number) key).longValue();
+				for (int i = 0; i < bounds.length && i < shards - 1; i++) {
+					if (k < bounds[i]) {
+						return i;
+					}
+				}
+				return Math.min(bounds.length, shards - 1);
+			};
+		}
+	}
+
+	@FunctionalInterface
+	private static interface ShardCall<T> {
+		T call(int shard) throws SQLException;
+	}
+
+	private final List<Repository<E, ID>> shards;
+	private final Function<E, ?> shardKey;
+	private final boolean routedByPrimaryKey;
+	private final ShardFunction shardFunction;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a repository sharded by primary key using hash routing.
+	 *
+	 * @param shards the repositories of the same entity in different databases
+	 */
+	public ShardedRepository(List<? extends Repository<E, ID>> shards) {
+		this(shards, null, ShardFunction.hash());
+	}
+
+	/**
+	 * Creates a sharded repository.
+	 *
+	 * @param shards        the repositories of the same entity in different
+	 *                      databases
+	 * @param shardKey      the shard key extractor or null to route by primary
+	 *                      key
+	 * @param shardFunction the shard function
+	 */
+	public ShardedRepository(List<? extends Repository<E, ID>> shards, Function<E, ?> shardKey,
+			ShardFunction shardFunction) {
+		if (Objects.isNull(shards) || shards.isEmpty()) {
+			throw new IllegalArgumentException("at least one shard is required");
+		}
+		this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+		this.routedByPrimaryKey = Objects.isNull(shardKey);
+		this.shardKey = routedByPrimaryKey ? Entity::getId : shardKey;
+		this.shardFunction = Objects.requireNonNull(shardFunction);
+		this.executor = Executors.newFixedThreadPool(shards.size(), r -> {
+			Thread t = new Thread(r, "lumicore-shard");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public List<Repository<E, ID>> getShards() {
+		return shards;
+	}
+
+	/**
+	 * Gets the shard index for the specified shard key.
+	 *
+	 * @param key the shard key
+	 * @return the shard index
+	 */
+	public int shardOfKey(Object key) {
+		if (Objects.isNull(key)) {
+			throw new IllegalArgumentException("the shard key must not be null");
+		}
+		int i = shardFunction.shardOf(key, shards.size());
+		if (i < 0 || i >= shards.size()) {
+			throw new IllegalStateException(String.format("shard index %d out of range", i));
+		}
+		return i;
+	}
+
+	/**
+	 * Gets the shard index for the specified entity.
+	 *
+	 * @param e the entity
+	 * @return the shard index
+	 */
+	public int shardOf(E e) {
+		return shardOfKey(shardKey.apply(e));
+	}
+
+	public Optional<E> save(E e) throws SQLException {
+		return shards.get(shardOf(e)).save(e);
+	}
+
+	public List<E> save(List<E> items) throws SQLException {
+		List<List<E>> groups = group(items, this::shardOf);
+		List<List<E>> saved = fanOut(i -> {
+			List<E> group = groups.get(i);
+			return group.isEmpty() ? Collections.<E>emptyList() : shards.get(i).save(group);
+		});
+		return concat(saved);
+	}
+
+	public Optional<E> selectById(ID id) throws SQLException {
+		if (routedByPrimaryKey) {
+			return shards.get(shardOfKey(id)).selectById(id);
+		}
+		for (Optional<E> o : fanOut(i -> shards.get(i).selectById(id))) {
+			if (o.isPresent()) {
+				return o;
+			}
+		}
+		return Optional.empty();
+	}
+
+	public boolean exists(ID id) throws SQLException {
+		return selectById(id).isPresent();
+	}
+
+	public Optional<E> deleteById(ID id) throws SQLException {
+		if (routedByPrimaryKey) {
+			return shards.get(shardOfKey(id)).deleteById(id);
+		}
+		for (Optional<E> o : fanOut(i -> shards.get(i).deleteById(id))) {
+			if (o.isPresent()) {
+				return o;
+			}
+		}
+		return Optional.empty();
+	}
+
+	public List<E> selectAll(List<ID> ids) throws SQLException {
+		if (!routedByPrimaryKey) {
+			return concat(fanOut(i -> shards.get(i).selectAll(ids)));
+		}
+		List<List<ID>> groups = group(ids, this::shardOfKey);
+		return concat(fanOut(i -> {
+			List<ID> group = groups.get(i);
+			return group.isEmpty() ? Collections.<E>emptyList() : shards.get(i).selectAll(group);
+		}));
+	}
+
+	/**
+	 * Runs the select on all shards in parallel and concatenates the results in
+	 * shard order.
+	 *
+	 * @param b the select definition
+	 * @return the results of all shards
+	 * @throws SQLException
+	 */
+	public List<E> select(Function<SelectBuilder, SelectBuilder> b) throws SQLException {
+		return concat(fanOut(i -> shards.get(i).select(b)));
+	}
+
+	/**
+	 * Runs the select with the specified limit on all shards in parallel and
+	 * merges the shard results (k-way merge) until the limit is reached.
+	 * <p>
+	 * The select must order the records the same way as the comparator does.
+	 * Offsets are not supported because every shard has to deliver its first
+	 * {@code limit} records.
+	 *
+	 * @param b     the select definition including ORDER BY
+	 * @param order the comparator matching the ORDER BY clause
+	 * @param limit the maximum number of records to return
+	 * @return the merged ordered records
+	 * @throws SQLException
+	 */
+	public List<E> select(Function<SelectBuilder, SelectBuilder> b, Comparator<? super E> order, long limit)
+			throws SQLException {
+		List<List<E>> results = fanOut(i -> shards.get(i).select(s -> b.apply(s).limit(limit)));
+		return merge(results, order, limit);
+	}
+
+	public long count() throws SQLException {
+		long count = 0L;
+		for (Long c : fanOut(i -> shards.get(i).count())) {
+			count += c;
+		}
+		return count;
+	}
+
+	static <E> List<E> merge(List<List<E>> sorted, Comparator<? super E> order, long limit) {
+		/*
+		 * cursor: {list index, position}
+		 */
+		PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, sorted.size()),
+				(x, y) -> order.compare(sorted.get(x[0]).get(x[1]), sorted.get(y[0]).get(y[1])));
+		for (int i = 0; i < sorted.size(); i++) {
+			if (!sorted.get(i).isEmpty()) {
+				heads.add(new int[] { i, 0 });
+			}
+		}
+		List<E> merged = new ArrayList<>();
+		while (!heads.isEmpty() && merged.size() < limit) {
+			int[] head = heads.poll();
+			List<E> l = sorted.get(head[0]);
+			merged.add(l.get(head[1]));
+			if (++head[1] < l.size()) {
+				heads.add(head);
+			}
+		}
+		return merged;
+	}
+
+	private <T> List<List<T>> group(List<T> items, Function<T, Integer> router) {
+		List<List<T>> groups = new ArrayList<>();
+		for (int i = 0; i < shards.size(); i++) {
+			groups.add(new ArrayList<>());
+		}
+		for (T t : items) {
+			groups.get(router.apply(t)).add(t);
+		}
+		return groups;
+	}
+
+	private static <E> List<E> concat(List<List<E>> lists) {
+		List<E> result = new ArrayList<>();
+		for (List<E> l : lists) {
+			result.addAll(l);
+		}
+		return result;
+	}
+
+	private <T> List<T> fanOut(ShardCall<T> call) throws SQLException {
+		if (shards.size() == 1) {
+			return Collections.singletonList(call.call(0));
+		}
+		List<Future<T>> futures = new ArrayList<>();
+		for (int i = 0; i < shards.size(); i++) {
+			final int shard = i;
+			futures.add(executor.submit(() -> call.call(shard)));
+		}
+		List<T> results = new ArrayList<>();
+		SQLException error = null;
+		for (Future<T> f : futures) {
+			try {
+				results.add(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				LOGGER.error(e);
+				throw new SQLException("interrupted while waiting for shards", e);
+			} catch (ExecutionException e) {
+				LOGGER.error(e);
+				if (Objects.isNull(error)) {
+					error = e.getCause() instanceof SQLException ? (SQLException) e.getCause()
+							: new SQLException(e.getCause());
+				}
+			}
+		}
+		if (Objects.nonNull(error)) {
+			throw error;
+		}
+		return results;
+	}
+
+	/**
+	 * Stops the shard worker threads. The shard databases are not closed.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Chunked columnar binary table dump.
+ * <p>
+ * Layout: header (magic "LCDF", version, flags, entity name, column names)
+ * followed by chunks of up to {@link #CHUNK_ROWS} rows. Every chunk stores its
+ * row count, raw and stored length and the (optionally deflated) payload. The
+ * payload holds one block per column: a null bitmap, an encoding byte and the
+ * non-null values. Integer columns are stored as zig-zag varint deltas. A chunk
+ * with zero rows terminates the file.
+ *
+ * @author epimethix
+ *
+ */
+final class TableDump {
+
+	private final static byte[] MAGIC = { 'L', 'C', 'D', 'F' };
+	private final static byte VERSION = 1;
+	private final static byte FLAG_DEFLATE = 1;
+
+	final static int CHUNK_ROWS = 4096;
+
+	private final static byte ENC_NULL = 0;
+	private final static byte ENC_LONG = 1;
+	private final static byte ENC_DOUBLE = 2;
+	private final static byte ENC_TEXT = 3;
+	private final static byte ENC_BYTES = 4;
+	private final static byte ENC_MIXED = 5;
+
+	private TableDump() {}
+
+	static Writer writer(Path path, String entityName, String[] columns, boolean compress) throws IOException {
+		return new Writer(path, entityName, columns, compress, CHUNK_ROWS);
+	}
+
+	/**
+	 * @param chunkRows the rows per chunk, use less than {@link #CHUNK_ROWS} for
+	 *                  large values
+	 */
+	static Writer writer(Path path, String entityName, String[] columns, boolean compress, int chunkRows)
+			throws IOException {
+		return new Writer(path, entityName, columns, compress, Math.max(1, chunkRows));
+	}
+
+	static Reader reader(Path path) throws IOException {
+		return new Reader(path);
+	}
+
+	/**
+	 * Writes rows to a dump file.
+	 */
+	static final class Writer implements Closeable {
+		private final FileChannel channel;
+		private final int columns;
+		private final boolean compress;
+		private final int chunkRows;
+		private final List<Object[]> rows;
+		private final Deflater deflater;
+		private long count;
+
+		private Writer(Path path, String entityName, String[] columns, boolean compress, int chunkRows)
+				throws IOException {
+			this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.columns = columns.length;
+			this.compress = compress;
+			this.chunkRows = chunkRows;
+			this.rows = new ArrayList<>(chunkRows);
+			this.deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.write(MAGIC);
+			out.writeByte(VERSION);
+			out.writeByte(compress ? FLAG_DEFLATE : 0);
+			out.writeUTF(entityName);
+			out.writeInt(columns.length);
+			for (String column : columns) {
+				out.writeUTF(column);
+			}
+			out.flush();
+			write(ByteBuffer.wrap(bytes.toByteArray()));
+		}
+
+		/**
+		 * Adds one row of raw column values.
+		 *
+		 * @param row the column values (Number, String, byte[] or null)
+		 * @throws IOException
+		 */
+		void addRow(Object[] row) throws IOException {
+			rows.add(row);
+			count++;
+			if (rows.size() == chunkRows) {
+				flushChunk();
+			}
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		private void flushChunk() throws IOException {
+			if (rows.isEmpty()) {
+				return;
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			for (int c = 0; c < columns; c++) {
+				encodeColumn(out, c);
+			}
+			out.flush();
+			byte[] raw = bytes.toByteArray();
+			byte[] stored = raw;
+			int storedLength = raw.length;
+			if (compress) {
+				deflater.reset();
+				deflater.setInput(raw);
+				deflater.finish();
+				stored = new byte[Math.max(64, raw.length + raw.length / 100 + 64)];
+				storedLength = 0;
+				while (!deflater.finished()) {
+					if (storedLength == stored.length) {
+						byte[] grown = new byte[stored.length * 2];
+						System.arraycopy(stored, 0, grown, 0, storedLength);
+						stored = grown;
+					}
+					storedLength += deflater.deflate(stored, storedLength, stored.length - storedLength);
+				}
+			}
+			ByteBuffer frame = ByteBuffer.allocate(12);
+			frame.putInt(rows.size()).putInt(raw.length).putInt(storedLength).flip();
+			write(frame);
+			write(ByteBuffer.wrap(stored, 0, storedLength));
+			rows.clear();
+		}
+
+		private void encodeColumn(DataOutputStream out, int c) throws IOException {
+			int n = rows.size();
+			byte[] nulls = new byte[(n + 7) / 8];
+			byte encoding = -1;
+			for (int r = 0; r < n; r++) {
+				Object v = rows.get(r)[c];
+				if (Objects.isNull(v)) {
+					nulls[r / 8] |= 1 << (r % 8);
+				} else {
+					byte e = encodingOf(v);
+					if (encoding == -1) {
+						encoding = e;
+					} else if (encoding != e) {
+						encoding = ENC_MIXED;
+					}
+				}
+			}
+			if (encoding == -1) {
+				encoding = ENC_NULL;
+			}
+			out.write(nulls);
+			out.writeByte(encoding);
+			long previous = 0L;
+			for (int r = 0; r < n; r++) {
+				Object v = rows.get(r)[c];
+				if (Objects.isNull(v)) {
+					continue;
+				}
+				if (encoding == ENC_LONG) {
+					long l = toLong(v);
+					writeVarLong(out, l - previous);
+					previous = l;
+				} else if (encoding == ENC_MIXED) {
+					byte e = encodingOf(v);
+					out.writeByte(e);
+					writeValue(out, e, v);
+				} else {
+					writeValue(out, encoding, v);
+				}
+			}
+		}
+
+		private void write(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		/**
+		 * Writes the remaining rows and the terminating chunk.
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				flushChunk();
+				ByteBuffer end = ByteBuffer.allocate(12);
+				end.putInt(0).putInt(0).putInt(0).flip();
+				write(end);
+				channel.force(false);
+			} finally {
+				if (Objects.nonNull(deflater)) {
+					deflater.end();
+				}
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Reads a dump file chunk by chunk, the chunk payloads are memory mapped.
+	 */
+	static final class Reader implements Closeable {
+		private final FileChannel channel;
+		private final String entityName;
+		private final String[] columns;
+		private final boolean compressed;
+		private final Inflater inflater;
+		private long position;
+
+		private Reader(Path path) throws IOException {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+			try {
+				ByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0L,
+						Math.min(channel.size(), 64L * 1024L));
+				byte[] magic = new byte[MAGIC.length];
+				head.get(magic);
+				for (int i = 0; i < MAGIC.length; i++) {
+					if (magic[i] != MAGIC[i]) {
+						throw new IOException("not a table dump file: " + path);
+					}
+				}
+				byte version = head.get();
+				if (version != VERSION) {
+					throw new IOException(String.format("unsupported table dump version %d", version));
+				}
+				this.compressed = (head.get() & FLAG_DEFLATE) != 0;
+				this.entityName = readUTF(head);
+				this.columns = new String[head.getInt()];
+				for (int i = 0; i < columns.length; i++) {
+					columns[i] = readUTF(head);
+				}
+				this.position = head.position();
+				this.inflater = compressed ? new Inflater() : null;
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		String getEntityName() {
+			return entityName;
+		}
+
+		String[] getColumns() {
+			return columns;
+		}
+
+		/**
+		 * Reads the next chunk.
+		 *
+		 * @return the rows of the next chunk or null if the end of the file is
+		 *         reached
+		 * @throws IOException
+		 */
+		Object[][] nextChunk() throws IOException {
+			ByteBuffer frame = channel.map(FileChannel.MapMode.READ_ONLY, position, 12L);
+			int rowCount = frame.getInt();
+			int rawLength = frame.getInt();
+			int storedLength = frame.getInt();
+			position += 12L;
+			if (rowCount == 0) {
+				return null;
+			}
+			ByteBuffer stored = channel.map(FileChannel.MapMode.READ_ONLY, position, storedLength);
+			position += storedLength;
+			ByteBuffer payload;
+			if (compressed) {
+				byte[] raw = new byte[rawLength];
+				inflater.reset();
+				inflater.setInput(stored);
+				try {
+					int n = 0;
+					while (n < rawLength && !inflater.finished()) {
+						n += inflater.inflate(raw, n, rawLength - n);
+					}
+				} catch (DataFormatException e) {
+					throw new IOException(e);
+				}
+				payload = ByteBuffer.wrap(raw);
+			} else {
+				payload = stored;
+			}
+			Object[][] rows = new Object[rowCount][columns.length];
+			for (int c = 0; c < columns.length; c++) {
+				decodeColumn(payload, rows, c);
+			}
+			return rows;
+		}
+
+		private static void decodeColumn(ByteBuffer in, Object[][] rows, int c) throws IOException {
+			byte[] nulls = new byte[(rows.length + 7) / 8];
+			in.get(nulls);
+			byte encoding = in.get();
+			long previous = 0L;
+			for (int r = 0; r < rows.length; r++) {
+				if ((nulls[r / 8] & (1 << (r % 8))) != 0) {
+					continue;
+				}
+				if (encoding == ENC_LONG) {
+					previous += readVarLong(in);
+					rows[r][c] = previous;
+				} else if (encoding == ENC_MIXED) {
+					rows[r][c] = readValue(in, in.get());
+				} else {
+					rows[r][c] = readValue(in, encoding);
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (Objects.nonNull(inflater)) {
+				inflater.end();
+			}
+			channel.close();
+		}
+	}
+
+	private static byte encodingOf(Object v) {
+		if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+			return ENC_LONG;
+		} else if (v instanceof Boolean) {
+			return ENC_LONG;
+		} else if (v instanceof Double || v instanceof Float) {
+			return ENC_DOUBLE;
+		} else if (v instanceof byte[]) {
+			return ENC_BYTES;
+		}
+		return ENC_TEXT;
+	}
+
+	private static long toLong(Object v) {
+		if (v instanceof Boolean) {
+			return ((Boolean) v) ? 1L : 0L;
+		}
+		return ((Number) v).longValue();
+	}
+
+	private static void writeValue(DataOutputStream out, byte encoding, Object v) throws IOException {
+		switch (encoding) {
+		case ENC_LONG:
+			writeVarLong(out, toLong(v));
+			break;
+		case ENC_DOUBLE:
+			out.writeDouble(((Number) v).doubleValue());
+			break;
+		case ENC_BYTES:
+			byte[] b = (byte[]) v;
+			writeVarLong(out, b.length);
+			out.write(b);
+			break;
+		default:
+			byte[] s = v.toString().getBytes(StandardCharsets.UTF_8);
+			writeVarLong(out, s.length);
+			out.write(s);
+		}
+	}
+
+	private static Object readValue(ByteBuffer in, byte encoding) throws IOException {
+		switch (encoding) {
+		case ENC_LONG:
+			return readVarLong(in);
+		case ENC_DOUBLE:
+			return in.getDouble();
+		case ENC_BYTES:
+			byte[] b = new byte[(int) readVarLong(in)];
+			in.get(b);
+			return b;
+		case ENC_TEXT:
+			byte[] s = new byte[(int) readVarLong(in)];
+			in.get(s);
+			return new String(s, StandardCharsets.UTF_8);
+		default:
+			throw new IOException(String.format("unknown column encoding %d", encoding));
+		}
+	}
+
+	/*
+	 * zig-zag varint
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		long v = (value << 1) ^ (value >> 63);
+		while ((v & ~0x7FL) != 0L) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	private static long readVarLong(ByteBuffer in) {
+		long v = 0L;
+		int shift = 0;
+		byte b;
+		do {
+			b = in.get();
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static String readUTF(ByteBuffer in) {
+		int length = in.getShort() & 0xFFFF;
+		byte[] b = new byte[length];
+		in.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A map keyed by identity that weakly references its keys so an entry never
+ * keeps an entity alive. Not synchronized.
+ *
+ * @author epimethix
+ *
+ * @param <V> the value type
+ */
+final class WeakIdentityMap<V> {
+
+	private final static class Key extends WeakReference<Object> {
+		private final int hash;
+
+		private Key(Object referent, ReferenceQueue<Object> queue) {
+			super(referent, queue);
+			this.hash = System.identityHashCode(referent);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj instanceof Key) {
+				Object referent = get();
+				return Objects.nonNull(referent) && referent == ((Key) obj).get();
+			}
+			return false;
+		}
+	}
+
+	private final Map<Key, V> map = new HashMap<>();
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+	void put(Object key, V value) {
+		expunge();
+		map.put(new Key(key, queue), value);
+	}
+
+	V get(Object key) {
+		expunge();
+		return map.get(new Key(key, null));
+	}
+
+	V remove(Object key) {
+		expunge();
+		return map.remove(new Key(key, null));
+	}
+
+	void clear() {
+		map.clear();
+		expunge();
+	}
+
+	private void expunge() {
+		Reference<?> r;
+		while (Objects.nonNull(r = queue.poll())) {
+			map.remove(r);
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
+import com.github.epimethix.lumicore.common.orm.model.Entity;
 import com.github.epimethix.lumicore.common.orm.query.Criteria;
 import com.github.epimethix.lumicore.common.orm.query.Criterium.Type;
 import com.github.epimethix.lumicore.common.orm.query.DefaultCriteria;
@@ -26,6 +27,7 @@ import com.github.epimethix.lumicore.common.orm.query.DefaultCriterium;
 import com.github.epimethix.lumicore.common.orm.query.Query;
 import com.github.epimethix.lumicore.common.orm.query.Query.CriteriaBuilder;
 import com.github.epimethix.lumicore.common.orm.query.Query.QueryBuilder;
+import com.github.epimethix.lumicore.orm.ORM;
 
 final class CriteriaBuilderImpl<T extends QueryBuilder<Q>, Q extends Query<Q>> implements CriteriaBuilder<T, Q> {
 
@@ -34,9 +36,16 @@ final class CriteriaBuilderImpl<T extends QueryBuilder<Q>, Q extends Query<Q>> i
 
 	private String alias;
 
+	private String schemaName;
+
+	private String entityName;
+
 	CriteriaBuilderImpl(CriteriaBuilderImpl<T, Q> c, T parentBuilder) {
 		this.queryBuilder = parentBuilder;
 		this.criteria = new DefaultCriteria((DefaultCriteria) c.criteria);
+		this.alias = c.alias;
+		this.schemaName = c.schemaName;
+		this.entityName = c.entityName;
 	}
 
 	public CriteriaBuilderImpl(T queryBuilder) {
@@ -50,6 +59,16 @@ final class CriteriaBuilderImpl<T extends QueryBuilder<Q>, Q extends Query<Q>> i
 		return this;
 	}
 
+	/**
+	 * Sets the table of the current alias, required by
+	 * {@link #fullText(String, String)}.
+	 */
+	CriteriaBuilderImpl<T, Q> withTable(String schemaName, Class<? extends Entity<?>> e) {
+		this.schemaName = schemaName;
+		this.entityName = Entity.getEntityName(e);
+		return this;
+	}
+
 	@Override
 	public CriteriaBuilder<T, Q> openBracket() {
 		criteria.addCriterium(new DefaultCriterium(Type.OPEN_BRACKET));
@@ -88,6 +107,34 @@ final class CriteriaBuilderImpl<T extends QueryBuilder<Q>, Q extends Query<Q>> i
 		return this;
 	}
 
+	@Override
+	public CriteriaBuilder<T, Q> inTable(String field, String schemaName, String tableName, String column) {
+		criteria.addCriterium(DefaultCriterium.inTable(alias, field, schemaName, tableName, column));
+		return this;
+	}
+
+	@Override
+	public CriteriaBuilder<T, Q> fullText(String field, String query) {
+		if (Objects.isNull(entityName)) {
+			throw new IllegalStateException("full-text criteria are not supported by this query");
+		}
+		String ftsTable = ORM.getFullTextTableName(entityName);
+		/*
+		 * restrict the FTS5 query to the column using a column filter
+		 */
+		String match = String.format("{%s} : (%s)", field, Objects.requireNonNull(query));
+		String criterium;
+		if (queryBuilder instanceof SQLSelectBuilder) {
+			String ftsAlias = ((SQLSelectBuilder) queryBuilder).joinFullText(schemaName, ftsTable, alias);
+			criterium = String.format("%s MATCH ? ", ftsAlias);
+		} else {
+			criterium = String.format("%s.rowid IN (SELECT rowid FROM `%s`.`%s` WHERE `%s` MATCH ?) ", alias,
+					schemaName, ftsTable, ftsTable);
+		}
+		criteria.addCriterium(DefaultCriterium.fullText(alias, field, criterium, match));
+		return this;
+	}
+
 	@Override
 	public CriteriaBuilder<T, Q> between(String field, Number start, Number end) {
 		criteria.addCriterium(new DefaultCriterium(Type.BETWEEN, alias, field,
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 epimethix@protonmail.com
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.epimethix.lumicore.orm.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.github.epimethix.lumicore.common.orm.model.Entity;
+import com.github.epimethix.lumicore.common.orm.query.AggregateBuilder;
+import com.github.epimethix.lumicore.common.orm.query.Query.CriteriaBuilder;
+import com.github.epimethix.lumicore.common.orm.query.Query.SelectBuilder;
+import com.github.epimethix.lumicore.common.orm.query.Query.SelectQuery;
+
+public final class SQLAggregateBuilder implements AggregateBuilder {
+
+	private final String schemaName;
+	private final Class<? extends Entity<?>> e;
+	private final List<String> groupFields = new ArrayList<>();
+	/**
+	 * {function, field, label}
+	 */
+	private final List<String[]> aggregates = new ArrayList<>();
+	private final List<Consumer<CriteriaBuilder<SelectBuilder, SelectQuery>>> criteria = new ArrayList<>();
+	private final SelectBuilder selectBuilder;
+
+	/**
+	 * @param selectBuilder an empty select builder of the table
+	 * @param schemaName    the schema name of the table
+	 * @param e             the entity class of the table
+	 */
+	public SQLAggregateBuilder(SelectBuilder selectBuilder, String schemaName, Class<? extends Entity<?>> e) {
+		this.selectBuilder = selectBuilder;
+		this.schemaName = schemaName;
+		this.e = e;
+	}
+
+	private AggregateBuilder add(String function, String field, String label) {
+		aggregates.add(new String[] { function, field, label });
+		return this;
+	}
+
+	@Override
+	public AggregateBuilder count(String field, String label) {
+		return add("count", field, label);
+	}
+
+	@Override
+	public AggregateBuilder countDistinct(String field, String label) {
+		return add("count_distinct", field, label);
+	}
+
+	@Override
+	public AggregateBuilder min(String field, String label) {
+		return add("min", field, label);
+	}
+
+	@Override
+	public AggregateBuilder max(String field, String label) {
+		return add("max", field, label);
+	}
+
+	@Override
+	public AggregateBuilder sum(String field, String label) {
+		return add("sum", field, label);
+	}
+
+	@Override
+	public AggregateBuilder average(String field, String label) {
+		return add("avg", field, label);
+	}
+
+	@Override
+	public AggregateBuilder groupBy(String field, String... fields) {
+		groupFields.add(field);
+		Collections.addAll(groupFields, fields);
+		return this;
+	}
+
+	@Override
+	public AggregateBuilder where(Consumer<CriteriaBuilder<SelectBuilder, SelectQuery>> criteria) {
+		this.criteria.add(criteria);
+		return this;
+	}
+
+	@Override
+	public List<String> getLabels() {
+		List<String> labels = new ArrayList<>(groupFields);
+		for (String[] a : aggregates) {
+			labels.add(a[2]);
+		}
+		return labels;
+	}
+
+	@Override
+	public SelectQuery build() {
+		if (aggregates.isEmpty()) {
+			throw new IllegalStateException("at least one aggregate is required");
+		}
+		SelectBuilder b = selectBuilder;
+		if (!groupFields.isEmpty()) {
+			b.select(schemaName, e, groupFields.toArray(new String[0]));
+		}
+		for (String[] a : aggregates) {
+			switch (a[0]) {
+			case "count":
+				b.selectCount(schemaName, e, a[1]);
+				break;
+			case "count_distinct":
+				b.selectCountDistinct(schemaName, e, a[1]);
+				break;
+			case "min":
+				b.selectMin(schemaName, e, a[1]);
+				break;
+			case "max":
+				b.selectMax(schemaName, e, a[1]);
+				break;
+			case "sum":
+				b.selectSum(schemaName, e, a[1]);
+				break;
+			default:
+				b.selectAverage(schemaName, e, a[1]);
+			}
+		}
+		if (!criteria.isEmpty()) {
+			CriteriaBuilder<SelectBuilder, SelectQuery> cb = b.withCriteria(schemaName, e);
+			boolean first = true;
+			for (Consumer<CriteriaBuilder<SelectBuilder, SelectQuery>> c : criteria) {
+				if (!first) {
+					cb.and();
+				}
+				first = false;
+				c.accept(cb);
+			}
+			b = cb.leave();
+		}
+		if (!groupFields.isEmpty()) {
+			b.groupBy(schemaName, e, groupFields.get(0), groupFields.subList(1, groupFields.size()).toArray(new String[0]));
+		}
+		return b.clearLimit().build();
+	}
+}
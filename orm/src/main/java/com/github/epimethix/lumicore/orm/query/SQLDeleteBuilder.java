@@ -59,7 +59,7 @@ public final class SQLDeleteBuilder implements DeleteBuilder {
 
 	@Override
 	public CriteriaBuilder<DeleteBuilder, DeleteQuery> withCriteria(String schemaName, Class<? extends Entity<?>> e) {
-		return criteriaBuilder.withAlias("T01");
+		return criteriaBuilder.withTable(schemaName, e).withAlias("T01");
 	}
 
 	@Override
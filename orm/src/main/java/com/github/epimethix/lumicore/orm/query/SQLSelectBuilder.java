@@ -40,11 +40,20 @@ public final class SQLSelectBuilder implements SelectBuilder {
 	private final Class<? extends Entity<?>> e;
 	private final String tableName;
 	private boolean distinct;
+	private boolean noCache;
+	/**
+	 * true if aggregate functions are selected
+	 */
+	private boolean aggregated;
 	private final StringBuilder selectionBuilder;
 	private final StringBuilder joinBuilder;
 	private final CriteriaBuilderImpl<SelectBuilder, SelectQuery> criteriaBuilder;
 	private final StringBuilder groupByBuilder;
 	private final StringBuilder orderByBuilder;
+	/**
+	 * the full-text relevance order, used if no order is specified
+	 */
+	private final StringBuilder rankBuilder;
 	private String nulls;
 	private Long limit;
 	private Long defLimit = 100L;
@@ -111,6 +120,8 @@ public final class SQLSelectBuilder implements SelectBuilder {
 		this.tableName = b.tableName;
 //		private boolean distinct;
 		this.distinct = b.distinct;
+		this.noCache = b.noCache;
+		this.aggregated = b.aggregated;
 //		private final StringBuilder selectionBuilder;
 		this.selectionBuilder = new StringBuilder(b.selectionBuilder);
 //		private final StringBuilder joinBuilder;
@@ -121,6 +132,7 @@ public final class SQLSelectBuilder implements SelectBuilder {
 		this.groupByBuilder = new StringBuilder(b.groupByBuilder);
 //		private final StringBuilder orderByBuilder;
 		this.orderByBuilder = new StringBuilder(b.orderByBuilder);
+		this.rankBuilder = new StringBuilder(b.rankBuilder);
 //		private String nulls;
 		this.nulls = b.nulls;
 //		private Long limit;
@@ -167,6 +179,7 @@ public final class SQLSelectBuilder implements SelectBuilder {
 		this.criteriaBuilder = new CriteriaBuilderImpl<>(this);
 		this.groupByBuilder = new StringBuilder();
 		this.orderByBuilder = new StringBuilder();
+		this.rankBuilder = new StringBuilder();
 	}
 
 	@Override
@@ -187,6 +200,12 @@ public final class SQLSelectBuilder implements SelectBuilder {
 		return this;
 	}
 
+	@Override
+	public SelectBuilder noCache() {
+		this.noCache = true;
+		return this;
+	}
+
 	@Override
 	public SelectBuilder select(String schemaName, Class<? extends Entity<?>> e, String... fields) {
 		String alias = getLastAlias(schemaName, e);
@@ -204,6 +223,25 @@ public final class SQLSelectBuilder implements SelectBuilder {
 		return this;
 	}
 
+	@Override
+	public SelectBuilder selectLength(String schemaName, Class<? extends Entity<?>> e, String field) {
+		String alias = getLastAlias(schemaName, e);
+		if (selectionBuilder.length() != 0) {
+			selectionBuilder.append(", ");
+		}
+		selectionBuilder.append("length(").append(alias).append(".`").append(field).append("`)");
+		return this;
+	}
+
+	@Override
+	public SelectBuilder selectNull() {
+		if (selectionBuilder.length() != 0) {
+			selectionBuilder.append(", ");
+		}
+		selectionBuilder.append("NULL");
+		return this;
+	}
+
 	@Override
 	public SelectBuilder selectCount(String schemaName, Class<? extends Entity<?>> e, String field) {
 		String alias = getLastAlias(schemaName, e);
@@ -211,6 +249,18 @@ public final class SQLSelectBuilder implements SelectBuilder {
 			selectionBuilder.append(", ");
 		}
 		selectionBuilder.append("count(").append(alias).append(".`").append(field).append("`)");
+		aggregated = true;
+		return this;
+	}
+
+	@Override
+	public SelectBuilder selectCountDistinct(String schemaName, Class<? extends Entity<?>> e, String field) {
+		String alias = getLastAlias(schemaName, e);
+		if (selectionBuilder.length() != 0) {
+			selectionBuilder.append(", ");
+		}
+		selectionBuilder.append("count(DISTINCT ").append(alias).append(".`").append(field).append("`)");
+		aggregated = true;
 		return this;
 	}
 
@@ -221,6 +271,7 @@ public final class SQLSelectBuilder implements SelectBuilder {
 			selectionBuilder.append(", ");
 		}
 		selectionBuilder.append("sum(").append(alias).append(".`").append(field).append("`)");
+		aggregated = true;
 		return this;
 	}
 
@@ -231,6 +282,7 @@ public final class SQLSelectBuilder implements SelectBuilder {
 			selectionBuilder.append(", ");
 		}
 		selectionBuilder.append("min(").append(alias).append(".`").append(field).append("`)");
+		aggregated = true;
 		return this;
 	}
 
@@ -241,6 +293,7 @@ public final class SQLSelectBuilder implements SelectBuilder {
 			selectionBuilder.append(", ");
 		}
 		selectionBuilder.append("max(").append(alias).append(".`").append(field).append("`)");
+		aggregated = true;
 		return this;
 	}
 
@@ -251,13 +304,40 @@ public final class SQLSelectBuilder implements SelectBuilder {
 			selectionBuilder.append(", ");
 		}
 		selectionBuilder.append("avg(").append(alias).append(".`").append(field).append("`)");
+		aggregated = true;
 		return this;
 	}
 
 	@Override
 	public CriteriaBuilder<SelectBuilder, SelectQuery> withCriteria(String schemaName, Class<? extends Entity<?>> e) {
 		String alias = getLastAlias(schemaName, e);
-		return criteriaBuilder.withAlias(alias);
+		return criteriaBuilder.withTable(schemaName, e).withAlias(alias);
+	}
+
+	/**
+	 * Joins the full-text index of the table with the specified alias once and
+	 * ranks the results by relevance.
+	 * 
+	 * @param schemaName the schema of the full-text index
+	 * @param ftsTable   the full-text index table name
+	 * @param tableAlias the alias of the indexed table
+	 * @return the alias of the joined full-text index
+	 */
+	String joinFullText(String schemaName, String ftsTable, String tableAlias) {
+		String key = String.format("`%s`.`%s`@%s", schemaName, ftsTable, tableAlias);
+		List<String> aliases = aliasMap.get(key);
+		if (Objects.nonNull(aliases)) {
+			return aliases.get(0);
+		}
+		String ftsAlias = putAlias(key);
+		joinBuilder.append("JOIN `").append(schemaName).append("`.`").append(ftsTable).append("` AS ")
+				.append(ftsAlias).append(" ON ").append(ftsAlias).append(".rowid = ").append(tableAlias)
+				.append(".rowid ");
+		if (rankBuilder.length() != 0) {
+			rankBuilder.append(", ");
+		}
+		rankBuilder.append("bm25(").append(ftsAlias).append(")");
+		return ftsAlias;
 	}
 
 	@Override
@@ -359,9 +439,13 @@ public final class SQLSelectBuilder implements SelectBuilder {
 				withCloseConnection(closeConnObj);
 			}
 		}
+		StringBuilder order = orderByBuilder.length() == 0 && !aggregated && groupByBuilder.length() == 0
+				? rankBuilder
+				: orderByBuilder;
 		String sql = dialect.compileSelect(prev, distinct, selectionBuilder, tableName, alias, joinBuilder,
-				groupByBuilder, criteriaBuilder, orderByBuilder, nulls, limit, defLimit, offset);
-		return new SQLSelectQuery(user, closeConnection, sql, criteriaBuilder.getCriteriumValues().toArray(), this);
+				groupByBuilder, criteriaBuilder, order, nulls, limit, defLimit, offset);
+		return new SQLSelectQuery(user, closeConnection, sql, criteriaBuilder.getCriteriumValues().toArray(), !noCache,
+				this);
 	}
 
 	private final class SQLJoinBuilder implements JoinBuilder {
@@ -22,11 +22,14 @@ import com.github.epimethix.lumicore.common.orm.query.Query.SelectQuery;
 
  final class SQLSelectQuery extends DefaultQuery<SelectQuery> implements SelectQuery {
 	private final Object[] criteriumValues;
+	private final boolean cacheable;
 	private  final SQLSelectBuilder b;
 
-	SQLSelectQuery(String user, Boolean isCloseConnection, String queryString, Object[] criteriumValues, SQLSelectBuilder b) {
+	SQLSelectQuery(String user, Boolean isCloseConnection, String queryString, Object[] criteriumValues,
+			boolean cacheable, SQLSelectBuilder b) {
 		super(user, isCloseConnection, queryString);
 		this.criteriumValues = Objects.requireNonNull(criteriumValues);
+		this.cacheable = cacheable;
 		this.b = b;
 	}
 
@@ -42,11 +45,17 @@ import com.github.epimethix.lumicore.common.orm.query.Query.SelectQuery;
 
 	@Override
 	public SelectQuery withCriteriumValues(Object... values) {
-		return new SQLSelectQuery(getUser().orElse(null), isCloseConnection().orElse(null), getQueryString(), values, b);
+		return new SQLSelectQuery(getUser().orElse(null), isCloseConnection().orElse(null), getQueryString(), values,
+				cacheable, b);
 	}
 
 	@Override
 	public SelectQuery atPage(long page) {
 		return builder().page(page).build();
 	}
+
+	@Override
+	public boolean isCacheable() {
+		return cacheable;
+	}
 }
\ No newline at end of file
@@ -76,7 +76,7 @@ public final class SQLUpdateBuilder implements UpdateBuilder {
 
 	@Override
 	public CriteriaBuilder<UpdateBuilder, UpdateQuery> withCriteria(String schemaName, Class<? extends Entity<?>> e) {
-		return criteriaBuilder.withAlias("T01");
+		return criteriaBuilder.withTable(schemaName, e).withAlias("T01");
 	}
 
 	@Override
@@ -88,7 +88,7 @@ public abstract class SQLDialect implements Dialect {
 	}
 
 	@Override
-	public void close() throws SQLException {
+	public synchronized void close() throws SQLException {
 		if (Objects.nonNull(connection)) {
 			connection.close();
 			connection = null;
@@ -101,13 +101,27 @@ public abstract class SQLDialect implements Dialect {
 	}
 
 	@Override
-	public Connection getConnection() throws SQLException {
+	public synchronized Connection getConnection() throws SQLException {
 		if (Objects.isNull(connection) || connection.isClosed()) {
-			connection = CONNECTION_FACTORY.createConnection();
+			connection = createConnection();
+			connectionOpened(connection);
 		}
 		return connection;
 	}
 
+	/**
+	 * Called when the connection used by the repositories was (re-)opened.
+	 * 
+	 * @param c the connection
+	 * @throws SQLException
+	 */
+	protected void connectionOpened(Connection c) throws SQLException {}
+
+	@Override
+	public synchronized boolean isTransactionOpen() throws SQLException {
+		return Objects.nonNull(connection) && !connection.isClosed() && !connection.getAutoCommit();
+	}
+
 	@Override
 	public String getPath() {
 		return CONNECTION_FACTORY.getConnectionString();
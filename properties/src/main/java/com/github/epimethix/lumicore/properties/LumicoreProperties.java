@@ -41,6 +41,10 @@ import java.util.Objects;
  * operations) default value: "close"
  * <li>Property "allow-multiple-app-instances" ("true" to disable blocking
  * multiple application instances)
+ * <li>Property "orm-mapping-cache" (the file to cache verified repository
+ * mappings in) default value: none (disabled)
+ * <li>Property "orm-node-id" (the node id 0-1023 of this instance for
+ * Snowflake primary keys) default value: 0
  * </ul>
  * 
  * @author epimethix
@@ -110,6 +114,28 @@ public final class LumicoreProperties {
 	 * Default query limit?
 	 */
 	public static final long DEFAULT_QUERY_LIMIT;
+	/**
+	 * The key "orm-mapping-cache"
+	 * <p>
+	 * value: path of the file to cache verified repository mapping definitions
+	 * in.
+	 */
+	private static final String ORM_MAPPING_CACHE_KEY = "orm-mapping-cache";
+	/**
+	 * The mapping cache file path or null if the mapping cache is disabled.
+	 */
+	public static final String ORM_MAPPING_CACHE;
+	/**
+	 * The key "orm-node-id"
+	 * <p>
+	 * value: the node id (0-1023) of this application instance, must be distinct
+	 * for instances sharing a database.
+	 */
+	private static final String ORM_NODE_ID_KEY = "orm-node-id";
+	/**
+	 * The node id used to generate Snowflake primary keys.
+	 */
+	public static final int ORM_NODE_ID;
 
 	/*
 	 * * * User management
@@ -218,6 +244,8 @@ public final class LumicoreProperties {
 		boolean closeConnection = false;
 		boolean obtainImmutable = true;
 		long defaultQueryLimit = 100L;
+		String ormMappingCache = null;
+		int ormNodeId = 0;
 		int hashingIterations = 64000;
 		int hashingKeyLength = 128;
 		String loggerConfiguration = null;
@@ -266,6 +294,19 @@ public final class LumicoreProperties {
 					System.err.println(e.getMessage());
 				}
 			}
+			if (PROPERTIES.containsKey(ORM_MAPPING_CACHE_KEY)) {
+				String value = PROPERTIES.getProperty(ORM_MAPPING_CACHE_KEY);
+				if (Objects.nonNull(value) && value.trim().length() > 0) {
+					ormMappingCache = value.trim();
+				}
+			}
+			if (PROPERTIES.containsKey(ORM_NODE_ID_KEY)) {
+				try {
+					ormNodeId = Integer.parseInt(PROPERTIES.getProperty(ORM_NODE_ID_KEY).trim());
+				} catch (NumberFormatException e) {
+					e.printStackTrace();
+				}
+			}
 			/*
 			 * 3) User Management
 			 */
@@ -326,6 +367,8 @@ public final class LumicoreProperties {
 		CLOSE_CONNECTION_AFTER_OPERATION = closeConnection;
 		OBTAIN_IMMUTABLE = obtainImmutable;
 		DEFAULT_QUERY_LIMIT = defaultQueryLimit;
+		ORM_MAPPING_CACHE = ormMappingCache;
+		ORM_NODE_ID = ormNodeId;
 		HASHING_ITERATIONS = hashingIterations;
 		HASHING_KEY_LENGTH = hashingKeyLength;
 		IOC_VERBOSE = iocVerbose;